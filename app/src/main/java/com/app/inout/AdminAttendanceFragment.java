@@ -1,30 +1,48 @@
 package com.inout.app;
 
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.AdapterView;
-import android.widget.ArrayAdapter;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
 import com.inout.app.databinding.FragmentAdminAttendanceBinding;
+import com.inout.app.models.AttendanceRecord;
 import com.inout.app.models.User;
+import com.inout.app.utils.AdminScope;
+import com.inout.app.utils.AttendanceMonthIndex;
+import com.inout.app.utils.DirectoryIndex;
+import com.inout.app.utils.EmployeeDirectory;
+import com.inout.app.utils.FirebaseManager;
+import com.inout.app.utils.FirestoreMeter;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * Admin view for Attendance.
- * 1. Select employee from Spinner.
+ * 1. UPDATED: Search an employee by name or ID (prefix index, employees load in pages).
  * 2. Opens the Professional Attendance Profile Pop-up (CV-style).
+ * 3. NEW: Company matrix of all employees x this month's days, backed by AttendanceMonthIndex.
+ * 4. NEW: Branch managers only load their branch (AdminScope).
  */
 public class AdminAttendanceFragment extends Fragment {
 
@@ -32,7 +50,26 @@ public class AdminAttendanceFragment extends Fragment {
     private FragmentAdminAttendanceBinding binding;
     private FirebaseFirestore db;
     
-    private List<User> employees;
+    private static final int PAGE_SIZE = 50;
+    private static final int REMOTE_SEARCH_LIMIT = 10;
+    private static final long SEARCH_DEBOUNCE_MS = 300;
+
+    // Employees: loaded page by page and indexed for search
+    private EmployeeDirectory directory;
+    private EmployeeSuggestionAdapter suggestionAdapter;
+    private DocumentSnapshot lastPageDoc;
+    private boolean pageLoading;
+    private boolean allPagesLoaded;
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+
+    // Company matrix state
+    private AttendanceMonthIndex monthIndex;
+    private List<String> matrixLabels;
+    private ListenerRegistration monthListener;
+
+    // Branch scope (null = whole company), resolved once before the first query
+    private String branchId;
+    private boolean scopeLoaded;
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -43,79 +80,274 @@ public class AdminAttendanceFragment extends Fragment {
     @Override
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
+        FirestoreMeter.setScreen(getClass().getSimpleName());
 
-        db = FirebaseFirestore.getInstance();
-        employees = new ArrayList<>();
+        db = FirebaseManager.getFirestore();
+        directory = new EmployeeDirectory();
+        monthIndex = AttendanceMonthIndex.forCurrentMonth();
+        matrixLabels = new ArrayList<>();
 
-        // Load the list of employees into the spinner first
-        loadEmployeeList();
+        setupSearch();
+        setupMatrix();
+
+        // Branch managers get their branch's employees and attendance only
+        AdminScope.loadBranch(db)
+                .addOnSuccessListener(branch -> {
+                    if (binding == null) return;
+                    branchId = branch;
+                    scopeLoaded = true;
+                    if (branchId != null) {
+                        // The directory index is company-wide; page the branch's users instead
+                        loadNextEmployeePage();
+                    } else {
+                        loadRoster();
+                    }
+                    listenToMonth();
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Could not load admin scope", e);
+                    if (binding == null) return;
+                    binding.tvMatrixSummary.setText("Could not load company attendance.");
+                });
     }
 
     /**
-     * Fetches all approved employees to populate the selection spinner.
-     * This logic is identical to your original code.
+     * NEW: Whole roster from the directory index (a few reads). If the index is not built yet,
+     * falls back to paging through 'users' (further pages load as the matrix scrolls).
      */
-    private void loadEmployeeList() {
+    private void loadRoster() {
         binding.progressBar.setVisibility(View.VISIBLE);
-        db.collection("users")
-                .whereEqualTo("role", "employee")
-                .whereEqualTo("approved", true)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
+        DirectoryIndex.loadRoster(db)
+                .addOnSuccessListener(roster -> {
+                    if (binding == null) return;
+                    if (roster == null) {
+                        binding.progressBar.setVisibility(View.GONE);
+                        loadNextEmployeePage();
+                        return;
+                    }
                     binding.progressBar.setVisibility(View.GONE);
-                    employees.clear();
-                    List<String> employeeNames = new ArrayList<>();
-                    employeeNames.add("Select an Employee");
-
-                    for (DocumentSnapshot doc : queryDocumentSnapshots) {
-                        User user = doc.toObject(User.class);
-                        if (user != null) {
-                            user.setUid(doc.getId()); // Ensure UID is preserved
-                            employees.add(user);
-                            // Format: Name (EmployeeID)
-                            employeeNames.add(user.getName() + " (" + user.getEmployeeId() + ")");
-                        }
+
+                    List<User> approved = new ArrayList<>();
+                    for (User user : roster) {
+                        if (user.isApproved()) approved.add(user);
                     }
+                    allPagesLoaded = true;
+                    addEmployees(approved);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Directory index unavailable, paging users", e);
+                    if (binding == null) return;
+                    binding.progressBar.setVisibility(View.GONE);
+                    loadNextEmployeePage();
+                });
+    }
+
+    private void addEmployees(List<User> users) {
+        for (User user : directory.addPage(users)) {
+            monthIndex.addEmployee(matrixKey(user));
+            matrixLabels.add(user.getName());
+        }
+        binding.matrixAttendance.notifyDataChanged();
+        updateMatrixSummary();
+    }
 
-                    setupSpinner(employeeNames);
+    /**
+     * Loads the next page of approved employees (by name), instead of the whole staff at once.
+     * Each page becomes searchable and adds its rows to the matrix. Used when there is no directory index.
+     */
+    private void loadNextEmployeePage() {
+        if (!scopeLoaded || pageLoading || allPagesLoaded) return;
+        pageLoading = true;
+        binding.progressBar.setVisibility(View.VISIBLE);
+
+        Query query = employeeQuery().orderBy("name").limit(PAGE_SIZE);
+        if (lastPageDoc != null) {
+            query = query.startAfter(lastPageDoc);
+        }
+
+        FirestoreMeter.track("users", query.get())
+                .addOnSuccessListener(queryDocumentSnapshots -> {
+                    pageLoading = false;
+                    if (binding == null) return;
+                    binding.progressBar.setVisibility(View.GONE);
+
+                    List<User> page = toUsers(queryDocumentSnapshots.getDocuments());
+                    if (!queryDocumentSnapshots.isEmpty()) {
+                        lastPageDoc = queryDocumentSnapshots.getDocuments().get(queryDocumentSnapshots.size() - 1);
+                    }
+                    allPagesLoaded = queryDocumentSnapshots.size() < PAGE_SIZE;
+                    addEmployees(page);
                 })
                 .addOnFailureListener(e -> {
+                    pageLoading = false;
+                    if (binding == null) return;
                     binding.progressBar.setVisibility(View.GONE);
+                    Log.e(TAG, "Error loading employees", e);
                     Toast.makeText(getContext(), "Error loading employees", Toast.LENGTH_SHORT).show();
                 });
     }
 
+    private Query employeeQuery() {
+        return AdminScope.scope(db.collection("users")
+                .whereEqualTo("role", "employee")
+                .whereEqualTo("approved", true), branchId);
+    }
+
+    private static List<User> toUsers(List<DocumentSnapshot> docs) {
+        List<User> users = new ArrayList<>();
+        for (DocumentSnapshot doc : docs) {
+            User user = doc.toObject(User.class);
+            if (user != null) {
+                user.setUid(doc.getId()); // Ensure UID is preserved
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
     /**
-     * Sets up the dropdown menu.
-     * When a name is selected, it triggers the Pop-Up Window.
+     * Search box with suggestions from the local prefix index.
+     * When the loaded pages do not have enough matches, a debounced prefix query on name and
+     * employee ID fetches the rest from Firestore (limited, so nothing close to the full staff list).
      */
-    private void setupSpinner(List<String> names) {
-        ArrayAdapter<String> spinnerAdapter = new ArrayAdapter<>(requireContext(), 
-                android.R.layout.simple_spinner_item, names);
-        spinnerAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
-        binding.spinnerEmployees.setAdapter(spinnerAdapter);
+    private void setupSearch() {
+        suggestionAdapter = new EmployeeSuggestionAdapter(requireContext(), directory);
+        binding.actEmployeeSearch.setAdapter(suggestionAdapter);
+        binding.actEmployeeSearch.setThreshold(1);
+
+        binding.actEmployeeSearch.setOnItemClickListener((parent, v, position, id) -> {
+            User selectedUser = suggestionAdapter.getItem(position);
+            // Clear the box so the next search starts fresh when the dialog is closed
+            binding.actEmployeeSearch.setText("");
+            openAttendanceProfileDialog(selectedUser);
+        });
+
+        binding.actEmployeeSearch.addTextChangedListener(new TextWatcher() {
+            @Override public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+            @Override public void onTextChanged(CharSequence s, int start, int before, int count) {}
 
-        binding.spinnerEmployees.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
             @Override
-            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
-                if (position > 0) {
-                    // Position 0 is the hint "Select an Employee"
-                    // Get the User object for the selected person
-                    User selectedUser = employees.get(position - 1);
-                    
-                    // NEW LOGIC: Launch the pop-up profile window
-                    openAttendanceProfileDialog(selectedUser);
-                    
-                    // Reset spinner so the same person can be selected again if the dialog is closed
-                    binding.spinnerEmployees.setSelection(0);
+            public void afterTextChanged(Editable s) {
+                searchHandler.removeCallbacks(remoteSearch);
+                if (!allPagesLoaded && s.toString().trim().length() > 0) {
+                    searchHandler.postDelayed(remoteSearch, SEARCH_DEBOUNCE_MS);
                 }
             }
-
-            @Override
-            public void onNothingSelected(AdapterView<?> parent) {}
         });
     }
 
+    private final Runnable remoteSearch = () -> {
+        if (binding == null) return;
+        String text = binding.actEmployeeSearch.getText().toString().trim();
+        if (text.isEmpty() || directory.search(text, REMOTE_SEARCH_LIMIT).size() >= REMOTE_SEARCH_LIMIT) return;
+
+        // Firestore prefix match: [prefix, prefix + \uf8ff], on the name field as a whole. Names are matched
+        // title-cased ("josy v" -> "Josy V"), and as typed for one word; IDs upper-cased (e.g. "emp01" -> "EMP01")
+        // and only for one word, since an ID has no spaces. The hits are filtered by every word locally.
+        List<String> words = EmployeeDirectory.words(text);
+        StringBuilder titled = new StringBuilder();
+        for (String word : words) {
+            if (titled.length() > 0) titled.append(' ');
+            titled.append(Character.toUpperCase(word.charAt(0))).append(word.substring(1));
+        }
+        List<Task<QuerySnapshot>> queries = new ArrayList<>();
+        queries.add(prefixQuery("name", titled.toString()));
+        if (words.size() == 1) {
+            if (!titled.toString().equals(text)) queries.add(prefixQuery("name", text));
+            queries.add(prefixQuery("employeeId", text.toUpperCase(Locale.US)));
+        }
+
+        Tasks.whenAllSuccess(queries).addOnSuccessListener(results -> {
+            if (binding == null) return;
+            for (Object result : results) {
+                directory.addSearchResults(toUsers(((QuerySnapshot) result).getDocuments()));
+            }
+            // Re-run the filter so the new matches show up in the open dropdown
+            if (text.equals(binding.actEmployeeSearch.getText().toString().trim())) {
+                suggestionAdapter.getFilter().filter(binding.actEmployeeSearch.getText());
+            }
+        }).addOnFailureListener(e -> Log.e(TAG, "Employee search failed", e));
+    };
+
+    private Task<QuerySnapshot> prefixQuery(String field, String prefix) {
+        return FirestoreMeter.track("users", employeeQuery()
+                .orderBy(field)
+                .startAt(prefix)
+                .endAt(prefix + "\uf8ff")
+                .limit(REMOTE_SEARCH_LIMIT)
+                .get());
+    }
+
+    /**
+     * Matrix rows follow the page order. Tapping a row opens that employee's profile;
+     * reaching the last rows loads the next page.
+     */
+    private void setupMatrix() {
+        binding.matrixAttendance.setData(monthIndex, matrixLabels);
+        binding.matrixAttendance.setOnRowClickListener(row -> openAttendanceProfileDialog(directory.getPaged(row)));
+        binding.matrixAttendance.setOnNearEndListener(this::loadNextEmployeePage);
+    }
+
+    private static String matrixKey(User user) {
+        // Employees without an ID yet still get their own (empty) row
+        return user.getEmployeeId() != null ? user.getEmployeeId() : "uid:" + user.getUid();
+    }
+
+    /**
+     * One range query on "date" for the month (of the whole company, or of the branch). Only changed documents are
+     * re-indexed on each snapshot.
+     */
+    private void listenToMonth() {
+        if (monthListener != null) monthListener.remove();
+
+        monthListener = AdminScope.scope(db.collection("attendance"), branchId)
+                .whereGreaterThanOrEqualTo("date", monthIndex.getFirstDateId())
+                .whereLessThanOrEqualTo("date", monthIndex.getLastDateId())
+                .addSnapshotListener((value, error) -> {
+                    FirestoreMeter.onListen("attendance", value);
+                    if (binding == null) return;
+                    if (error != null) {
+                        Log.e(TAG, "Error listening for month attendance", error);
+                        binding.tvMatrixSummary.setText("Could not load company attendance.");
+                        return;
+                    }
+                    if (value == null) return;
+
+                    for (DocumentChange change : value.getDocumentChanges()) {
+                        DocumentSnapshot doc = change.getDocument();
+                        if (change.getType() == DocumentChange.Type.REMOVED) {
+                            monthIndex.remove(doc.getString("employeeId"), doc.getString("date"));
+                        } else {
+                            AttendanceRecord record = doc.toObject(AttendanceRecord.class);
+                            if (record != null) monthIndex.add(record);
+                        }
+                    }
+
+                    binding.matrixAttendance.notifyDataChanged();
+                    updateMatrixSummary();
+                });
+    }
+
+    private void updateMatrixSummary() {
+        if (monthIndex == null) return;
+        int today = monthIndex.getLastElapsedDay();
+        int total = monthIndex.getEmployeeCount();
+        if (today < 1 || total == 0) {
+            binding.tvMatrixSummary.setText("No attendance this month yet.");
+            return;
+        }
+
+        StringBuilder summary = new StringBuilder("Today: ")
+                .append(monthIndex.getAttendedCount(today)).append(" of ").append(total)
+                .append(allPagesLoaded ? "" : "+").append(" checked in");
+        if (today >= 2) {
+            // Bitwise query on the per-day sets
+            int absentTwice = monthIndex.absentOnAll(today - 1, today).cardinality();
+            summary.append(" • Absent yesterday and today: ").append(absentTwice);
+        }
+        binding.tvMatrixSummary.setText(summary.toString());
+    }
+
     /**
      * This method initializes and displays the new CV-style Attendance Profile window.
      * @param user The employee whose attendance is being viewed.
@@ -130,6 +362,11 @@ public class AdminAttendanceFragment extends Fragment {
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        searchHandler.removeCallbacks(remoteSearch);
+        if (monthListener != null) {
+            monthListener.remove();
+            monthListener = null;
+        }
         binding = null;
     }
 }
\ No newline at end of file
@@ -1,9 +1,15 @@
 package com.inout.app;
 
+import android.app.AlertDialog;
 import android.content.Intent;
 import android.os.Bundle;
+import android.text.InputType;
 import android.view.Menu;
 import android.view.MenuItem; 
+import android.widget.EditText;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
@@ -17,7 +23,22 @@ import com.google.android.gms.auth.api.signin.GoogleSignInClient;
 import com.google.android.gms.auth.api.signin.GoogleSignInOptions;
 import com.google.firebase.auth.FirebaseAuth;
 import com.inout.app.databinding.ActivityAdminDashboardBinding;
+import com.inout.app.utils.AttendanceIdMigration;
 import com.inout.app.utils.EncryptionHelper;
+import com.inout.app.utils.FirebaseManager;
+import com.inout.app.utils.JobHistory;
+import com.inout.app.utils.LocalMirror;
+import com.inout.app.utils.MaintenanceJobs;
+import com.inout.app.utils.MirrorSync;
+import com.inout.app.utils.MonthArchiver;
+import com.inout.app.utils.QuotaGovernor;
+import com.inout.app.utils.ShareCache;
+import com.inout.app.utils.StartupPipeline;
+import com.inout.app.utils.TenantConfig;
+
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.Locale;
 
 public class AdminDashboardActivity extends AppCompatActivity {
 
@@ -26,12 +47,23 @@ public class AdminDashboardActivity extends AppCompatActivity {
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
+        StartupPipeline pipeline = StartupPipeline.getInstance(this);
+        // Restored fragments query Firestore as soon as they are attached: restore them only when
+        // Firebase is already up (the normal case), otherwise the dashboard starts fresh once it is
+        super.onCreate(pipeline.isFirebaseReady() ? savedInstanceState : null);
+        // Firebase may still be initializing if this screen was restored without the Splash
+        pipeline.whenFirebaseReady(this, this::setUpDashboard);
+    }
+
+    private void setUpDashboard() {
         binding = ActivityAdminDashboardBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
 
-        mAuth = FirebaseAuth.getInstance();
+        mAuth = FirebaseManager.getAuth();
         setSupportActionBar(binding.toolbar);
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setSubtitle(EncryptionHelper.getInstance(this).getCompanyName());
+        }
 
         // Setup Navigation Component
         NavHostFragment navHostFragment = (NavHostFragment) getSupportFragmentManager()
@@ -43,6 +75,7 @@ public class AdminDashboardActivity extends AppCompatActivity {
             // Define top-level destinations (screens that shouldn't show a 'Back' arrow)
             // IDs must match the menu/bottom_nav_menu.xml and mobile_navigation_admin.xml
             AppBarConfiguration appBarConfiguration = new AppBarConfiguration.Builder(
+                    R.id.nav_admin_overview,
                     R.id.nav_admin_employees, 
                     R.id.nav_admin_attendance, 
                     R.id.nav_admin_locations, 
@@ -52,6 +85,10 @@ public class AdminDashboardActivity extends AppCompatActivity {
             NavigationUI.setupActionBarWithNavController(this, navController, appBarConfiguration);
             NavigationUI.setupWithNavController(binding.navView, navController);
         }
+
+        // Keeps the local mirror (roster, locations) current while the dashboard is open
+        MirrorSync.startAdmin(this, FirebaseManager.getFirestore());
+        MaintenanceJobs.schedule(this);
     }
 
     // Create the top options menu (e.g., Logout)
@@ -70,10 +107,28 @@ public class AdminDashboardActivity extends AppCompatActivity {
         } else if (item.getItemId() == R.id.action_switch_company) {
             switchCompany();
             return true;
+        } else if (item.getItemId() == R.id.action_migrate_attendance_ids) {
+            confirmAttendanceIdMigration();
+            return true;
+        } else if (item.getItemId() == R.id.action_close_month) {
+            confirmMonthClose();
+            return true;
+        } else if (item.getItemId() == R.id.action_job_history) {
+            showJobHistory();
+            return true;
+        } else if (item.getItemId() == R.id.action_quota_budgets) {
+            showQuotaBudgets();
+            return true;
         }
         return super.onOptionsItemSelected(item);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        MirrorSync.release(this);
+    }
+
     /**
      * UPDATED: Full Logout Logic.
      * 1. Signs out of Firebase.
@@ -82,6 +137,11 @@ public class AdminDashboardActivity extends AppCompatActivity {
      * 4. Returns to the absolute landing page (Splash/Role Selection).
      */
     private void logout() {
+        // Company data must not outlive the session on this device
+        MirrorSync.stop();
+        LocalMirror.deleteAll(this);
+        MaintenanceJobs.cancel(this);
+
         // 1. Sign out from Firebase
         mAuth.signOut();
         
@@ -104,13 +164,213 @@ public class AdminDashboardActivity extends AppCompatActivity {
         });
     }
 
+    /**
+     * Moves legacy attendance documents (EMP001_2026-01-22) to hash-prefixed IDs.
+     * Employees' apps read both formats meanwhile, so this can run at any time outside shift start.
+     */
+    private void confirmAttendanceIdMigration() {
+        new AlertDialog.Builder(this)
+                .setTitle("Migrate Attendance IDs")
+                .setMessage("Moves every attendance record of " + EncryptionHelper.getInstance(this).getCompanyName()
+                        + " to the new ID format. Keep the app open until it finishes.")
+                .setPositiveButton("Start", (d, w) -> runAttendanceIdMigration())
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void runAttendanceIdMigration() {
+        final AlertDialog progress = new AlertDialog.Builder(this)
+                .setTitle("Migrating Attendance IDs")
+                .setMessage("Starting...")
+                .setCancelable(false)
+                .show();
+
+        AttendanceIdMigration.run(FirebaseManager.getFirestore(), new AttendanceIdMigration.Listener() {
+            @Override
+            public void onProgress(int scanned, int moved) {
+                progress.setMessage("Checked " + scanned + " records, moved " + moved + "...");
+            }
+
+            @Override
+            public void onComplete(int scanned, int moved) {
+                progress.dismiss();
+                Toast.makeText(AdminDashboardActivity.this, "Done: moved " + moved + " of " + scanned + " records.", Toast.LENGTH_LONG).show();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                progress.dismiss();
+                // Moved records stay moved; running it again continues with the rest
+                Toast.makeText(AdminDashboardActivity.this, "Migration stopped: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    /**
+     * NEW: Archives last month into one MonthArchive per employee.
+     * "Archive & Purge" also deletes the daily records once they are archived.
+     */
+    private void confirmMonthClose() {
+        final String month = MonthArchiver.previousMonth();
+        if (!MonthArchiver.isClosed(month)) {
+            // Auto-close and offline check-outs for the last days of the month land first
+            String from = new SimpleDateFormat("dd MMM", Locale.US).format(MonthArchiver.closesAt(month).getTime());
+            Toast.makeText(this, month + " can be closed from " + from + ".", Toast.LENGTH_LONG).show();
+            return;
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Close " + month)
+                .setMessage("Stores each employee's " + month + " attendance as one archive document, "
+                        + "so monthly reports read one document instead of one per day. "
+                        + "Purging also deletes the daily records afterwards. Keep the app open until it finishes.")
+                .setPositiveButton("Archive", (d, w) -> runMonthClose(month, false))
+                .setNeutralButton("Archive & Purge", (d, w) -> runMonthClose(month, true))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void runMonthClose(String month, boolean purge) {
+        final AlertDialog progress = new AlertDialog.Builder(this)
+                .setTitle("Closing " + month)
+                .setMessage("Starting...")
+                .setCancelable(false)
+                .show();
+
+        MonthArchiver.closeMonth(FirebaseManager.getFirestore(), month, purge, new MonthArchiver.Listener() {
+            @Override
+            public void onProgress(int employees, int archived) {
+                progress.setMessage("Checked " + employees + " employees, archived " + archived + "...");
+            }
+
+            @Override
+            public void onComplete(int employees, int archived, int purgedRecords) {
+                progress.dismiss();
+                String msg = "Done: archived " + archived + " of " + employees + " employees";
+                if (purge) msg += ", purged " + purgedRecords + " daily records";
+                Toast.makeText(AdminDashboardActivity.this, msg + ".", Toast.LENGTH_LONG).show();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                progress.dismiss();
+                // Archives written so far are kept; running it again merges and continues
+                Toast.makeText(AdminDashboardActivity.this, "Month close stopped: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    /**
+     * NEW: Run history (time, result, duration) of the background maintenance jobs on this device,
+     * after the share cache usage per area.
+     */
+    private void showJobHistory() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("share cache\n").append(ShareCache.usageReport(this)).append('\n');
+        for (String job : MaintenanceJobs.ALL) {
+            sb.append(job).append('\n').append(JobHistory.describe(this, job)).append('\n');
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Background Jobs")
+                .setMessage(sb.toString().trim())
+                .setPositiveButton("OK", null)
+                .show();
+    }
+
+    /**
+     * NEW: Today's company usage against the company's budgets, and fields to change them (see QuotaGovernor).
+     * UPDATED: Budgets are saved to quota_usage/budget, so every device uses them.
+     * Check-ins, transits and check-outs are never held back, whatever the budget.
+     */
+    private void showQuotaBudgets() {
+        LinearLayout layout = new LinearLayout(this);
+        layout.setOrientation(LinearLayout.VERTICAL);
+        layout.setPadding(60, 20, 60, 10);
+
+        TextView tvUsage = new TextView(this);
+        tvUsage.setText(QuotaGovernor.describe() + (QuotaGovernor.isDegraded() ? "\nNow: degraded (cache first)" : ""));
+        tvUsage.setPadding(0, 0, 0, 20);
+        layout.addView(tvUsage);
+
+        final EditText etReads = budgetField(layout, "Reads per day", QuotaGovernor.getReadBudget());
+        final EditText etWrites = budgetField(layout, "Writes per day", QuotaGovernor.getWriteBudget());
+        final EditText etThreshold = budgetField(layout, "Degrade at % of budget", QuotaGovernor.getThresholdPercent());
+
+        new AlertDialog.Builder(this)
+                .setTitle("Quota Budgets")
+                .setView(layout)
+                .setPositiveButton("Save", (dialog, which) -> {
+                    try {
+                        saveBudgets(Long.parseLong(etReads.getText().toString().trim()),
+                                Long.parseLong(etWrites.getText().toString().trim()),
+                                Integer.parseInt(etThreshold.getText().toString().trim()));
+                    } catch (NumberFormatException e) {
+                        Toast.makeText(this, "Budgets must be whole numbers", Toast.LENGTH_SHORT).show();
+                    }
+                })
+                .setNeutralButton("Defaults", (dialog, which) -> saveBudgets(
+                        QuotaGovernor.DEFAULT_READ_BUDGET, QuotaGovernor.DEFAULT_WRITE_BUDGET,
+                        QuotaGovernor.DEFAULT_THRESHOLD_PERCENT))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void saveBudgets(long reads, long writes, int percent) {
+        QuotaGovernor.setBudgets(this, reads, writes, percent)
+                .addOnSuccessListener(v -> Toast.makeText(this, "Budgets saved for every device", Toast.LENGTH_SHORT).show())
+                .addOnFailureListener(e ->
+                        Toast.makeText(this, "Could not save budgets: " + e.getMessage(), Toast.LENGTH_LONG).show());
+    }
+
+    private EditText budgetField(LinearLayout layout, String hint, long value) {
+        EditText field = new EditText(this);
+        field.setHint(hint);
+        field.setInputType(InputType.TYPE_CLASS_NUMBER);
+        field.setText(String.valueOf(value));
+        layout.addView(field);
+        return field;
+    }
+
+    /**
+     * Lists every company saved on this device. Picking one switches instantly
+     * (its FirebaseApp and session are kept alive); "Add" goes to the Setup screen.
+     */
     private void switchCompany() {
-        // To switch company, we go back to the Setup screen
-        mAuth.signOut();
-        // Note: For switching company, we might not clear the role, 
-        // just go back to AdminSetupActivity.
-        Intent intent = new Intent(this, AdminSetupActivity.class);
-        intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_NEW_TASK);
+        final List<TenantConfig> tenants = EncryptionHelper.getInstance(this).getTenants();
+        String activeId = FirebaseManager.getActiveProjectId();
+
+        String[] items = new String[tenants.size() + 1];
+        for (int i = 0; i < tenants.size(); i++) {
+            TenantConfig t = tenants.get(i);
+            items[i] = t.getProjectId().equals(activeId) ? t.getCompanyName() + " (current)" : t.getCompanyName();
+        }
+        items[tenants.size()] = "+ Add New Company";
+
+        new AlertDialog.Builder(this)
+                .setTitle("Switch Company")
+                .setItems(items, (dialog, which) -> {
+                    if (which == tenants.size()) {
+                        // Other companies stay signed in; the new one gets its own app and session
+                        startActivity(new Intent(this, AdminSetupActivity.class));
+                    } else {
+                        openCompany(tenants.get(which));
+                    }
+                })
+                .show();
+    }
+
+    private void openCompany(TenantConfig tenant) {
+        if (tenant.getProjectId().equals(FirebaseManager.getActiveProjectId())) return;
+
+        if (!FirebaseManager.switchTenant(this, tenant.getProjectId())) {
+            Toast.makeText(this, "Could not open " + tenant.getCompanyName(), Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        // Already signed in to that company -> straight to its dashboard, otherwise log in once
+        Class<?> next = FirebaseManager.getAuth().getCurrentUser() != null
+                ? AdminDashboardActivity.class : LoginActivity.class;
+        Intent intent = new Intent(this, next);
+        intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
         startActivity(intent);
         finish();
     }
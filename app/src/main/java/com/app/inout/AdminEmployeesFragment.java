@@ -21,26 +21,39 @@ import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
+import com.google.android.material.tabs.TabLayout;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.EventListener;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QuerySnapshot;
 import com.google.firebase.firestore.WriteBatch;
 import com.inout.app.databinding.FragmentAdminEmployeesBinding;
 import com.inout.app.models.User;
 import com.inout.app.models.CompanyConfig;
+import com.inout.app.utils.AdminScope;
+import com.inout.app.utils.DeltaSync;
+import com.inout.app.utils.DirectoryIndex;
+import com.inout.app.utils.FirebaseManager;
+import com.inout.app.utils.FirestoreMeter;
+import com.inout.app.utils.LocalMirror;
+import com.inout.app.utils.QuotaGovernor;
 
 // FIXED: Removed the incorrect import. Adapter is in the same package.
 
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 /**
  * Updated Fragment to handle Multi-Selection, Bulk Deletion, 
  * Individual/Bulk Location Assignment, Traveling Mode, and Shift Timing.
+ * NEW: Staff/Pending tabs, scoped to the admin's branch (see AdminScope).
  */
 public class AdminEmployeesFragment extends Fragment implements EmployeeListAdapter.OnEmployeeActionListener {
 
@@ -50,6 +63,12 @@ public class AdminEmployeesFragment extends Fragment implements EmployeeListAdap
     private EmployeeListAdapter adapter;
     private List<User> employeeList;
     private List<CompanyConfig> locationList; 
+    private ListenerRegistration rosterListener;
+    private boolean indexRebuilt;
+    private String branchId;        // null = company-wide admin
+    private boolean showingPending;
+    private boolean scopeLoaded;
+    private int rosterGeneration;   // Ignores results of a roster load the tab has moved on from
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -60,14 +79,31 @@ public class AdminEmployeesFragment extends Fragment implements EmployeeListAdap
     @Override
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
+        FirestoreMeter.setScreen(getClass().getSimpleName());
 
-        db = FirebaseFirestore.getInstance();
+        db = FirebaseManager.getFirestore();
         employeeList = new ArrayList<>();
         locationList = new ArrayList<>();
         
         setupRecyclerView();
-        listenForEmployees();
+        setupTabs();
         fetchLocations(); 
+
+        // Branch managers only see their branch; resolve the scope before the first query
+        binding.progressBar.setVisibility(View.VISIBLE);
+        AdminScope.loadBranch(db)
+                .addOnSuccessListener(branch -> {
+                    if (binding == null) return;
+                    branchId = branch;
+                    scopeLoaded = true;
+                    listenForEmployees();
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Could not load admin scope", e);
+                    if (binding == null) return;
+                    binding.progressBar.setVisibility(View.GONE);
+                    Toast.makeText(getContext(), "Could not load employees.", Toast.LENGTH_SHORT).show();
+                });
     }
 
     private void setupRecyclerView() {
@@ -77,12 +113,10 @@ public class AdminEmployeesFragment extends Fragment implements EmployeeListAdap
     }
 
     private void fetchLocations() {
-        db.collection("locations").addSnapshotListener((value, error) -> {
-            if (error != null) {
-                Log.e(TAG, "Failed to fetch locations", error);
-                return;
-            }
-            if (value != null) {
+        Query locations = db.collection("locations");
+        DeltaSync.load(requireContext(), db, "locations", "locations", locations, locations, new DeltaSync.Listener() {
+            @Override
+            public void onResult(QuerySnapshot value, boolean synced) {
                 locationList.clear();
                 for (DocumentSnapshot doc : value) {
                     CompanyConfig loc = doc.toObject(CompanyConfig.class);
@@ -92,38 +126,216 @@ public class AdminEmployeesFragment extends Fragment implements EmployeeListAdap
                     }
                 }
             }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Failed to fetch locations", e);
+            }
         });
     }
 
+    /**
+     * Staff / Pending tabs. Each tab is its own server-side query; switching tabs swaps the listener.
+     */
+    private void setupTabs() {
+        binding.tabLayoutRoster.addTab(binding.tabLayoutRoster.newTab().setText("Staff"));
+        binding.tabLayoutRoster.addTab(binding.tabLayoutRoster.newTab().setText("Pending"));
+        binding.tabLayoutRoster.addOnTabSelectedListener(new TabLayout.OnTabSelectedListener() {
+            @Override
+            public void onTabSelected(TabLayout.Tab tab) {
+                showingPending = tab.getPosition() == 1;
+                adapter.clearSelection();
+                if (scopeLoaded) listenForEmployees();
+            }
+
+            @Override public void onTabUnselected(TabLayout.Tab tab) {}
+            @Override public void onTabReselected(TabLayout.Tab tab) {}
+        });
+    }
+
+    /**
+     * UPDATED: Scoped, indexed roster queries.
+     * 1. Pending tab: role == employee && approved == false (new accounts have no branch yet).
+     * 2. Staff tab, branch manager: approved employees of their branch only.
+     * 3. Staff tab, company admin: the directory index (a few shard documents) instead of one read per employee.
+     * UPDATED: 1 and 2 render from the cache and only fetch users changed since the last visit (DeltaSync).
+     * Full user documents are loaded only for the approve dialog.
+     */
     private void listenForEmployees() {
+        if (rosterListener != null) {
+            rosterListener.remove();
+            rosterListener = null;
+        }
+        rosterGeneration++;
+        employeeList.clear();
+        adapter.notifyDataSetChanged();
+        binding.tvEmptyView.setVisibility(View.GONE);
         binding.progressBar.setVisibility(View.VISIBLE);
-        db.collection("users")
+
+        if (!showingPending && branchId == null) {
+            listenToDirectoryIndex();
+            return;
+        }
+
+        Query query = db.collection("users")
                 .whereEqualTo("role", "employee")
+                .whereEqualTo("approved", !showingPending);
+        if (!showingPending) {
+            query = AdminScope.scope(query, branchId);
+        }
+
+        // Pending and branch lists come from the local cache, kept current by a delta sync of 'users'
+        final int generation = rosterGeneration;
+        renderFromMirror(generation);
+        DeltaSync.load(requireContext(), db, "users", "users", db.collection("users"), query, new DeltaSync.Listener() {
+            @Override
+            public void onResult(QuerySnapshot value, boolean synced) {
+                if (binding == null || generation != rosterGeneration) return; // Tab switched meanwhile
+                if (!synced && value.isEmpty()) return; // Nothing cached yet: keep the spinner
+                if (synced) binding.progressBar.setVisibility(View.GONE);
+                employeeList.clear();
+                for (DocumentSnapshot doc : value) {
+                    User user = doc.toObject(User.class);
+                    if (user != null) {
+                        user.setUid(doc.getId());
+                        employeeList.add(user);
+                    }
+                }
+                showRoster();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Roster load failed.", e);
+                if (binding == null || generation != rosterGeneration) return;
+                binding.progressBar.setVisibility(View.GONE);
+            }
+        });
+    }
+
+    /**
+     * NEW: First paint of the pending/branch list from the local SQLite mirror (see MirrorSync),
+     * indexed by (approved, role). Skipped once Firestore has filled the list.
+     */
+    private void renderFromMirror(int generation) {
+        final boolean pending = showingPending;
+        final String branch = pending ? null : branchId;
+        final LocalMirror mirror = LocalMirror.get(requireContext());
+        LocalMirror.read(() -> mirror.users("employee", !pending, branch), users -> {
+            if (binding == null || generation != rosterGeneration || !employeeList.isEmpty()) return;
+            if (users == null || users.isEmpty()) return;
+            employeeList.addAll(users);
+            showRoster();
+        });
+    }
+
+    /**
+     * NEW: The live index listener is non-essential. While QuotaGovernor is degraded the index is read
+     * once (cache first), and a running listener pauses after its next delivery.
+     */
+    private void listenToDirectoryIndex() {
+        if (QuotaGovernor.isDegraded()) {
+            loadDirectoryIndexOnce();
+            return;
+        }
+        rosterListener = db.collection(DirectoryIndex.COLLECTION)
                 .addSnapshotListener(new EventListener<QuerySnapshot>() {
                     @Override
                     public void onEvent(@Nullable QuerySnapshot value, @Nullable FirebaseFirestoreException error) {
-                        binding.progressBar.setVisibility(View.GONE);
+                        FirestoreMeter.onListen(DirectoryIndex.COLLECTION, value);
+                        if (binding == null) return;
                         if (error != null) {
+                            binding.progressBar.setVisibility(View.GONE);
                             Log.e(TAG, "Listen failed.", error);
                             return;
                         }
 
                         if (value != null) {
-                            employeeList.clear();
-                            for (DocumentSnapshot doc : value) {
-                                User user = doc.toObject(User.class);
-                                if (user != null) {
-                                    user.setUid(doc.getId());
-                                    employeeList.add(user);
-                                }
+                            if (!DirectoryIndex.isBuilt(value)) {
+                                // Not built yet (first run after the update), possibly holding only entries
+                                // of registrations since: backfill once from 'users'. The listener fires
+                                // again when the shards are written.
+                                if (!value.getMetadata().isFromCache()) rebuildIndex();
+                                return;
                             }
-                            adapter.notifyDataSetChanged();
-                            binding.tvEmptyView.setVisibility(employeeList.isEmpty() ? View.VISIBLE : View.GONE);
+                            showIndex(value);
+                            if (QuotaGovernor.isDegraded()) pauseRosterListener();
                         }
                     }
                 });
     }
 
+    private void loadDirectoryIndexOnce() {
+        final int generation = rosterGeneration;
+        FirestoreMeter.track(DirectoryIndex.COLLECTION, QuotaGovernor.cacheFirst(db.collection(DirectoryIndex.COLLECTION)))
+                .addOnSuccessListener(value -> {
+                    if (binding == null || generation != rosterGeneration) return;
+                    if (!DirectoryIndex.isBuilt(value)) {
+                        rebuildIndex(); // A partial index would hide employees, even while degraded
+                        return;
+                    }
+                    showIndex(value);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Directory index load failed", e);
+                    if (binding == null || generation != rosterGeneration) return;
+                    binding.progressBar.setVisibility(View.GONE);
+                });
+    }
+
+    private void pauseRosterListener() {
+        if (rosterListener == null) return;
+        rosterListener.remove();
+        rosterListener = null;
+        Toast.makeText(getContext(), "Live roster updates paused: daily Firestore quota nearly used.",
+                Toast.LENGTH_LONG).show();
+    }
+
+    private void showIndex(QuerySnapshot value) {
+        binding.progressBar.setVisibility(View.GONE);
+        employeeList.clear();
+        for (User user : DirectoryIndex.fromShards(value)) {
+            if (user.isApproved()) employeeList.add(user);
+        }
+        showRoster();
+    }
+
+    private void showRoster() {
+        adapter.notifyDataSetChanged();
+        binding.tvEmptyView.setText(showingPending ? "No pending registrations" : "No employees found");
+        binding.tvEmptyView.setVisibility(employeeList.isEmpty() ? View.VISIBLE : View.GONE);
+    }
+
+    /**
+     * Cache-backed lists do not update on their own: reload after our own writes.
+     * The directory index is a live listener and needs nothing, unless it is paused (QuotaGovernor).
+     */
+    private void refreshRoster() {
+        if (binding == null || !scopeLoaded) return;
+        if (showingPending || branchId != null || rosterListener == null) listenForEmployees();
+    }
+
+    private void rebuildIndex() {
+        if (indexRebuilt) return;
+        indexRebuilt = true;
+        final int generation = rosterGeneration;
+        DirectoryIndex.rebuild(db).addOnSuccessListener(users -> {
+            // The live listener shows the new shards by itself; the one-shot (degraded) load does not
+            if (binding == null || generation != rosterGeneration || rosterListener != null) return;
+            binding.progressBar.setVisibility(View.GONE);
+            employeeList.clear();
+            for (User user : users) {
+                if (user.isApproved()) employeeList.add(user);
+            }
+            showRoster();
+        }).addOnFailureListener(e -> {
+            Log.e(TAG, "Directory index rebuild failed", e);
+            if (binding == null) return;
+            binding.progressBar.setVisibility(View.GONE);
+            Toast.makeText(getContext(), "Could not load employees.", Toast.LENGTH_SHORT).show();
+        });
+    }
+
     /**
      * Handles individual "Approve" button on the employee card.
      */
@@ -133,7 +345,19 @@ public class AdminEmployeesFragment extends Fragment implements EmployeeListAdap
             Toast.makeText(getContext(), "Please add an Office Location first!", Toast.LENGTH_LONG).show();
             return;
         }
-        showIndividualApproveDialog(user);
+        // The roster entry has no shift/travel settings: load the full document to pre-fill the dialog
+        FirestoreMeter.track("users", db.collection("users").document(user.getUid()).get())
+                .addOnSuccessListener(doc -> {
+                    if (binding == null) return;
+                    User fullUser = doc.toObject(User.class);
+                    if (fullUser == null) {
+                        Toast.makeText(getContext(), "Employee not found.", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    fullUser.setUid(doc.getId());
+                    showIndividualApproveDialog(fullUser);
+                })
+                .addOnFailureListener(e -> Toast.makeText(getContext(), "Network Error. Please try again.", Toast.LENGTH_SHORT).show());
     }
 
     private void showIndividualApproveDialog(User user) {
@@ -207,15 +431,24 @@ public class AdminEmployeesFragment extends Fragment implements EmployeeListAdap
             
             if (!empId.isEmpty() && selectedIndex >= 0) {
                 String locId = locationList.get(selectedIndex).getId();
-                
-                db.collection("users").document(user.getUid())
-                        .update("approved", true, 
-                                "employeeId", empId, 
-                                "assignedLocationId", locId,
-                                "isTraveling", cbTraveling.isChecked(),
-                                "shiftStartTime", tvStart.getText().toString(),
-                                "shiftEndTime", tvEnd.getText().toString())
-                        .addOnSuccessListener(aVoid -> Toast.makeText(getContext(), "User Updated Successfully!", Toast.LENGTH_SHORT).show());
+
+                Map<String, Object> updates = new HashMap<>();
+                updates.put("approved", true);
+                updates.put("employeeId", empId);
+                updates.put("assignedLocationId", locId);
+                updates.put("isTraveling", cbTraveling.isChecked());
+                updates.put("shiftStartTime", tvStart.getText().toString());
+                updates.put("shiftEndTime", tvEnd.getText().toString());
+
+                WriteBatch batch = db.batch();
+                batch.update(db.collection("users").document(user.getUid()), DeltaSync.stamp(updates));
+                DirectoryIndex.update(batch, db, user.getUid(), updates);
+                batch.commit()
+                        .addOnSuccessListener(aVoid -> {
+                            FirestoreMeter.onWrite("users", 2);
+                            Toast.makeText(getContext(), "User Updated Successfully!", Toast.LENGTH_SHORT).show();
+                            refreshRoster();
+                        });
             } else {
                 Toast.makeText(getContext(), "ID and Location required!", Toast.LENGTH_SHORT).show();
             }
@@ -241,8 +474,16 @@ public class AdminEmployeesFragment extends Fragment implements EmployeeListAdap
                 .setTitle("Remove Employee")
                 .setMessage("Delete " + user.getName() + "? This cannot be undone.")
                 .setPositiveButton("Delete", (dialog, which) -> {
-                    db.collection("users").document(user.getUid()).delete()
-                            .addOnSuccessListener(aVoid -> Toast.makeText(getContext(), "Employee removed.", Toast.LENGTH_SHORT).show());
+                    WriteBatch batch = db.batch();
+                    batch.delete(db.collection("users").document(user.getUid()));
+                    DeltaSync.tombstone(batch, db, "users", user.getUid());
+                    DirectoryIndex.remove(batch, db, user.getUid());
+                    batch.commit()
+                            .addOnSuccessListener(aVoid -> {
+                                FirestoreMeter.onWrite("users", 3);
+                                Toast.makeText(getContext(), "Employee removed.", Toast.LENGTH_SHORT).show();
+                                refreshRoster();
+                            });
                 }).setNegativeButton("Cancel", null).show();
     }
 
@@ -277,10 +518,14 @@ public class AdminEmployeesFragment extends Fragment implements EmployeeListAdap
         WriteBatch batch = db.batch();
         for (User user : selectedUsers) {
             batch.delete(db.collection("users").document(user.getUid()));
+            DeltaSync.tombstone(batch, db, "users", user.getUid());
+            DirectoryIndex.remove(batch, db, user.getUid());
         }
         batch.commit().addOnSuccessListener(aVoid -> {
+            FirestoreMeter.onWrite("users", 3 * selectedUsers.size());
             Toast.makeText(getContext(), "Selected employees removed.", Toast.LENGTH_SHORT).show();
             adapter.clearSelection();
+            refreshRoster();
         });
     }
 
@@ -349,19 +594,25 @@ public class AdminEmployeesFragment extends Fragment implements EmployeeListAdap
     }
 
     private void performBulkAssignment(List<User> selectedUsers, String locId, boolean isTraveling, String start, String end) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("assignedLocationId", locId);
+        updates.put("approved", true);
+        updates.put("isTraveling", isTraveling);
+        updates.put("shiftStartTime", start);
+        updates.put("shiftEndTime", end);
+        DeltaSync.stamp(updates);
+
         WriteBatch batch = db.batch();
         for (User user : selectedUsers) {
-            batch.update(db.collection("users").document(user.getUid()), 
-                    "assignedLocationId", locId,
-                    "approved", true,
-                    "isTraveling", isTraveling,
-                    "shiftStartTime", start,
-                    "shiftEndTime", end);
+            batch.update(db.collection("users").document(user.getUid()), updates);
+            DirectoryIndex.update(batch, db, user.getUid(), updates);
         }
         
         batch.commit().addOnSuccessListener(aVoid -> {
+            FirestoreMeter.onWrite("users", 2 * selectedUsers.size());
             Toast.makeText(getContext(), "Bulk assignment successful.", Toast.LENGTH_SHORT).show();
             adapter.clearSelection();
+            refreshRoster();
         }).addOnFailureListener(e -> {
             Toast.makeText(getContext(), "Bulk update failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
         });
@@ -370,6 +621,10 @@ public class AdminEmployeesFragment extends Fragment implements EmployeeListAdap
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        if (rosterListener != null) {
+            rosterListener.remove();
+            rosterListener = null;
+        }
         binding = null;
     }
 }
\ No newline at end of file
@@ -21,11 +21,15 @@ import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.EventListener;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QuerySnapshot;
 import com.google.firebase.firestore.WriteBatch;
 import com.inout.app.databinding.FragmentAdminLocationsBinding;
 import com.inout.app.models.CompanyConfig;
+import com.inout.app.utils.DeltaSync;
+import com.inout.app.utils.FirestoreMeter;
 import com.inout.app.utils.LocationHelper;
+import com.inout.app.utils.FirebaseManager;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -58,14 +62,15 @@ public class AdminLocationsFragment extends Fragment implements LocationAdapter.
     @Override
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
+        FirestoreMeter.setScreen(getClass().getSimpleName());
 
-        db = FirebaseFirestore.getInstance();
+        db = FirebaseManager.getFirestore();
         locationHelper = new LocationHelper(requireContext());
         savedLocations = new ArrayList<>();
 
         setupRecyclerView();
         setupClickListeners();
-        listenForLocations();
+        loadLocations();
     }
 
     private void setupRecyclerView() {
@@ -216,9 +221,12 @@ public class AdminLocationsFragment extends Fragment implements LocationAdapter.
         db.collection("locations")
                 .add(config)
                 .addOnSuccessListener(doc -> {
+                    FirestoreMeter.onWrite("locations", 1);
+                    if (binding == null) return;
                     binding.progressBar.setVisibility(View.GONE);
                     Toast.makeText(getContext(), "Location Saved", Toast.LENGTH_SHORT).show();
                     clearInputs();
+                    loadLocations();
                 });
     }
 
@@ -230,22 +238,31 @@ public class AdminLocationsFragment extends Fragment implements LocationAdapter.
         capturedLat = 0; capturedLng = 0;
     }
 
-    private void listenForLocations() {
-        db.collection("locations")
-                .addSnapshotListener((value, error) -> {
-                    if (error != null) return;
-                    if (value != null) {
-                        savedLocations.clear();
-                        for (DocumentSnapshot doc : value) {
-                            CompanyConfig config = doc.toObject(CompanyConfig.class);
-                            if (config != null) {
-                                config.setId(doc.getId());
-                                savedLocations.add(config);
-                            }
-                        }
-                        adapter.notifyDataSetChanged();
+    /**
+     * UPDATED: Renders from the local cache, then fetches only locations changed since the last visit (DeltaSync).
+     */
+    private void loadLocations() {
+        Query locations = db.collection("locations");
+        DeltaSync.load(requireContext(), db, "locations", "locations", locations, locations, new DeltaSync.Listener() {
+            @Override
+            public void onResult(QuerySnapshot value, boolean synced) {
+                if (binding == null) return;
+                savedLocations.clear();
+                for (DocumentSnapshot doc : value) {
+                    CompanyConfig config = doc.toObject(CompanyConfig.class);
+                    if (config != null) {
+                        config.setId(doc.getId());
+                        savedLocations.add(config);
                     }
-                });
+                }
+                adapter.notifyDataSetChanged();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Failed to load locations", e);
+            }
+        });
     }
 
     @Override
@@ -266,12 +283,16 @@ public class AdminLocationsFragment extends Fragment implements LocationAdapter.
         
         for (CompanyConfig loc : selections) {
             batch.delete(db.collection("locations").document(loc.getId()));
+            DeltaSync.tombstone(batch, db, "locations", loc.getId());
         }
 
         batch.commit().addOnSuccessListener(aVoid -> {
+            FirestoreMeter.onWrite("locations", 2 * selections.size());
+            if (binding == null) return;
             binding.progressBar.setVisibility(View.GONE);
             Toast.makeText(getContext(), "Locations deleted successfully.", Toast.LENGTH_SHORT).show();
             adapter.clearSelection();
+            loadLocations();
         }).addOnFailureListener(e -> {
             binding.progressBar.setVisibility(View.GONE);
             Toast.makeText(getContext(), "Error: " + e.getMessage(), Toast.LENGTH_SHORT).show();
@@ -0,0 +1,207 @@
+package com.inout.app;
+
+import android.os.Bundle;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.AggregateField;
+import com.google.firebase.firestore.AggregateQuery;
+import com.google.firebase.firestore.AggregateQuerySnapshot;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.inout.app.databinding.FragmentAdminOverviewBinding;
+import com.inout.app.utils.AdminScope;
+import com.inout.app.utils.FirebaseManager;
+import com.inout.app.utils.FirestoreMeter;
+import com.inout.app.utils.PresenceCounter;
+import com.inout.app.utils.QuotaGovernor;
+import com.inout.app.utils.TimeUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Admin dashboard tiles.
+ * Every number is a server-side count() or sum() aggregation: one aggregation read per tile
+ * (billed per 1000 index entries) instead of downloading the documents.
+ * Attendance tiles follow the admin's branch scope (see AdminScope).
+ * NEW: Live presence tiles summed from the sharded PresenceCounter.
+ */
+public class AdminOverviewFragment extends Fragment {
+
+    private static final String TAG = "AdminOverviewFrag";
+    private FragmentAdminOverviewBinding binding;
+    private FirebaseFirestore db;
+    private String branchId;
+    private PresenceCounter.Totals lastTotals;
+    private final Map<String, String> locationNames = new HashMap<>();
+
+    @Override
+    public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
+        binding = FragmentAdminOverviewBinding.inflate(inflater, container, false);
+        return binding.getRoot();
+    }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        FirestoreMeter.setScreen(getClass().getSimpleName());
+
+        // Hidden diagnostics: Firestore reads/writes per screen and collection
+        binding.tvOverviewSubtitle.setOnLongClickListener(v -> {
+            FirestoreMeterDialog.show(requireActivity());
+            return true;
+        });
+
+        db = FirebaseManager.getFirestore();
+
+        binding.btnRefreshOverview.setOnClickListener(v -> {
+            PresenceCounter.invalidate();
+            loadTiles();
+        });
+        loadLocationNames();
+        loadTiles();
+    }
+
+    private void loadLocationNames() {
+        FirestoreMeter.track("locations", QuotaGovernor.cacheFirst(db.collection("locations"))).addOnSuccessListener(value -> {
+            for (DocumentSnapshot doc : value) {
+                String name = doc.getString("name");
+                locationNames.put(doc.getId(), name != null ? name : doc.getId());
+            }
+            if (binding != null && lastTotals != null) showPresence(lastTotals);
+        });
+    }
+
+    private void loadTiles() {
+        AdminScope.loadBranch(db)
+                .addOnSuccessListener(branchId -> {
+                    if (binding == null) return;
+                    binding.tvOverviewSubtitle.setText(branchId != null
+                            ? "Your branch, counted on the server"
+                            : "Whole company, counted on the server");
+                    this.branchId = branchId;
+                    loadTiles(branchId);
+                    loadPresence();
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Could not load admin scope", e));
+    }
+
+    private void loadTiles(String branchId) {
+        String today = TimeUtils.getCurrentDateId();
+        String monthStart = today.substring(0, 8) + "01";   // "yyyy-MM-01"
+        Query attendance = AdminScope.scope(db.collection("attendance"), branchId);
+
+        // 1. Records are created at check-in, so today's documents = employees who checked in
+        count(binding.tvTilePresentToday, "attendance", attendance.whereEqualTo("date", today).count());
+
+        // 2. New registrations have no branch yet, so this count is company-wide
+        count(binding.tvTilePending, "users", db.collection("users")
+                .whereEqualTo("role", "employee")
+                .whereEqualTo("approved", false)
+                .count());
+
+        // 3. Earlier days of this month that never got a check-out from the employee (today is still in
+        //    progress): still open, or closed by the nightly job. The two sets are disjoint.
+        Query earlierDays = attendance.whereGreaterThanOrEqualTo("date", monthStart).whereLessThan("date", today);
+        count(binding.tvTilePartialMonth, "attendance",
+                earlierDays.whereEqualTo("checkOutTime", null).count(),
+                earlierDays.whereEqualTo("autoClosed", true).count());
+
+        // 4. Sum of the numeric overtimeMinutes written at check-out
+        AggregateField overtime = AggregateField.sum("overtimeMinutes");
+        setLoading(binding.tvTileOvertimeMonth);
+        FirestoreMeter.track("attendance", attendance.whereGreaterThanOrEqualTo("date", monthStart)
+                .whereLessThanOrEqualTo("date", today)
+                .aggregate(overtime)
+                .get(AggregateSource.SERVER))
+                .addOnSuccessListener(snapshot -> {
+                    if (binding == null) return;
+                    Long minutes = snapshot.getLong(overtime);
+                    binding.tvTileOvertimeMonth.setText(TimeUtils.formatMinutes(minutes != null ? minutes : 0));
+                })
+                .addOnFailureListener(e -> showError(binding != null ? binding.tvTileOvertimeMonth : null, e));
+    }
+
+    /**
+     * Live presence from the sharded counters (SHARDS reads, cached for a short while).
+     * Company-wide figures; per-location figures are narrowed to the admin's branch.
+     */
+    private void loadPresence() {
+        setLoading(binding.tvTileInNow);
+        setLoading(binding.tvTileLateToday);
+        PresenceCounter.read(db, TimeUtils.getCurrentDateId())
+                .addOnSuccessListener(totals -> {
+                    if (binding == null) return;
+                    lastTotals = totals;
+                    showPresence(totals);
+                })
+                .addOnFailureListener(e -> {
+                    showError(binding != null ? binding.tvTileInNow : null, e);
+                    if (binding != null) binding.tvTileLateToday.setText("--");
+                });
+    }
+
+    private void showPresence(PresenceCounter.Totals totals) {
+        binding.tvTileInNow.setText(String.format(Locale.US, "%d", totals.checkedIn));
+        binding.tvTileLateToday.setText(String.format(Locale.US, "%d of %d", totals.late, totals.arrivals));
+
+        StringBuilder byLocation = new StringBuilder();
+        for (Map.Entry<String, Long> e : totals.byLocation.entrySet()) {
+            if (e.getValue() <= 0 || (branchId != null && !branchId.equals(e.getKey()))) continue;
+            if (byLocation.length() > 0) byLocation.append(" • ");
+            String name = locationNames.get(e.getKey());
+            byLocation.append(name != null ? name : e.getKey()).append(": ").append(e.getValue());
+        }
+        binding.tvPresenceByLocation.setText(byLocation.length() > 0 ? "Now at " + byLocation : "");
+    }
+
+    /**
+     * Shows the sum of the counts (one read each).
+     */
+    private void count(TextView tile, String collection, AggregateQuery... queries) {
+        setLoading(tile);
+        List<Task<AggregateQuerySnapshot>> counts = new ArrayList<>();
+        for (AggregateQuery query : queries) {
+            counts.add(FirestoreMeter.track(collection, query.get(AggregateSource.SERVER)));
+        }
+        Tasks.whenAllSuccess(counts)
+                .addOnSuccessListener(snapshots -> {
+                    if (binding == null) return;
+                    long total = 0;
+                    for (Object snapshot : snapshots) total += ((AggregateQuerySnapshot) snapshot).getCount();
+                    tile.setText(String.format(Locale.US, "%d", total));
+                })
+                .addOnFailureListener(e -> showError(binding != null ? tile : null, e));
+    }
+
+    private static void setLoading(TextView tile) {
+        tile.setText("…");
+    }
+
+    private static void showError(@Nullable TextView tile, Exception e) {
+        // Usually a missing composite index; the log contains the link to create it
+        Log.e(TAG, "Aggregation failed", e);
+        if (tile != null) tile.setText("--");
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        binding = null;
+    }
+}
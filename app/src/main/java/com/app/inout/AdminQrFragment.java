@@ -23,12 +23,12 @@ import com.journeyapps.barcodescanner.BarcodeEncoder;
 
 import com.inout.app.databinding.FragmentAdminQrBinding;
 import com.inout.app.utils.EncryptionHelper;
+import com.inout.app.utils.ShareCache;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 
 /**
@@ -39,6 +39,7 @@ public class AdminQrFragment extends Fragment {
     private static final String TAG = "AdminQrFragment";
     private FragmentAdminQrBinding binding;
     private Bitmap generatedQrBitmap; 
+    private String generatedPayload;    // What the bitmap encodes; keys the shared image in ShareCache
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -85,6 +86,7 @@ public class AdminQrFragment extends Fragment {
 
             if (encryptedPayload != null) {
                 generatedQrBitmap = encodeAsBitmap(encryptedPayload);
+                generatedPayload = encryptedPayload;
 
                 if (generatedQrBitmap != null) {
                     binding.ivQrCode.setImageBitmap(generatedQrBitmap);
@@ -106,15 +108,10 @@ public class AdminQrFragment extends Fragment {
 
     private void shareQrImage() {
         try {
-            // 1. Create a temporary file in the app's cache
-            File cachePath = new File(requireContext().getCacheDir(), "images");
-            cachePath.mkdirs(); 
-            File newFile = new File(cachePath, "company_qr.png");
-            FileOutputStream stream = new FileOutputStream(newFile);
-
-            // 2. Write the bitmap to the file
-            generatedQrBitmap.compress(Bitmap.CompressFormat.PNG, 100, stream);
-            stream.close();
+            // 1. + 2. UPDATED: The PNG is cached per QR payload; sharing the same QR again reuses it
+            final Bitmap bitmap = generatedQrBitmap;
+            File newFile = ShareCache.obtain(requireContext(), ShareCache.IMAGES, ShareCache.key(generatedPayload),
+                    "company_qr.png", out -> bitmap.compress(Bitmap.CompressFormat.PNG, 100, out));
 
             // 3. Get URI using the authority defined in AndroidManifest.xml
             Uri contentUri = FileProvider.getUriForFile(requireContext(), "com.inout.app.fileprovider", newFile);
@@ -0,0 +1,53 @@
+package com.inout.app.utils;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+
+/**
+ * Which part of the company the signed-in admin manages.
+ *
+ * An admin whose own user document has an assignedLocationId is a branch manager: roster and
+ * attendance queries are filtered server-side to that branch, so reads and memory scale with
+ * the branch instead of the company. Admins without one see the whole company.
+ *
+ * The branch is read once per company and session (one document read).
+ */
+public final class AdminScope {
+
+    private static String cachedKey;     // projectId + "/" + uid the branch was loaded for
+    private static String cachedBranchId;
+
+    private AdminScope() {}
+
+    /**
+     * @return The admin's branch (location ID), or null for company-wide admins.
+     */
+    public static synchronized Task<String> loadBranch(FirebaseFirestore db) {
+        FirebaseUser firebaseUser = FirebaseManager.getAuth().getCurrentUser();
+        if (firebaseUser == null) return Tasks.forResult(null);
+
+        final String key = FirebaseManager.getActiveProjectId() + "/" + firebaseUser.getUid();
+        if (key.equals(cachedKey)) return Tasks.forResult(cachedBranchId);
+
+        return FirestoreMeter.track("users", db.collection("users").document(firebaseUser.getUid()).get())
+                .continueWith(task -> {
+                    String branchId = task.getResult().getString("assignedLocationId");
+                    synchronized (AdminScope.class) {
+                        cachedKey = key;
+                        cachedBranchId = branchId;
+                    }
+                    return branchId;
+                });
+    }
+
+    /**
+     * Adds the branch filter to a query on 'users' or 'attendance' (both carry assignedLocationId).
+     * Needs a composite index per combination of filters used.
+     */
+    public static Query scope(Query query, String branchId) {
+        return branchId != null ? query.whereEqualTo("assignedLocationId", branchId) : query;
+    }
+}
@@ -0,0 +1,100 @@
+package com.inout.app.utils;
+
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, already-decrypted view of the values kept in EncryptionHelper's secure storage.
+ * Built once from EncryptedSharedPreferences and held in memory, so getters on the UI thread
+ * no longer pay a decryption (or google-services JSON parse) per call.
+ */
+public final class AppConfigSnapshot {
+
+    private static final String TAG = "AppConfigSnapshot";
+    static final String DEFAULT_COMPANY_NAME = "Unknown Company";
+
+    static final AppConfigSnapshot EMPTY = new AppConfigSnapshot(null, null, DEFAULT_COMPANY_NAME, null, false,
+            Collections.<String, TenantConfig>emptyMap());
+
+    private final String userRole;
+    private final String firebaseConfig;
+    private final String companyName;
+    private final String projectId;
+    private final boolean setupDone;
+    private final String webClientId;
+    private final Map<String, TenantConfig> tenants;   // every company set up on this device, by projectId
+
+    AppConfigSnapshot(String userRole, String firebaseConfig, String companyName, String projectId, boolean setupDone,
+                      Map<String, TenantConfig> tenants) {
+        this(userRole, firebaseConfig, companyName != null ? companyName : DEFAULT_COMPANY_NAME, projectId, setupDone,
+                extractWebClientId(firebaseConfig), TenantConfig.unmodifiable(tenants));
+    }
+
+    AppConfigSnapshot withUserRole(String role) {
+        return new AppConfigSnapshot(role, firebaseConfig, companyName, projectId, setupDone, webClientId, tenants);
+    }
+
+    private AppConfigSnapshot(String userRole, String firebaseConfig, String companyName, String projectId,
+                              boolean setupDone, String webClientId, Map<String, TenantConfig> tenants) {
+        this.userRole = userRole;
+        this.firebaseConfig = firebaseConfig;
+        this.companyName = companyName;
+        this.projectId = projectId;
+        this.setupDone = setupDone;
+        this.webClientId = webClientId;
+        this.tenants = tenants;
+    }
+
+    public String getUserRole() { return userRole; }
+    public String getFirebaseConfig() { return firebaseConfig; }
+    public String getCompanyName() { return companyName; }
+    public String getProjectId() { return projectId; }
+    public boolean isSetupDone() { return setupDone; }
+    public String getWebClientId() { return webClientId; }
+
+    Map<String, TenantConfig> getTenantMap() { return tenants; }
+
+    public List<TenantConfig> getTenants() { return new ArrayList<>(tenants.values()); }
+
+    public TenantConfig getTenant(String projectId) {
+        return projectId != null ? tenants.get(projectId) : null;
+    }
+
+    public TenantConfig getActiveTenant() { return getTenant(projectId); }
+
+    /**
+     * Extracts the Web Client ID (Type 3) from the Firebase JSON.
+     * This is required for Google Sign-In to work dynamically.
+     */
+    private static String extractWebClientId(String jsonConfig) {
+        if (jsonConfig == null) return null;
+
+        try {
+            JSONObject root = new JSONObject(jsonConfig);
+            JSONArray clientArray = root.getJSONArray("client");
+            if (clientArray.length() > 0) {
+                JSONObject client = clientArray.getJSONObject(0);
+                JSONArray oauthClientArray = client.getJSONArray("oauth_client");
+
+                for (int i = 0; i < oauthClientArray.length(); i++) {
+                    JSONObject oauthClient = oauthClientArray.getJSONObject(i);
+                    int clientType = oauthClient.getInt("client_type");
+                    // Type 3 is the Web Client ID required for requestIdToken
+                    if (clientType == 3) {
+                        return oauthClient.getString("client_id");
+                    }
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error extracting Web Client ID", e);
+        }
+        return null; // Return null if not found
+    }
+}
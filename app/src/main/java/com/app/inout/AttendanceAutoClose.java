@@ -0,0 +1,130 @@
+package com.inout.app.utils;
+
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+import com.inout.app.models.AttendanceEvent;
+import com.inout.app.models.AttendanceRecord;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closes attendance records nobody checked out of, at the end of their assigned shift.
+ *
+ * The check-out goes through the same path as a real one (CHECK_OUT event + guarded transaction,
+ * see AttendanceStateMachine), flagged autoClosed and without position or overtime. A record the
+ * employee closes in the meantime is rejected by the transition check and left alone.
+ *
+ * Indexes: attendance (checkOutTime, employeeId, date) and (checkOutTime, assignedLocationId, date).
+ */
+public final class AttendanceAutoClose {
+
+    private static final String TAG = "AttendanceAutoClose";
+
+    /** A record is only closed this long after its shift end, so late check-outs still go through. */
+    private static final int GRACE_MINUTES = 120;
+    private static final int END_OF_DAY_MINUTES = 23 * 60 + 59;
+    private static final long WRITE_TIMEOUT_SECONDS = 30;
+
+    private AttendanceAutoClose() {}
+
+    /**
+     * Open records of one employee, or of a whole branch/company for admins (branchId null = company).
+     */
+    public static Query openRecords(FirebaseFirestore db, String employeeId, String branchId) {
+        Query query = db.collection("attendance").whereEqualTo("checkOutTime", null);
+        if (employeeId != null) {
+            query = query.whereEqualTo("employeeId", employeeId);
+        } else {
+            query = AdminScope.scope(query, branchId);
+        }
+        return query.whereLessThanOrEqualTo("date", TimeUtils.getCurrentDateId());
+    }
+
+    /**
+     * Blocking; must not run on the main thread.
+     * @return The number of records closed.
+     */
+    static int closeDue(FirebaseFirestore db, Query openRecords) throws Exception {
+        QuerySnapshot open = Tasks.await(FirestoreMeter.track("attendance", openRecords.get(Source.SERVER)));
+        long now = TimeUtils.getCurrentTimestamp();
+        int closed = 0;
+        for (DocumentSnapshot doc : open.getDocuments()) {
+            AttendanceRecord record = doc.toObject(AttendanceRecord.class);
+            if (record == null || record.getCheckInTime() == null) continue;
+            if (record.getRecordId() == null) record.setRecordId(doc.getId());
+
+            long closeAt = closeTimestamp(record);
+            if (closeAt < 0 || now < closeAt + TimeUnit.MINUTES.toMillis(GRACE_MINUTES)) continue;
+
+            try {
+                Tasks.await(close(db, doc.getReference(), record, closeAt), WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                closed++;
+            } catch (Exception e) {
+                if (AttendanceStateMachine.rejectionOf(e) != null) {
+                    continue; // Checked out on a device in the meantime
+                }
+                throw e;
+            }
+        }
+        return closed;
+    }
+
+    private static Task<Void> close(FirebaseFirestore db, DocumentReference ref, AttendanceRecord record, long closeAt) {
+        // The event must sort after everything already folded in, or the projector would skip it
+        final long timestamp = Math.max(closeAt, record.getLastEventTimestamp() + 1);
+
+        final DocumentReference eventRef = AttendanceEventLog.newEventRef(db);
+        final AttendanceEvent event = new AttendanceEvent(eventRef.getId(), AttendanceEvent.CHECK_OUT, record.getRecordId(),
+                record.getEmployeeId(), record.getDate(), timestamp, TimeUtils.formatTime(timestamp));
+        event.setEmployeeName(record.getEmployeeName());
+        event.setLocationId(record.getLastVerifiedLocationId());
+        event.setLocationName(record.getLocationName());
+        event.setAutoClosed(true);
+
+        final DocumentReference counterShard = PresenceCounter.randomShard(db, record.getDate());
+        return AttendanceStateMachine.commit(db, ref, AttendanceStateMachine.Action.CHECK_OUT,
+                record.getLastVerifiedLocationId(), record,
+                current -> AttendanceProjector.applyNew(current, event),
+                (writes, current) -> {
+                    writes.add(AttendanceStateMachine.SideWrite.event(eventRef, event));
+                    writes.add(AttendanceStateMachine.SideWrite.merge(counterShard,
+                            PresenceCounter.onCheckOut(current.getLastVerifiedLocationId())));
+                });
+    }
+
+    /**
+     * Shift end on the record's date ("09:00 AM - 06:00 PM"); end of day when there is no usable shift
+     * (none assigned, or a night shift ending before the check-in).
+     * @return Epoch millis, or -1 if the record's date cannot be parsed.
+     */
+    static long closeTimestamp(AttendanceRecord record) {
+        int checkIn = TimeUtils.minutesOfDay(record.getCheckInTime());
+        int end = -1;
+        String shift = record.getAssignedShift();
+        if (shift != null && shift.contains(" - ")) {
+            end = TimeUtils.minutesOfDay(shift.substring(shift.indexOf(" - ") + 3).trim());
+        }
+        if (end < 0 || end <= checkIn) end = END_OF_DAY_MINUTES;
+
+        try {
+            Date day = new SimpleDateFormat("yyyy-MM-dd", Locale.US).parse(record.getDate());
+            if (day == null) return -1;
+            return day.getTime() + TimeUnit.MINUTES.toMillis(end);
+        } catch (ParseException e) {
+            Log.e(TAG, "Bad record date " + record.getDate(), e);
+            return -1;
+        }
+    }
+}
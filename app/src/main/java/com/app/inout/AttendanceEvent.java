@@ -0,0 +1,120 @@
+package com.inout.app.models;
+
+import com.google.firebase.firestore.IgnoreExtraProperties;
+
+/**
+ * One immutable attendance event (check-in, transit or check-out) in the append-only
+ * 'attendance_events' collection. AttendanceProjector folds a day's events into its AttendanceRecord.
+ *
+ * Events carry everything the projection needs (times, positions, computed overtime), so the
+ * fold never depends on the user's current profile. Ordered by (timestamp, eventId).
+ */
+@IgnoreExtraProperties
+public class AttendanceEvent {
+
+    public static final String COLLECTION = "attendance_events";
+
+    public static final String CHECK_IN = "CHECK_IN";
+    public static final String TRANSIT = "TRANSIT";
+    public static final String CHECK_OUT = "CHECK_OUT";
+
+    private String eventId;
+    private String type;
+    private String recordId;        // Daily document the event folds into
+    private String employeeId;
+    private String employeeName;
+    private String date;            // YYYY-MM-DD
+    private long timestamp;         // Device time of the action (epoch millis)
+    private String time;            // Display time, e.g. "09:30 AM"
+
+    private double lat;
+    private double lng;
+    private String locationId;
+    private String locationName;
+    private float distanceMeters;
+
+    // CHECK_IN only
+    private String assignedLocationId;
+    private String assignedShift;
+    private String startLocationName;   // Traveling mode
+    private boolean fingerprintVerified;
+    private boolean gpsVerified;
+
+    // CHECK_OUT only
+    private int overtimeMinutes;
+    private boolean autoClosed;     // Written by AttendanceAutoClose at shift end, no position
+
+    public AttendanceEvent() {
+        // Default constructor required for Firestore
+    }
+
+    public AttendanceEvent(String eventId, String type, String recordId, String employeeId, String date, long timestamp, String time) {
+        this.eventId = eventId;
+        this.type = type;
+        this.recordId = recordId;
+        this.employeeId = employeeId;
+        this.date = date;
+        this.timestamp = timestamp;
+        this.time = time;
+    }
+
+    public String getEventId() { return eventId; }
+    public void setEventId(String eventId) { this.eventId = eventId; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public String getRecordId() { return recordId; }
+    public void setRecordId(String recordId) { this.recordId = recordId; }
+
+    public String getEmployeeId() { return employeeId; }
+    public void setEmployeeId(String employeeId) { this.employeeId = employeeId; }
+
+    public String getEmployeeName() { return employeeName; }
+    public void setEmployeeName(String employeeName) { this.employeeName = employeeName; }
+
+    public String getDate() { return date; }
+    public void setDate(String date) { this.date = date; }
+
+    public long getTimestamp() { return timestamp; }
+    public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
+
+    public String getTime() { return time; }
+    public void setTime(String time) { this.time = time; }
+
+    public double getLat() { return lat; }
+    public void setLat(double lat) { this.lat = lat; }
+
+    public double getLng() { return lng; }
+    public void setLng(double lng) { this.lng = lng; }
+
+    public String getLocationId() { return locationId; }
+    public void setLocationId(String locationId) { this.locationId = locationId; }
+
+    public String getLocationName() { return locationName; }
+    public void setLocationName(String locationName) { this.locationName = locationName; }
+
+    public float getDistanceMeters() { return distanceMeters; }
+    public void setDistanceMeters(float distanceMeters) { this.distanceMeters = distanceMeters; }
+
+    public String getAssignedLocationId() { return assignedLocationId; }
+    public void setAssignedLocationId(String assignedLocationId) { this.assignedLocationId = assignedLocationId; }
+
+    public String getAssignedShift() { return assignedShift; }
+    public void setAssignedShift(String assignedShift) { this.assignedShift = assignedShift; }
+
+    public String getStartLocationName() { return startLocationName; }
+    public void setStartLocationName(String startLocationName) { this.startLocationName = startLocationName; }
+
+    public boolean isFingerprintVerified() { return fingerprintVerified; }
+    public void setFingerprintVerified(boolean fingerprintVerified) { this.fingerprintVerified = fingerprintVerified; }
+
+    public boolean isGpsVerified() { return gpsVerified; }
+    public void setGpsVerified(boolean gpsVerified) { this.gpsVerified = gpsVerified; }
+
+    public int getOvertimeMinutes() { return overtimeMinutes; }
+    public void setOvertimeMinutes(int overtimeMinutes) { this.overtimeMinutes = overtimeMinutes; }
+
+    public boolean isAutoClosed() { return autoClosed; }
+    public void setAutoClosed(boolean autoClosed) { this.autoClosed = autoClosed; }
+}
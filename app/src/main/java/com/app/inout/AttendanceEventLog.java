@@ -0,0 +1,212 @@
+package com.inout.app.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Source;
+import com.inout.app.models.AttendanceEvent;
+import com.inout.app.models.AttendanceRecord;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Reads and writes of the append-only 'attendance_events' collection.
+ *
+ * 1. Check-in, transit and check-out each append one event, in the same transaction as the
+ *    daily record (which holds the projection, see AttendanceProjector).
+ * 2. Clients that already hold records only listen for events after their newest
+ *    lastEventTimestamp, instead of re-reading whole records.
+ * 3. compact() rebuilds a day's record from the events it accepted (eventIds), then folds in events
+ *    that were queued offline but never reconciled. Events the state machine rejected stay in the log
+ *    but never reach the record. Days of a month that MonthArchiver has archived and purged are never
+ *    rebuilt: their events stay as history, the archive is the record.
+ *
+ * listenAfter() needs a composite index on (employeeId, timestamp); compact() sorts on the client.
+ * Security rules should allow create only: events are never updated or deleted.
+ */
+public final class AttendanceEventLog {
+
+    private static final String TAG = "AttendanceEventLog";
+    private static final String PREFS = "attendance_event_log";
+    private static final String KEY_LAST_COMPACTED = "last_compacted_date";
+
+    public interface Callback {
+        void onEvents(List<AttendanceEvent> events);
+    }
+
+    private AttendanceEventLog() {}
+
+    /**
+     * New event document; create it once per action so a retried transaction rewrites the same event.
+     */
+    public static DocumentReference newEventRef(FirebaseFirestore db) {
+        return db.collection(AttendanceEvent.COLLECTION).document();
+    }
+
+    /**
+     * Listens for the employee's events newer than the cursor, in timestamp order.
+     * Only changes are delivered, so the first snapshot is the backlog and later ones are single events.
+     */
+    public static ListenerRegistration listenAfter(FirebaseFirestore db, String employeeId, long cursorTimestamp, Callback callback) {
+        return db.collection(AttendanceEvent.COLLECTION)
+                .whereEqualTo("employeeId", employeeId)
+                .whereGreaterThan("timestamp", cursorTimestamp)
+                .orderBy("timestamp", Query.Direction.ASCENDING)
+                .addSnapshotListener((value, error) -> {
+                    FirestoreMeter.onListen(AttendanceEvent.COLLECTION, value);
+                    if (error != null) {
+                        Log.e(TAG, "Event listener failed", error);
+                        return;
+                    }
+                    if (value == null) return;
+                    List<AttendanceEvent> events = new ArrayList<>();
+                    for (DocumentChange change : value.getDocumentChanges()) {
+                        if (change.getType() != DocumentChange.Type.ADDED) continue;
+                        AttendanceEvent event = change.getDocument().toObject(AttendanceEvent.class);
+                        if (event.getEventId() == null) event.setEventId(change.getDocument().getId());
+                        events.add(event);
+                    }
+                    if (!events.isEmpty()) callback.onEvents(events);
+                });
+    }
+
+    /**
+     * Re-projects one day's record from the server copy of its events and merges it back.
+     *
+     * 1. Accepted events (the record's eventIds) are folded from scratch. A record written before eventIds
+     *    existed is taken as it is.
+     * 2. Events not accepted yet are applied on top with the live rules: a reconciled-late check-out is
+     *    added, a rejected second check-in is refused again, whatever its device timestamp.
+     * 3. The write is a transaction on the record: if an event was accepted after the events were read,
+     *    nothing is written (the next compaction sees it).
+     *
+     * Days of a purged month are left untouched (the purge would be undone).
+     *
+     * @return The projected record, or null if nothing was written.
+     */
+    public static Task<AttendanceRecord> compact(FirebaseFirestore db, String recordId) {
+        // Events keep the ID they were written with: a record moved by AttendanceIdMigration has some under its legacy ID
+        String legacyId = AttendanceIds.legacyOf(recordId);
+        Query query = AttendanceIds.DUAL_READ && !legacyId.equals(recordId)
+                ? db.collection(AttendanceEvent.COLLECTION).whereIn("recordId", Arrays.asList(recordId, legacyId))
+                : db.collection(AttendanceEvent.COLLECTION).whereEqualTo("recordId", recordId);
+        return FirestoreMeter.track(AttendanceEvent.COLLECTION, query.get(Source.SERVER))
+                .continueWithTask(task -> {
+                    if (!task.isSuccessful()) throw task.getException();
+                    List<AttendanceEvent> events = new ArrayList<>();
+                    for (DocumentSnapshot doc : task.getResult()) {
+                        AttendanceEvent event = doc.toObject(AttendanceEvent.class);
+                        if (event == null) continue;
+                        if (event.getEventId() == null) event.setEventId(doc.getId());
+                        events.add(event);
+                    }
+                    if (events.isEmpty()) return Tasks.forResult(null);
+                    events.sort(AttendanceProjector.ORDER);
+
+                    return purgedMonth(db, events.get(0)).continueWithTask(purged -> {
+                        if (!purged.isSuccessful()) throw purged.getException();
+                        if (purged.getResult()) {
+                            Log.w(TAG, "Not compacting " + recordId + ": its month is archived and purged");
+                            return Tasks.forResult(null);
+                        }
+                        return compactGuarded(db, db.collection("attendance").document(recordId), events);
+                    });
+                });
+    }
+
+    private static Task<AttendanceRecord> compactGuarded(FirebaseFirestore db, DocumentReference ref,
+                                                         List<AttendanceEvent> events) {
+        final boolean[] wrote = {false};
+        return db.runTransaction(transaction -> {
+            wrote[0] = false;
+            DocumentSnapshot snapshot = transaction.get(ref);
+            AttendanceRecord current = snapshot.exists() ? snapshot.toObject(AttendanceRecord.class) : null;
+            AttendanceRecord record = reproject(current, events);
+            if (record == null) return null;
+            record.setRecordId(ref.getId()); // Not the legacy ID of older events
+            transaction.set(ref, record, SetOptions.merge());
+            wrote[0] = true;
+            return record;
+        }).addOnSuccessListener(record -> {
+            FirestoreMeter.onRead("attendance", 1); // The guard's transaction read
+            if (wrote[0]) FirestoreMeter.onWrite("attendance", 1);
+        });
+    }
+
+    /**
+     * @param events All of the day's events, in ORDER.
+     * @return The record to write, or null to leave the current one alone.
+     */
+    private static AttendanceRecord reproject(AttendanceRecord current, List<AttendanceEvent> events) {
+        Set<String> read = new HashSet<>();
+        for (AttendanceEvent event : events) read.add(event.getEventId());
+
+        AttendanceRecord record;
+        Set<String> accepted = new HashSet<>();
+        if (current == null) {
+            record = null;
+        } else if (current.getEventIds() == null) {
+            record = current; // Written before eventIds: trusted as is
+        } else {
+            accepted.addAll(current.getEventIds());
+            if (!read.containsAll(accepted)) return null; // Accepted after our read; compact next time
+            List<AttendanceEvent> folded = new ArrayList<>();
+            for (AttendanceEvent event : events) {
+                if (accepted.contains(event.getEventId())) folded.add(event);
+            }
+            record = AttendanceProjector.project(folded);
+            if (record == null) return null;
+        }
+
+        for (AttendanceEvent event : events) {
+            if (!accepted.contains(event.getEventId())) record = AttendanceProjector.apply(record, event);
+        }
+        return record;
+    }
+
+    /**
+     * Only days of an earlier month can be purged, so the current month costs no read.
+     */
+    private static Task<Boolean> purgedMonth(FirebaseFirestore db, AttendanceEvent event) {
+        String date = event.getDate();
+        if (date == null || date.length() < 7 || event.getEmployeeId() == null) return Tasks.forResult(false);
+        String month = date.substring(0, 7);
+        if (TimeUtils.getCurrentDateId().startsWith(month)) return Tasks.forResult(false);
+        return MonthArchiver.isPurged(db, event.getEmployeeId(), month);
+    }
+
+    /**
+     * Compacts the employee's record for yesterday, at most once per day per device.
+     * Yesterday is final, so its projection will not change again.
+     */
+    public static void compactYesterdayOnce(Context context, FirebaseFirestore db, String employeeId) {
+        SharedPreferences prefs = context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        String today = TimeUtils.getCurrentDateId();
+        if (today.equals(prefs.getString(KEY_LAST_COMPACTED, null))) return;
+
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.DAY_OF_YEAR, -1);
+        String yesterday = new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(cal.getTime());
+
+        compact(db, AttendanceIds.recordId(employeeId, yesterday))
+                .addOnSuccessListener(record -> prefs.edit().putString(KEY_LAST_COMPACTED, today).apply())
+                .addOnFailureListener(e -> Log.e(TAG, "Compaction failed for " + yesterday, e));
+    }
+}
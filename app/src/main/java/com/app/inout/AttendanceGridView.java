@@ -0,0 +1,599 @@
+package com.inout.app.views;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.Bundle;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.AttributeSet;
+import android.util.DisplayMetrics;
+import android.util.LruCache;
+import android.util.SparseArray;
+import android.util.TypedValue;
+import android.view.GestureDetector;
+import android.view.KeyEvent;
+import android.view.LayoutInflater;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.OverScroller;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+import androidx.core.view.ViewCompat;
+import androidx.core.view.accessibility.AccessibilityNodeInfoCompat;
+import androidx.customview.widget.ExploreByTouchHelper;
+
+import com.inout.app.R;
+import com.inout.app.models.AttendanceRecord;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Virtualised 2D attendance table (13 columns x one row per day).
+ * Replaces the HorizontalScrollView + RecyclerView pair, where horizontal scrolling moved the
+ * whole list and the Date column scrolled off-screen.
+ *
+ * - The header row (layout_attendance_table_header) and the Date column stay pinned.
+ * - Rows have a fixed height, so the visible range is computed directly from the scroll offset.
+ * - Only visible cells are drawn. Cell layouts are cached per row in an LRU,
+ *   so rows leaving the screen are recycled instead of kept for the whole year.
+ * - UPDATED: Layouts are never built in onDraw. Scrolling snapshots the strings of the visible rows
+ *   (plus PREFETCH_ROWS either side) on the main thread. The layout thread builds their StaticLayouts
+ *   and the result is swapped in on the main thread. A row whose layouts are not ready yet is drawn
+ *   blank (or with its previous version) for a frame or two.
+ * - NEW: Each visible row is a virtual view for TalkBack (RowAccessibilityHelper), read as one
+ *   sentence: date, status, then the non-empty columns.
+ */
+public class AttendanceGridView extends View {
+
+    // Column widths (dp), in header order. Must stay in sync with layout_attendance_table_header.xml.
+    private static final int[] COLUMN_WIDTHS_DP = {100, 90, 80, 200, 80, 140, 90, 90, 180, 80, 100, 100, 100};
+    private static final int TABLE_WIDTH_DP = 1450;   // Header layout_width
+
+    private static final int COL_DATE = 0;
+    private static final int COL_DAY = 1;
+    private static final int COL_TRANSIT = 3;
+    private static final int COL_SHIFT = 5;
+    private static final int COL_LOCATION = 8;
+    private static final int TEXT_COLUMNS = 10;   // Columns 0..9 are text, 10..12 are icons
+
+    // Spoken before each text cell (header labels, as in layout_attendance_table_header.xml)
+    private static final String[] COLUMN_NAMES = {"Date", "Day", "In", "Transit route", "Out",
+            "Assigned shift", "Total hours", "Overtime", "Work location", "Distance"};
+
+    private static final int PADDING_HORIZONTAL_DP = 4;
+    private static final int PADDING_VERTICAL_DP = 12;
+    private static final int LOCATION_PADDING_START_DP = 8;
+    private static final int ICON_SIZE_DP = 20;
+    private static final int ROW_CACHE_SIZE = 96;   // Rows whose cell layouts are kept (a few screens)
+    private static final int PREFETCH_ROWS = 20;    // Rows prepared above and below the visible range
+
+    // Shared by every grid; StaticLayout building is the only work it does
+    private static final ExecutorService layoutExecutor = Executors.newSingleThreadExecutor();
+
+    private final int[] columnPx = new int[COLUMN_WIDTHS_DP.length];
+    private final int[] columnLeft = new int[COLUMN_WIDTHS_DP.length];
+    private final int tableWidth;
+    private final int locationPaddingStart;
+    private final int iconSize;
+    private final int rowHeight;
+    private final int pinnedRight;   // Right edge of the pinned Date column
+
+    // Never mutated after the constructor, so the layout thread and onDraw can share them
+    private final TextPaint[] paints = new TextPaint[TEXT_COLUMNS];
+    private final TextPaint dimmedPaint;   // Date/Day on absent rows (50% alpha)
+    private final Paint dividerPaint = new Paint();
+    private final SparseArray<Drawable> icons = new SparseArray<>();
+    private final View headerView;
+    private final int headerHeight;
+
+    private final LruCache<AttendanceRecord, CellRow> rowCache = new LruCache<>(ROW_CACHE_SIZE);
+    private final Set<AttendanceRecord> pending = new HashSet<>();   // Rows queued on the layout thread
+    private int generation;   // Bumped by notifyDataChanged(); results for an older list are dropped
+    private List<AttendanceRecord> records = Collections.emptyList();
+
+    private final RowAccessibilityHelper accessibilityHelper;
+    private final OverScroller scroller;
+    private final GestureDetector gestureDetector;
+    private int offsetX;
+    private int offsetY;
+
+    /**
+     * Cell texts of one record version, snapshotted on the main thread, and their layouts once built.
+     * The layout thread only reads texts/absent; record is the cache key and stays on the main thread.
+     */
+    private static final class CellRow {
+        final AttendanceRecord record;
+        final int version;
+        final boolean absent;
+        final String[] texts = new String[TEXT_COLUMNS];
+        StaticLayout[] layouts;   // Set on the main thread when the layout thread is done
+
+        CellRow(AttendanceRecord record) {
+            this.record = record;
+            this.version = record.getDisplayVersion();
+            String status = record.getStatus();
+            this.absent = !"Present".equals(status) && !"Partial".equals(status);
+            for (int c = 0; c < TEXT_COLUMNS; c++) {
+                texts[c] = cellText(record, c);
+            }
+        }
+    }
+
+    public AttendanceGridView(Context context) {
+        this(context, null);
+    }
+
+    public AttendanceGridView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        DisplayMetrics dm = getResources().getDisplayMetrics();
+
+        int left = dp(dm, PADDING_HORIZONTAL_DP);
+        for (int i = 0; i < COLUMN_WIDTHS_DP.length; i++) {
+            columnPx[i] = dp(dm, COLUMN_WIDTHS_DP[i]);
+            columnLeft[i] = left;
+            left += columnPx[i];
+        }
+        tableWidth = dp(dm, TABLE_WIDTH_DP);
+        pinnedRight = columnLeft[COL_DATE] + columnPx[COL_DATE];
+        locationPaddingStart = dp(dm, LOCATION_PADDING_START_DP);
+        iconSize = dp(dm, ICON_SIZE_DP);
+
+        int black = Color.BLACK;
+        int gray = ContextCompat.getColor(context, android.R.color.darker_gray);
+        int green = ContextCompat.getColor(context, R.color.status_green);
+        int red = ContextCompat.getColor(context, R.color.status_red);
+
+        // Same colors/sizes as the old item_attendance_row.xml
+        paints[0] = paint(dm, 13, black, false);   // Date
+        paints[1] = paint(dm, 13, black, false);   // Day
+        paints[2] = paint(dm, 13, green, false);   // In
+        paints[3] = paint(dm, 11, gray, false);    // Transit
+        paints[4] = paint(dm, 13, red, false);     // Out
+        paints[5] = paint(dm, 11, gray, false);    // Shift
+        paints[6] = paint(dm, 13, black, true);    // Total Hours
+        paints[7] = paint(dm, 13, green, true);    // Overtime
+        paints[8] = paint(dm, 13, black, false);   // Location
+        paints[9] = paint(dm, 13, black, false);   // Distance
+        dimmedPaint = paint(dm, 13, black, false);
+        dimmedPaint.setAlpha(128);
+        dividerPaint.setColor(ContextCompat.getColor(context, R.color.table_header_gray));
+
+        // Fixed row height: one line of 13sp, or two lines of 11sp for Transit/Shift, or the icon
+        int content = Math.max(iconSize, Math.max(lineHeight(paints[0]), 2 * lineHeight(paints[COL_TRANSIT])));
+        rowHeight = content + 2 * dp(dm, PADDING_VERTICAL_DP);
+
+        // The header keeps its XML definition; it is laid out once and drawn pinned
+        headerView = LayoutInflater.from(context).inflate(R.layout.layout_attendance_table_header, null, false);
+        headerView.measure(MeasureSpec.makeMeasureSpec(tableWidth, MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED));
+        headerView.layout(0, 0, headerView.getMeasuredWidth(), headerView.getMeasuredHeight());
+        headerHeight = headerView.getMeasuredHeight();
+
+        scroller = new OverScroller(context);
+        gestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent e) {
+                scroller.forceFinished(true);
+                return true;
+            }
+
+            @Override
+            public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+                getParent().requestDisallowInterceptTouchEvent(true);
+                scrollToOffset(offsetX + Math.round(distanceX), offsetY + Math.round(distanceY));
+                return true;
+            }
+
+            @Override
+            public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
+                scroller.fling(offsetX, offsetY, -Math.round(velocityX), -Math.round(velocityY),
+                        0, maxOffsetX(), 0, maxOffsetY());
+                postInvalidateOnAnimation();
+                return true;
+            }
+        });
+
+        accessibilityHelper = new RowAccessibilityHelper();
+        ViewCompat.setAccessibilityDelegate(this, accessibilityHelper);
+
+        setBackgroundColor(Color.WHITE);
+        setWillNotDraw(false);
+    }
+
+    /**
+     * Shows the given list. The view keeps the reference; call notifyDataChanged() after changing it.
+     */
+    public void setRecords(List<AttendanceRecord> records) {
+        this.records = records != null ? records : Collections.<AttendanceRecord>emptyList();
+        notifyDataChanged();
+    }
+
+    public void notifyDataChanged() {
+        // Rows keep their layouts until the new version is ready; only queued work is abandoned
+        generation++;
+        pending.clear();
+        scrollToOffset(offsetX, offsetY); // Clamp to the new row count
+        setContentDescription("Attendance table, " + records.size() + " days");
+        prepareRows();
+        invalidate();
+        accessibilityHelper.invalidateRoot();
+    }
+
+    // --- Scrolling ---
+
+    private int maxOffsetX() {
+        return Math.max(0, tableWidth - getWidth());
+    }
+
+    private int maxOffsetY() {
+        return Math.max(0, records.size() * rowHeight - (getHeight() - headerHeight));
+    }
+
+    private void scrollToOffset(int x, int y) {
+        int clampedX = Math.max(0, Math.min(x, maxOffsetX()));
+        int clampedY = Math.max(0, Math.min(y, maxOffsetY()));
+        if (clampedX != offsetX || clampedY != offsetY) {
+            boolean rowsMoved = clampedY != offsetY;
+            offsetX = clampedX;
+            offsetY = clampedY;
+            awakenScrollBars();
+            prepareRows();
+            invalidate();
+            if (rowsMoved) accessibilityHelper.invalidateRoot(); // Row bounds and the visible range changed
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        return gestureDetector.onTouchEvent(event) || super.onTouchEvent(event);
+    }
+
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        return accessibilityHelper.dispatchHoverEvent(event) || super.dispatchHoverEvent(event);
+    }
+
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        return accessibilityHelper.dispatchKeyEvent(event) || super.dispatchKeyEvent(event);
+    }
+
+    @Override
+    protected void onFocusChanged(boolean gainFocus, int direction, @Nullable Rect previouslyFocusedRect) {
+        super.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+        accessibilityHelper.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+    }
+
+    @Override
+    public void computeScroll() {
+        if (scroller.computeScrollOffset()) {
+            scrollToOffset(scroller.getCurrX(), scroller.getCurrY());
+            postInvalidateOnAnimation();
+        }
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        scrollToOffset(offsetX, offsetY);
+        prepareRows();
+    }
+
+    // Scrollbars (android:scrollbars in XML) read the virtual offsets instead of View.scrollX/Y
+    @Override protected int computeHorizontalScrollRange() { return tableWidth; }
+    @Override protected int computeHorizontalScrollOffset() { return offsetX; }
+    @Override protected int computeHorizontalScrollExtent() { return getWidth(); }
+    @Override protected int computeVerticalScrollRange() { return records.size() * rowHeight + headerHeight; }
+    @Override protected int computeVerticalScrollOffset() { return offsetY; }
+    @Override protected int computeVerticalScrollExtent() { return getHeight(); }
+
+    // --- Drawing ---
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        int width = getWidth();
+        int height = getHeight();
+        if (records.isEmpty()) {
+            drawHeader(canvas, width);
+            return;
+        }
+
+        // 1. Visible range: rows from the vertical offset, columns from the horizontal offset
+        int firstRow = firstVisibleRow();
+        int lastRow = lastVisibleRow();
+        int firstCol = COL_DATE + 1;
+        while (firstCol < columnPx.length - 1 && columnLeft[firstCol] + columnPx[firstCol] - offsetX <= pinnedRight) {
+            firstCol++;
+        }
+
+        // 2. Scrolling cells (both axes), clipped right of the pinned column and below the header
+        canvas.save();
+        canvas.clipRect(pinnedRight, headerHeight, width, height);
+        for (int r = firstRow; r <= lastRow; r++) {
+            AttendanceRecord record = records.get(r);
+            CellRow row = rowCache.get(record);
+            int top = headerHeight + r * rowHeight - offsetY;
+            for (int c = firstCol; c < columnPx.length; c++) {
+                int left = columnLeft[c] - offsetX;
+                if (left >= width) break;
+                drawCell(canvas, record, row, c, left, top);
+            }
+        }
+        canvas.restore();
+
+        // 3. Pinned Date column (scrolls vertically only)
+        canvas.save();
+        canvas.clipRect(0, headerHeight, pinnedRight, height);
+        canvas.drawColor(Color.WHITE);
+        for (int r = firstRow; r <= lastRow; r++) {
+            AttendanceRecord record = records.get(r);
+            drawCell(canvas, record, rowCache.get(record), COL_DATE, columnLeft[COL_DATE],
+                    headerHeight + r * rowHeight - offsetY);
+        }
+        canvas.restore();
+
+        // 4. Pinned header row, then the divider showing the Date column is pinned
+        drawHeader(canvas, width);
+        if (offsetX > 0) {
+            canvas.drawRect(pinnedRight - 1, 0, pinnedRight + 1, height, dividerPaint);
+        }
+    }
+
+    private int firstVisibleRow() {
+        return offsetY / rowHeight;
+    }
+
+    private int lastVisibleRow() {
+        return Math.min(records.size() - 1, (offsetY + getHeight() - headerHeight) / rowHeight);
+    }
+
+    private void drawHeader(Canvas canvas, int width) {
+        // Scrolling part of the header
+        canvas.save();
+        canvas.clipRect(pinnedRight, 0, width, headerHeight);
+        canvas.translate(-offsetX, 0);
+        headerView.draw(canvas);
+        canvas.restore();
+
+        // Pinned "Date" header cell
+        canvas.save();
+        canvas.clipRect(0, 0, pinnedRight, headerHeight);
+        headerView.draw(canvas);
+        canvas.restore();
+    }
+
+    private void drawCell(Canvas canvas, AttendanceRecord record, @Nullable CellRow row, int col, int left, int top) {
+        if (col >= TEXT_COLUMNS) {
+            drawIcon(canvas, iconFor(record, col), left + (columnPx[col] - iconSize) / 2,
+                    top + (rowHeight - iconSize) / 2);
+            return;
+        }
+
+        // Not prepared yet: leave the cell blank, prepareRows() already queued it
+        if (row == null || row.layouts == null) return;
+        StaticLayout layout = row.layouts[col];
+        int dx = col == COL_LOCATION ? locationPaddingStart : 0;
+        canvas.save();
+        canvas.translate(left + dx, top + (rowHeight - layout.getHeight()) / 2f);
+        layout.draw(canvas);
+        canvas.restore();
+    }
+
+    private void drawIcon(Canvas canvas, int resId, int left, int top) {
+        Drawable d = icons.get(resId);
+        if (d == null) {
+            d = ContextCompat.getDrawable(getContext(), resId);
+            icons.put(resId, d);
+        }
+        if (d != null) {
+            d.setBounds(left, top, left + iconSize, top + iconSize);
+            d.draw(canvas);
+        }
+    }
+
+    // --- Cells ---
+
+    /**
+     * Queues the rows around the visible range whose layouts are missing or stale.
+     * Main thread only: the strings are read from the records here, never on the layout thread.
+     */
+    private void prepareRows() {
+        if (records.isEmpty() || getHeight() == 0) return;
+        int first = Math.max(0, offsetY / rowHeight - PREFETCH_ROWS);
+        int last = Math.min(records.size() - 1, (offsetY + getHeight() - headerHeight) / rowHeight + PREFETCH_ROWS);
+
+        List<CellRow> batch = null;
+        for (int r = first; r <= last; r++) {
+            AttendanceRecord record = records.get(r);
+            CellRow row = rowCache.get(record);
+            if ((row == null || row.version != record.getDisplayVersion()) && pending.add(record)) {
+                if (batch == null) batch = new ArrayList<>();
+                batch.add(new CellRow(record));
+            }
+        }
+        if (batch == null) return;
+
+        final List<CellRow> rows = batch;
+        final int queuedFor = generation;
+        layoutExecutor.execute(() -> {
+            final StaticLayout[][] built = new StaticLayout[rows.size()][];
+            for (int i = 0; i < built.length; i++) {
+                built[i] = layoutRow(rows.get(i));
+            }
+            post(() -> swapIn(queuedFor, rows, built));
+        });
+    }
+
+    /**
+     * Main thread: installs the layouts built for rows, unless the list or a record changed meanwhile.
+     */
+    private void swapIn(int queuedFor, List<CellRow> rows, StaticLayout[][] built) {
+        if (queuedFor != generation) return;
+        for (int i = 0; i < built.length; i++) {
+            CellRow row = rows.get(i);
+            pending.remove(row.record);
+            if (row.version == row.record.getDisplayVersion()) {
+                row.layouts = built[i];
+                rowCache.put(row.record, row);
+            }
+        }
+        invalidate();
+        prepareRows(); // Rows that changed or scrolled in while this batch was building
+    }
+
+    /**
+     * Layout thread: lays out every text cell of one snapshotted row.
+     */
+    private StaticLayout[] layoutRow(CellRow row) {
+        StaticLayout[] layouts = new StaticLayout[TEXT_COLUMNS];
+        for (int c = 0; c < TEXT_COLUMNS; c++) {
+            layouts[c] = layoutCell(row, c);
+        }
+        return layouts;
+    }
+
+    private StaticLayout layoutCell(CellRow row, int col) {
+        String text = row.texts[col];
+        TextPaint paint = row.absent && (col == COL_DATE || col == COL_DAY) ? dimmedPaint : paints[col];
+        boolean location = col == COL_LOCATION;
+        int maxLines = col == COL_TRANSIT || col == COL_SHIFT ? 2 : 1;
+
+        return StaticLayout.Builder.obtain(text, 0, text.length(), paint,
+                        columnPx[col] - (location ? locationPaddingStart : 0))
+                .setAlignment(location ? Layout.Alignment.ALIGN_NORMAL : Layout.Alignment.ALIGN_CENTER)
+                .setMaxLines(maxLines)
+                .setEllipsize(TextUtils.TruncateAt.END)
+                .build();
+    }
+
+    private static String cellText(AttendanceRecord record, int col) {
+        switch (col) {
+            case 0: return record.getDate() != null ? record.getDate() : "";
+            case 1: return record.getDayDisplay();
+            case 2: return record.getCheckInDisplay();
+            case 3: return record.getTransitSummary();
+            case 4: return record.getCheckOutDisplay();
+            case 5: return record.getShiftDisplay();
+            case 6: return record.getTotalHoursDisplay();
+            case 7: return record.getOvertimeDisplay();
+            case 8: return record.getLocationDisplay();
+            default: return record.getDistanceDisplay();
+        }
+    }
+
+    /**
+     * @return e.g. "2026-10-12, Monday, Partial. In 09:02, Transit route Office to Site A, Work location Site A"
+     */
+    private static String rowDescription(AttendanceRecord record) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(cellText(record, COL_DATE)).append(", ").append(cellText(record, COL_DAY))
+                .append(", ").append(record.getStatus()).append('.');
+        String separator = " ";
+        for (int c = COL_DAY + 1; c < TEXT_COLUMNS; c++) {
+            String text = cellText(record, c);
+            if (TextUtils.isEmpty(text) || "--".equals(text)) continue;
+            sb.append(separator).append(COLUMN_NAMES[c]).append(' ').append(text.replace('\n', ' '));
+            separator = ", ";
+        }
+        if (record.getCheckInTime() != null) {
+            sb.append(separator).append(record.isFingerprintVerified() ? "fingerprint verified" : "fingerprint not verified")
+                    .append(", ").append(record.isGpsVerified() ? "GPS verified" : "GPS not verified");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * One virtual view per visible row (id = row index), so TalkBack can explore the canvas row by row.
+     * Descriptions are read from the records on the main thread, like CellRow snapshots.
+     */
+    private final class RowAccessibilityHelper extends ExploreByTouchHelper {
+        private final Rect bounds = new Rect();
+
+        RowAccessibilityHelper() {
+            super(AttendanceGridView.this);
+        }
+
+        @Override
+        protected int getVirtualViewAt(float x, float y) {
+            if (y < headerHeight) return HOST_ID;
+            int row = ((int) y - headerHeight + offsetY) / rowHeight;
+            return row < records.size() ? row : INVALID_ID;
+        }
+
+        @Override
+        protected void getVisibleVirtualViews(List<Integer> virtualViewIds) {
+            if (records.isEmpty() || getHeight() == 0) return;
+            for (int r = firstVisibleRow(); r <= lastVisibleRow(); r++) {
+                virtualViewIds.add(r);
+            }
+        }
+
+        @Override
+        protected void onPopulateNodeForVirtualView(int virtualViewId, @NonNull AccessibilityNodeInfoCompat node) {
+            // The list can shrink between the lookup and this call; a stale id still needs bounds
+            if (virtualViewId >= records.size()) {
+                node.setContentDescription("");
+                bounds.set(0, 0, 1, 1);
+                node.setBoundsInParent(bounds);
+                return;
+            }
+            int top = headerHeight + virtualViewId * rowHeight - offsetY;
+            bounds.set(0, Math.max(headerHeight, top), getWidth(), Math.min(getHeight(), top + rowHeight));
+            node.setContentDescription(rowDescription(records.get(virtualViewId)));
+            node.setBoundsInParent(bounds);
+        }
+
+        @Override
+        protected boolean onPerformActionForVirtualView(int virtualViewId, int action, @Nullable Bundle arguments) {
+            return false; // Rows are read-only
+        }
+    }
+
+    private static int iconFor(AttendanceRecord record, int col) {
+        // Verification icons only count once the employee has checked in
+        boolean checkedIn = record.getCheckInTime() != null;
+        if (col == TEXT_COLUMNS) {
+            return checkedIn && record.isFingerprintVerified() ? R.drawable.ic_status_present : R.drawable.ic_status_absent;
+        }
+        if (col == TEXT_COLUMNS + 1) {
+            return checkedIn && record.isGpsVerified() ? R.drawable.ic_status_present : R.drawable.ic_status_absent;
+        }
+        String status = record.getStatus();
+        if ("Present".equals(status)) return R.drawable.ic_status_present;
+        if ("Partial".equals(status)) return R.drawable.ic_status_partial;
+        return R.drawable.ic_status_absent;
+    }
+
+    private static TextPaint paint(DisplayMetrics dm, int sp, int color, boolean bold) {
+        TextPaint p = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+        p.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, sp, dm));
+        p.setColor(color);
+        if (bold) p.setTypeface(Typeface.DEFAULT_BOLD);
+        return p;
+    }
+
+    private static int lineHeight(TextPaint paint) {
+        Paint.FontMetricsInt fm = paint.getFontMetricsInt();
+        return fm.bottom - fm.top;
+    }
+
+    private static int dp(DisplayMetrics dm, int dp) {
+        return Math.round(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, dp, dm));
+    }
+}
@@ -0,0 +1,144 @@
+package com.inout.app.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+import com.inout.app.models.TransitEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * One-off admin tool: moves attendance documents from legacy IDs (EMP001_2026-01-22)
+ * to hash-prefixed IDs (see AttendanceIds), together with their transits subcollection.
+ *
+ * Walks the collection in pages of PAGE_SIZE by document ID. Each record moves in its own transaction:
+ * the legacy document is re-read, copied, and deleted (with a DeltaSync tombstone) together with its
+ * transits, so a write that lands on it meanwhile makes the transaction retry instead of being lost.
+ * Safe to re-run: current-format documents are skipped. Also skipped, and left to the dual read path:
+ * 1. Today's records, which older app versions may still be writing.
+ * 2. Records whose current-format document already exists (written by a newer app version);
+ *    neither copy is overwritten, they are logged for an admin to reconcile.
+ *
+ * Events keep the recordId they were written with; AttendanceEventLog.compact() also reads the
+ * legacy ID, so a moved record is still rebuilt from its events.
+ */
+public final class AttendanceIdMigration {
+
+    private static final String TAG = "AttendanceIdMigration";
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_TRANSACTION_WRITES = 450;
+
+    private static final int MOVED = 0;
+    private static final int GONE = 1;       // Deleted or moved by someone else meanwhile
+    private static final int CONFLICT = 2;   // Current-format document already exists
+
+    public interface Listener {
+        void onProgress(int scanned, int moved);
+        void onComplete(int scanned, int moved);
+        void onError(Exception e);
+    }
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private AttendanceIdMigration() {}
+
+    /**
+     * Runs on a background thread; the listener is called on the main thread.
+     */
+    public static void run(FirebaseFirestore db, Listener listener) {
+        final Handler main = new Handler(Looper.getMainLooper());
+        executor.execute(() -> {
+            int scanned = 0;
+            int moved = 0;
+            try {
+                final String today = TimeUtils.getCurrentDateId();
+                DocumentSnapshot last = null;
+                while (true) {
+                    Query query = db.collection("attendance").orderBy(FieldPath.documentId()).limit(PAGE_SIZE);
+                    if (last != null) {
+                        query = query.startAfter(last);
+                    }
+                    QuerySnapshot page = Tasks.await(FirestoreMeter.track("attendance", query.get(Source.SERVER)));
+                    if (page.isEmpty()) break;
+
+                    for (DocumentSnapshot doc : page.getDocuments()) {
+                        scanned++;
+                        if (!AttendanceIds.isLegacy(doc.getId())) continue;
+                        if (today.equals(doc.getString("date"))) continue; // Possibly still being written
+
+                        QuerySnapshot transits = Tasks.await(FirestoreMeter.track(TransitEvent.SUBCOLLECTION,
+                                doc.getReference().collection(TransitEvent.SUBCOLLECTION).get(Source.SERVER)));
+                        if (3 + 2 * transits.size() > MAX_TRANSACTION_WRITES) {
+                            // Cannot be moved atomically; the dual read path keeps finding it
+                            Log.w(TAG, "Skipping " + doc.getId() + ": " + transits.size() + " transits");
+                            continue;
+                        }
+
+                        int result = Tasks.await(move(db, doc.getReference(), transits));
+                        if (result == MOVED) {
+                            moved++;
+                        } else if (result == CONFLICT) {
+                            Log.w(TAG, "Skipping " + doc.getId() + ": current-format copy already exists");
+                        }
+                    }
+
+                    final int s = scanned, m = moved;
+                    main.post(() -> listener.onProgress(s, m));
+                    last = page.getDocuments().get(page.size() - 1);
+                }
+
+                final int s = scanned, m = moved;
+                main.post(() -> listener.onComplete(s, m));
+            } catch (Exception e) {
+                Log.e(TAG, "Migration stopped after " + moved + " records", e);
+                main.post(() -> listener.onError(e));
+            }
+        });
+    }
+
+    /**
+     * Moves one record in a transaction guarded by both documents.
+     * @return MOVED, GONE or CONFLICT.
+     */
+    private static Task<Integer> move(FirebaseFirestore db, DocumentReference source, QuerySnapshot transits) {
+        final DocumentReference target = db.collection("attendance").document(AttendanceIds.withPrefix(source.getId()));
+        final int[] writes = {0};
+        return db.runTransaction(transaction -> {
+            writes[0] = 0;
+            DocumentSnapshot current = transaction.get(source);
+            DocumentSnapshot existing = transaction.get(target);
+            if (!current.exists() || current.getData() == null) return GONE;
+            if (existing.exists()) return CONFLICT;
+
+            Map<String, Object> data = new HashMap<>(current.getData());
+            data.put("recordId", target.getId());
+            data.put(DeltaSync.UPDATED_AT, FieldValue.serverTimestamp());
+            transaction.set(target, data);
+            for (DocumentSnapshot transit : transits.getDocuments()) {
+                transaction.set(target.collection(TransitEvent.SUBCOLLECTION).document(transit.getId()), transit.getData());
+                transaction.delete(transit.getReference());
+            }
+            transaction.delete(source);
+            DeltaSync.tombstone(transaction, db, "attendance", source.getId());
+            writes[0] = 3 + 2 * transits.size();
+            return MOVED;
+        }).addOnSuccessListener(result -> {
+            FirestoreMeter.onRead("attendance", 2); // The guard's transaction reads
+            if (writes[0] > 0) FirestoreMeter.onWrite("attendance", writes[0]);
+        });
+    }
+}
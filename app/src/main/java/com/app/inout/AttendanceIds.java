@@ -0,0 +1,62 @@
+package com.inout.app.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+/**
+ * Attendance document IDs.
+ *
+ * Legacy:  EMP001_2026-01-22
+ * Current: 3fa9_EMP001_2026-01-22
+ *
+ * Legacy IDs sort by employee ID, and sequential IDs (EMP001...EMP999) put a morning burst or a
+ * backfill on one narrow key range. The 4-hex-digit prefix (CRC32 of the legacy ID) spreads those
+ * writes over 65536 ranges. It is still computed from employeeId and date alone, so direct
+ * lookups need no query.
+ *
+ * During the transition readers check both IDs (see DUAL_READ) until AttendanceIdMigration
+ * has moved the old documents.
+ */
+public final class AttendanceIds {
+
+    /**
+     * Also look up legacy IDs. Can be turned off once the migration has run for every company.
+     */
+    public static final boolean DUAL_READ = true;
+
+    private AttendanceIds() {}
+
+    public static String recordId(String employeeId, String dateId) {
+        return withPrefix(legacyId(employeeId, dateId));
+    }
+
+    public static String legacyId(String employeeId, String dateId) {
+        return employeeId + "_" + dateId;
+    }
+
+    /**
+     * @return The current-format ID for a legacy one (used by the migration).
+     */
+    public static String withPrefix(String legacyId) {
+        CRC32 crc = new CRC32();
+        crc.update(legacyId.getBytes(StandardCharsets.UTF_8));
+        return String.format(Locale.US, "%04x", crc.getValue() & 0xffff) + "_" + legacyId;
+    }
+
+    /**
+     * @return The legacy ID a current-format ID was made from (the ID itself if it is legacy).
+     */
+    public static String legacyOf(String recordId) {
+        return isLegacy(recordId) ? recordId : recordId.substring(5);
+    }
+
+    /**
+     * @return true if the ID is in the legacy format (no hash prefix).
+     */
+    public static boolean isLegacy(String docId) {
+        int underscore = docId.indexOf('_');
+        if (underscore != 4) return true;
+        return !docId.equals(withPrefix(docId.substring(5)));
+    }
+}
@@ -0,0 +1,336 @@
+package com.inout.app.views;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.AttributeSet;
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.OverScroller;
+
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import com.inout.app.R;
+import com.inout.app.utils.AttendanceMonthIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Company attendance matrix: employees as rows, days of the month as columns, coloured by status.
+ * Reads straight from an AttendanceMonthIndex, so thousands of cells are drawn from a few ints per row.
+ * The name column and the day header stay pinned; only visible cells are drawn.
+ */
+public class AttendanceMatrixView extends View {
+
+    public interface OnRowClickListener {
+        void onRowClick(int row);
+    }
+
+    private static final int NAME_WIDTH_DP = 140;
+    private static final int CELL_SIZE_DP = 32;
+    private static final int HEADER_HEIGHT_DP = 40;
+    private static final int CELL_GAP_DP = 1;
+    private static final int TEXT_PADDING_DP = 8;
+    private static final int NEAR_END_ROWS = 10;
+
+    private final int nameWidth;
+    private final int cellSize;
+    private final int headerHeight;
+    private final int cellGap;
+    private final int textPadding;
+
+    private final Paint presentPaint = new Paint();
+    private final Paint partialPaint = new Paint();
+    private final Paint absentPaint = new Paint();
+    private final Paint futurePaint = new Paint();
+    private final Paint headerPaint = new Paint();
+    private final TextPaint namePaint;
+    private final TextPaint headerNamePaint;
+    private final TextPaint dayPaint;
+    private final TextPaint countPaint;
+
+    private AttendanceMonthIndex index;
+    private List<String> rowLabels = new ArrayList<>();
+    private final List<CharSequence> ellipsizedLabels = new ArrayList<>();
+    private final String[] dayLabels = new String[32];
+    private final String[] countLabels = new String[32];   // Attended count per day, refreshed on change
+    private OnRowClickListener rowClickListener;
+    private Runnable nearEndListener;
+    private int nearEndNotifiedRows = -1;   // Row count the listener was last called for
+
+    private final OverScroller scroller;
+    private final GestureDetector gestureDetector;
+    private int offsetX;
+    private int offsetY;
+
+    public AttendanceMatrixView(Context context) {
+        this(context, null);
+    }
+
+    public AttendanceMatrixView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        DisplayMetrics dm = getResources().getDisplayMetrics();
+        nameWidth = dp(dm, NAME_WIDTH_DP);
+        cellSize = dp(dm, CELL_SIZE_DP);
+        headerHeight = dp(dm, HEADER_HEIGHT_DP);
+        cellGap = dp(dm, CELL_GAP_DP);
+        textPadding = dp(dm, TEXT_PADDING_DP);
+
+        presentPaint.setColor(ContextCompat.getColor(context, R.color.status_green));
+        partialPaint.setColor(ContextCompat.getColor(context, R.color.status_orange));
+        absentPaint.setColor(ContextCompat.getColor(context, R.color.status_red));
+        absentPaint.setAlpha(60);
+        futurePaint.setColor(ContextCompat.getColor(context, R.color.light_gray));
+        headerPaint.setColor(ContextCompat.getColor(context, R.color.table_header_gray));
+
+        namePaint = textPaint(dm, 13, Color.BLACK, false);
+        headerNamePaint = textPaint(dm, 13, Color.BLACK, true);
+        dayPaint = textPaint(dm, 12, Color.BLACK, true);
+        dayPaint.setTextAlign(Paint.Align.CENTER);
+        countPaint = textPaint(dm, 10, ContextCompat.getColor(context, R.color.dark_gray), false);
+        countPaint.setTextAlign(Paint.Align.CENTER);
+        for (int d = 1; d < dayLabels.length; d++) {
+            dayLabels[d] = String.valueOf(d);
+        }
+
+        scroller = new OverScroller(context);
+        gestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent e) {
+                scroller.forceFinished(true);
+                return true;
+            }
+
+            @Override
+            public boolean onSingleTapUp(MotionEvent e) {
+                if (rowClickListener == null || e.getY() < headerHeight) return false;
+                int row = (int) (e.getY() - headerHeight + offsetY) / cellSize;
+                if (row >= 0 && row < rowCount()) {
+                    rowClickListener.onRowClick(row);
+                    return true;
+                }
+                return false;
+            }
+
+            @Override
+            public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+                getParent().requestDisallowInterceptTouchEvent(true);
+                scrollToOffset(offsetX + Math.round(distanceX), offsetY + Math.round(distanceY));
+                return true;
+            }
+
+            @Override
+            public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
+                scroller.fling(offsetX, offsetY, -Math.round(velocityX), -Math.round(velocityY),
+                        0, maxOffsetX(), 0, maxOffsetY());
+                postInvalidateOnAnimation();
+                return true;
+            }
+        });
+
+        setBackgroundColor(Color.WHITE);
+    }
+
+    /**
+     * @param index     The month index; rows are its employee rows.
+     * @param rowLabels Display name per row, same order as the index rows.
+     */
+    public void setData(AttendanceMonthIndex index, List<String> rowLabels) {
+        this.index = index;
+        this.rowLabels = rowLabels != null ? rowLabels : new ArrayList<String>();
+        ellipsizedLabels.clear();
+        notifyDataChanged();
+    }
+
+    /**
+     * Call after the index was updated (records loaded or changed).
+     */
+    public void notifyDataChanged() {
+        for (int day = 1; day <= dayCount(); day++) {
+            countLabels[day] = String.valueOf(index.getAttendedCount(day));
+        }
+        scrollToOffset(offsetX, offsetY);
+        checkNearEnd();
+        invalidate();
+    }
+
+    public void setOnRowClickListener(OnRowClickListener listener) {
+        this.rowClickListener = listener;
+    }
+
+    /**
+     * Called (once per row count) when the last rows come on screen, so the next page of
+     * employees can be loaded.
+     */
+    public void setOnNearEndListener(Runnable listener) {
+        this.nearEndListener = listener;
+    }
+
+    private void checkNearEnd() {
+        int rows = rowCount();
+        if (nearEndListener == null || rows == nearEndNotifiedRows || getHeight() == 0) return;
+        int visibleBottomRow = (offsetY + getHeight() - headerHeight) / cellSize;
+        if (visibleBottomRow >= rows - NEAR_END_ROWS) {
+            nearEndNotifiedRows = rows;
+            post(nearEndListener);
+        }
+    }
+
+    private int rowCount() {
+        return index != null ? index.getEmployeeCount() : 0;
+    }
+
+    private int dayCount() {
+        return index != null ? index.getDaysInMonth() : 0;
+    }
+
+    // --- Scrolling ---
+
+    private int maxOffsetX() {
+        return Math.max(0, nameWidth + dayCount() * cellSize - getWidth());
+    }
+
+    private int maxOffsetY() {
+        return Math.max(0, rowCount() * cellSize - (getHeight() - headerHeight));
+    }
+
+    private void scrollToOffset(int x, int y) {
+        int clampedX = Math.max(0, Math.min(x, maxOffsetX()));
+        int clampedY = Math.max(0, Math.min(y, maxOffsetY()));
+        if (clampedX != offsetX || clampedY != offsetY) {
+            offsetX = clampedX;
+            offsetY = clampedY;
+            awakenScrollBars();
+            checkNearEnd();
+            invalidate();
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        return gestureDetector.onTouchEvent(event) || super.onTouchEvent(event);
+    }
+
+    @Override
+    public void computeScroll() {
+        if (scroller.computeScrollOffset()) {
+            scrollToOffset(scroller.getCurrX(), scroller.getCurrY());
+            postInvalidateOnAnimation();
+        }
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        scrollToOffset(offsetX, offsetY);
+        checkNearEnd();
+    }
+
+    @Override protected int computeHorizontalScrollRange() { return nameWidth + dayCount() * cellSize; }
+    @Override protected int computeHorizontalScrollOffset() { return offsetX; }
+    @Override protected int computeHorizontalScrollExtent() { return getWidth(); }
+    @Override protected int computeVerticalScrollRange() { return headerHeight + rowCount() * cellSize; }
+    @Override protected int computeVerticalScrollOffset() { return offsetY; }
+    @Override protected int computeVerticalScrollExtent() { return getHeight(); }
+
+    // --- Drawing ---
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (index == null) return;
+
+        int width = getWidth();
+        int height = getHeight();
+        int rows = rowCount();
+        int days = dayCount();
+        int lastElapsed = index.getLastElapsedDay();
+
+        int firstRow = offsetY / cellSize;
+        int lastRow = Math.min(rows - 1, (offsetY + height - headerHeight) / cellSize);
+        int firstDay = Math.max(1, offsetX / cellSize + 1);
+        int lastDay = Math.min(days, (offsetX + width - nameWidth) / cellSize + 1);
+
+        // 1. Status cells
+        canvas.save();
+        canvas.clipRect(nameWidth, headerHeight, width, height);
+        for (int row = firstRow; row <= lastRow; row++) {
+            int top = headerHeight + row * cellSize - offsetY;
+            int present = index.getPresentMask(row);
+            int partial = index.getPartialMask(row);
+            for (int day = firstDay; day <= lastDay; day++) {
+                int left = nameWidth + (day - 1) * cellSize - offsetX;
+                int bit = 1 << (day - 1);
+                Paint paint = day > lastElapsed ? futurePaint
+                        : (present & bit) != 0 ? presentPaint
+                        : (partial & bit) != 0 ? partialPaint : absentPaint;
+                canvas.drawRect(left + cellGap, top + cellGap, left + cellSize - cellGap, top + cellSize - cellGap, paint);
+            }
+        }
+        canvas.restore();
+
+        // 2. Pinned name column
+        canvas.save();
+        canvas.clipRect(0, headerHeight, nameWidth, height);
+        canvas.drawColor(Color.WHITE);
+        float nameBaseline = (cellSize - namePaint.ascent() - namePaint.descent()) / 2f;
+        for (int row = firstRow; row <= lastRow; row++) {
+            int top = headerHeight + row * cellSize - offsetY;
+            CharSequence label = labelFor(row);
+            canvas.drawText(label, 0, label.length(), textPadding, top + nameBaseline, namePaint);
+        }
+        canvas.restore();
+
+        // 3. Pinned day header: day number and how many employees attended
+        canvas.save();
+        canvas.clipRect(nameWidth, 0, width, headerHeight);
+        canvas.drawRect(nameWidth, 0, width, headerHeight, headerPaint);
+        for (int day = firstDay; day <= lastDay; day++) {
+            float center = nameWidth + (day - 1) * cellSize - offsetX + cellSize / 2f;
+            canvas.drawText(dayLabels[day], center, headerHeight / 2f - dayPaint.descent(), dayPaint);
+            if (day <= lastElapsed) {
+                canvas.drawText(countLabels[day], center,
+                        headerHeight - countPaint.descent() - cellGap * 2, countPaint);
+            }
+        }
+        canvas.restore();
+
+        canvas.drawRect(0, 0, nameWidth, headerHeight, headerPaint);
+        canvas.drawText("Employee", textPadding,
+                headerHeight / 2f - (headerNamePaint.ascent() + headerNamePaint.descent()) / 2f, headerNamePaint);
+    }
+
+    /**
+     * Names are ellipsized to the column once and reused while scrolling.
+     */
+    private CharSequence labelFor(int row) {
+        while (ellipsizedLabels.size() <= row) {
+            int i = ellipsizedLabels.size();
+            String label = i < rowLabels.size() ? rowLabels.get(i) : index.getEmployeeId(i);
+            ellipsizedLabels.add(TextUtils.ellipsize(label != null ? label : "", namePaint,
+                    nameWidth - 2 * textPadding, TextUtils.TruncateAt.END));
+        }
+        return ellipsizedLabels.get(row);
+    }
+
+    private static TextPaint textPaint(DisplayMetrics dm, int sp, int color, boolean bold) {
+        TextPaint p = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+        p.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, sp, dm));
+        p.setColor(color);
+        if (bold) p.setTypeface(Typeface.DEFAULT_BOLD);
+        return p;
+    }
+
+    private static int dp(DisplayMetrics dm, int dp) {
+        return Math.round(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, dp, dm));
+    }
+}
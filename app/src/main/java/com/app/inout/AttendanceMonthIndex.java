@@ -0,0 +1,264 @@
+package com.inout.app.utils;
+
+import com.inout.app.models.AttendanceRecord;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compact attendance index for one month of the whole company (employees x days).
+ *
+ * Per employee (row): two ints, one bit per day (bit 0 = day 1) for Present and Partial.
+ * Per day: a BitSet of employees who attended (Present or Partial) and one of Present only.
+ * A 1000-employee month fits in roughly 16 KB, and questions such as
+ * "who was absent on both the 3rd and the 4th" are a few bitwise ORs.
+ *
+ * Updated incrementally as records load. Records of employees that have no row yet are kept as
+ * two ints and applied when the row is added. Not thread-safe: use from the main thread
+ * (Firestore listeners deliver there).
+ */
+public class AttendanceMonthIndex {
+
+    public static final int ABSENT = 0;
+    public static final int PARTIAL = 1;
+    public static final int PRESENT = 2;
+
+    private final int year;
+    private final int month;          // 1..12
+    private final int daysInMonth;
+    private final String monthPrefix; // "yyyy-MM-"
+
+    private final Map<String, Integer> rowByEmployee = new HashMap<>();
+    private final List<String> employeeIds = new ArrayList<>();
+    private int[] presentBits = new int[32];
+    private int[] partialBits = new int[32];
+    private final BitSet[] attendedByDay;
+    private final BitSet[] presentByDay;
+
+    // Days of employees whose row does not exist yet (employee pages load lazily): {present, partial}
+    private final Map<String, int[]> pendingBits = new HashMap<>();
+
+    /**
+     * @param month 1..12
+     */
+    public AttendanceMonthIndex(int year, int month) {
+        this.year = year;
+        this.month = month;
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(year, month - 1, 1);
+        this.daysInMonth = cal.getActualMaximum(Calendar.DAY_OF_MONTH);
+        this.monthPrefix = String.format(Locale.US, "%04d-%02d-", year, month);
+
+        attendedByDay = new BitSet[daysInMonth];
+        presentByDay = new BitSet[daysInMonth];
+        for (int d = 0; d < daysInMonth; d++) {
+            attendedByDay[d] = new BitSet();
+            presentByDay[d] = new BitSet();
+        }
+    }
+
+    public static AttendanceMonthIndex forCurrentMonth() {
+        Calendar cal = Calendar.getInstance();
+        return new AttendanceMonthIndex(cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1);
+    }
+
+    // --- Rows ---
+
+    /**
+     * Registers an employee as the next row (no-op if already known).
+     * @return The row index.
+     */
+    public int addEmployee(String employeeId) {
+        Integer existing = rowByEmployee.get(employeeId);
+        if (existing != null) return existing;
+
+        int row = employeeIds.size();
+        employeeIds.add(employeeId);
+        rowByEmployee.put(employeeId, row);
+        if (row == presentBits.length) {
+            presentBits = Arrays.copyOf(presentBits, row * 2);
+            partialBits = Arrays.copyOf(partialBits, row * 2);
+        }
+
+        int[] pending = pendingBits.remove(employeeId);
+        if (pending != null) {
+            for (int day = 1; day <= daysInMonth; day++) {
+                int bit = 1 << (day - 1);
+                if ((pending[0] & bit) != 0) set(row, day, PRESENT);
+                else if ((pending[1] & bit) != 0) set(row, day, PARTIAL);
+            }
+        }
+        return row;
+    }
+
+    public int getRow(String employeeId) {
+        Integer row = rowByEmployee.get(employeeId);
+        return row != null ? row : -1;
+    }
+
+    public String getEmployeeId(int row) {
+        return employeeIds.get(row);
+    }
+
+    public int getEmployeeCount() {
+        return employeeIds.size();
+    }
+
+    // --- Month ---
+
+    public int getYear() { return year; }
+    public int getMonth() { return month; }
+    public int getDaysInMonth() { return daysInMonth; }
+
+    /** First and last date ids of the month, for a range query on "date". */
+    public String getFirstDateId() { return monthPrefix + "01"; }
+    public String getLastDateId() { return monthPrefix + String.format(Locale.US, "%02d", daysInMonth); }
+
+    /**
+     * @return The last day that has started (days after it are in the future), 0 if the whole month is ahead.
+     */
+    public int getLastElapsedDay() {
+        Calendar now = Calendar.getInstance();
+        int y = now.get(Calendar.YEAR);
+        int m = now.get(Calendar.MONTH) + 1;
+        if (y > year || (y == year && m > month)) return daysInMonth;
+        if (y == year && m == month) return now.get(Calendar.DAY_OF_MONTH);
+        return 0;
+    }
+
+    // --- Updates ---
+
+    /**
+     * Indexes a record, replacing whatever was stored for that employee and day.
+     * @return false if the record is for another month.
+     */
+    public boolean add(AttendanceRecord record) {
+        int day = dayOf(record.getDate());
+        if (day < 1 || record.getEmployeeId() == null) return false;
+
+        String status = record.getStatus();
+        int code = "Present".equals(status) ? PRESENT : "Partial".equals(status) ? PARTIAL : ABSENT;
+        int row = getRow(record.getEmployeeId());
+        if (row >= 0) {
+            set(row, day, code);
+        } else {
+            setPending(record.getEmployeeId(), day, code);
+        }
+        return true;
+    }
+
+    /**
+     * Clears a day, e.g. when its record was deleted.
+     */
+    public void remove(String employeeId, String dateId) {
+        int row = getRow(employeeId);
+        int day = dayOf(dateId);
+        if (day < 1 || employeeId == null) return;
+        if (row >= 0) {
+            set(row, day, ABSENT);
+        } else {
+            setPending(employeeId, day, ABSENT);
+        }
+    }
+
+    private void setPending(String employeeId, int day, int status) {
+        int[] bits = pendingBits.get(employeeId);
+        if (bits == null) {
+            bits = new int[2];
+            pendingBits.put(employeeId, bits);
+        }
+        int bit = 1 << (day - 1);
+        bits[0] &= ~bit;
+        bits[1] &= ~bit;
+        if (status == PRESENT) bits[0] |= bit;
+        else if (status == PARTIAL) bits[1] |= bit;
+    }
+
+    private void set(int row, int day, int status) {
+        int bit = 1 << (day - 1);
+        presentBits[row] &= ~bit;
+        partialBits[row] &= ~bit;
+        attendedByDay[day - 1].clear(row);
+        presentByDay[day - 1].clear(row);
+
+        if (status == PRESENT) {
+            presentBits[row] |= bit;
+            presentByDay[day - 1].set(row);
+            attendedByDay[day - 1].set(row);
+        } else if (status == PARTIAL) {
+            partialBits[row] |= bit;
+            attendedByDay[day - 1].set(row);
+        }
+    }
+
+    /**
+     * @return Day of month (1..31) if the date id is in this month, otherwise 0.
+     */
+    private int dayOf(String dateId) {
+        if (dateId == null || dateId.length() != 10 || !dateId.startsWith(monthPrefix)) return 0;
+        try {
+            int day = Integer.parseInt(dateId.substring(8));
+            return day >= 1 && day <= daysInMonth ? day : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // --- Queries ---
+
+    public int statusOf(int row, int day) {
+        int bit = 1 << (day - 1);
+        if ((presentBits[row] & bit) != 0) return PRESENT;
+        if ((partialBits[row] & bit) != 0) return PARTIAL;
+        return ABSENT;
+    }
+
+    /** Bit (day - 1) is set for every Present day of the row. */
+    public int getPresentMask(int row) { return presentBits[row]; }
+
+    /** Bit (day - 1) is set for every Partial day of the row. */
+    public int getPartialMask(int row) { return partialBits[row]; }
+
+    public int getPresentDays(int row) { return Integer.bitCount(presentBits[row]); }
+
+    public int getPartialDays(int row) { return Integer.bitCount(partialBits[row]); }
+
+    /** Employees with a complete (Present) record on the day. */
+    public int getPresentCount(int day) { return presentByDay[day - 1].cardinality(); }
+
+    /** Employees who checked in on the day (Present or Partial). */
+    public int getAttendedCount(int day) { return attendedByDay[day - 1].cardinality(); }
+
+    /**
+     * Rows absent on every one of the given days (no check-in at all).
+     */
+    public BitSet absentOnAll(int... days) {
+        BitSet attendedAny = new BitSet(employeeIds.size());
+        for (int day : days) {
+            attendedAny.or(attendedByDay[day - 1]);
+        }
+        BitSet absent = new BitSet(employeeIds.size());
+        absent.set(0, employeeIds.size());
+        absent.andNot(attendedAny);
+        return absent;
+    }
+
+    /**
+     * Same as absentOnAll(), as employee IDs.
+     */
+    public List<String> employeesAbsentOnAll(int... days) {
+        List<String> ids = new ArrayList<>();
+        BitSet rows = absentOnAll(days);
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+            ids.add(employeeIds.get(row));
+        }
+        return ids;
+    }
+}
@@ -1,5 +1,6 @@
 package com.inout.app;
 
+import android.app.AlertDialog;
 import android.app.Dialog;
 import android.graphics.Color;
 import android.graphics.drawable.ColorDrawable;
@@ -14,17 +15,16 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.DialogFragment;
-import androidx.recyclerview.widget.LinearLayoutManager;
 
 import com.bumptech.glide.Glide;
-import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.Query;
-import com.inout.app.adapters.AttendanceAdapter;
 import com.inout.app.databinding.DialogAttendanceProfileBinding;
 import com.inout.app.models.AttendanceRecord;
 import com.inout.app.models.User;
 import com.inout.app.utils.EncryptionHelper;
+import com.inout.app.utils.FirebaseManager;
+import com.inout.app.utils.FirestoreMeter;
+import com.inout.app.utils.MonthArchiver;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -44,8 +44,8 @@ public class AttendanceProfileDialog extends DialogFragment {
     private DialogAttendanceProfileBinding binding;
     private User employee;
     private FirebaseFirestore db;
-    private AttendanceAdapter adapter;
     private List<AttendanceRecord> fullMonthList;
+    private Calendar selectedMonth;     // First day of the month shown
 
     public static AttendanceProfileDialog newInstance(User user) {
         AttendanceProfileDialog frag = new AttendanceProfileDialog();
@@ -75,8 +75,11 @@ public class AttendanceProfileDialog extends DialogFragment {
     @Override
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
-        db = FirebaseFirestore.getInstance();
+        FirestoreMeter.setScreen(getClass().getSimpleName());
+        db = FirebaseManager.getFirestore();
         fullMonthList = new ArrayList<>();
+        selectedMonth = Calendar.getInstance();
+        selectedMonth.set(Calendar.DAY_OF_MONTH, 1);
 
         setupHeader();
         setupTable();
@@ -88,7 +91,7 @@ public class AttendanceProfileDialog extends DialogFragment {
         binding.btnExportCsv.setOnClickListener(v -> {
             if (fullMonthList != null && !fullMonthList.isEmpty()) {
                 String fileName = employee.getName().replace(" ", "_") + "_" + 
-                                 new SimpleDateFormat("MMM_yyyy", Locale.US).format(Calendar.getInstance().getTime());
+                                 new SimpleDateFormat("MMM_yyyy", Locale.US).format(selectedMonth.getTime());
                 CsvExportHelper.exportAttendanceToCsv(requireContext(), fullMonthList, fileName);
             } else {
                 Toast.makeText(getContext(), "No data available to export.", Toast.LENGTH_SHORT).show();
@@ -102,55 +105,86 @@ public class AttendanceProfileDialog extends DialogFragment {
         binding.tvHeaderPhone.setText("Phone: " + employee.getPhone());
         binding.tvHeaderCompany.setText(EncryptionHelper.getInstance(getContext()).getCompanyName());
 
-        Calendar cal = Calendar.getInstance();
-        String currentMonthYear = new SimpleDateFormat("MMMM yyyy", Locale.US).format(cal.getTime());
-        binding.tvHeaderMonth.setText(currentMonthYear);
+        binding.tvHeaderMonth.setText(new SimpleDateFormat("MMMM yyyy", Locale.US).format(selectedMonth.getTime()));
+        // NEW: Tap the month to open an earlier one (closed months come from their archive)
+        binding.tvHeaderMonth.setOnClickListener(v -> showMonthPicker());
 
         if (employee.getPhotoUrl() != null && !employee.getPhotoUrl().isEmpty()) {
-            Glide.with(this)
-                    .load(employee.getPhotoUrl())
-                    .circleCrop()
-                    .placeholder(R.drawable.inout)
-                    .into(binding.ivProfilePhoto);
+            loadPhoto(employee.getPhotoUrl());
+        } else if (employee.getUid() != null) {
+            // Opened from the directory index, which has no photo: read the full profile once
+            FirestoreMeter.track("users", db.collection("users").document(employee.getUid()).get())
+                    .addOnSuccessListener(doc -> {
+                        String photoUrl = doc.getString("photoUrl");
+                        if (isAdded() && photoUrl != null && !photoUrl.isEmpty()) {
+                            employee.setPhotoUrl(photoUrl);
+                            loadPhoto(photoUrl);
+                        }
+                    });
         }
     }
 
+    private void loadPhoto(String photoUrl) {
+        Glide.with(this)
+                .load(photoUrl)
+                .circleCrop()
+                .placeholder(R.drawable.inout)
+                .into(binding.ivProfilePhoto);
+    }
+
     private void setupTable() {
-        binding.rvAttendanceTable.setLayoutManager(new LinearLayoutManager(getContext()));
-        adapter = new AttendanceAdapter(fullMonthList);
-        binding.rvAttendanceTable.setAdapter(adapter);
+        binding.gridAttendanceTable.setRecords(fullMonthList);
     }
 
+    private void showMonthPicker() {
+        final int months = 12;
+        String[] labels = new String[months];
+        Calendar[] starts = new Calendar[months];
+        Calendar cal = Calendar.getInstance();
+        cal.set(Calendar.DAY_OF_MONTH, 1);
+        for (int i = 0; i < months; i++) {
+            starts[i] = (Calendar) cal.clone();
+            labels[i] = new SimpleDateFormat("MMMM yyyy", Locale.US).format(cal.getTime());
+            cal.add(Calendar.MONTH, -1);
+        }
+        new AlertDialog.Builder(requireContext())
+                .setTitle("Show month")
+                .setItems(labels, (d, which) -> {
+                    selectedMonth = starts[which];
+                    binding.tvHeaderMonth.setText(labels[which]);
+                    loadAttendanceData();
+                })
+                .show();
+    }
+
+    /**
+     * UPDATED: Reads only the selected month: its MonthArchive (one read) once the month is closed,
+     * otherwise that month's daily records.
+     */
     private void loadAttendanceData() {
         binding.progressBar.setVisibility(View.VISIBLE);
+        final String month = new SimpleDateFormat("yyyy-MM", Locale.US).format(selectedMonth.getTime());
 
-        // FIXED: Changed Direction to DESCENDING to match the required Firestore Index
-        db.collection("attendance")
-                .whereEqualTo("employeeId", employee.getEmployeeId())
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
+        MonthArchiver.loadMonth(db, employee.getEmployeeId(), month)
+                .addOnSuccessListener(records -> {
+                    if (binding == null) return;
                     Map<String, AttendanceRecord> existingLogs = new HashMap<>();
-                    for (DocumentSnapshot doc : queryDocumentSnapshots) {
-                        AttendanceRecord record = doc.toObject(AttendanceRecord.class);
-                        if (record != null) {
-                            existingLogs.put(record.getDate(), record);
-                        }
+                    for (AttendanceRecord record : records) {
+                        existingLogs.put(record.getDate(), record);
                     }
                     generateFullMonthReport(existingLogs);
                 })
                 .addOnFailureListener(e -> {
+                    if (binding == null) return;
                     binding.progressBar.setVisibility(View.GONE);
                     Log.e(TAG, "Data fetch failed", e);
-                    // This error is now handled by matching the Index direction
                     Toast.makeText(getContext(), "Error loading month records", Toast.LENGTH_SHORT).show();
                 });
     }
 
     private void generateFullMonthReport(Map<String, AttendanceRecord> logs) {
         fullMonthList.clear();
-        Calendar cal = Calendar.getInstance();
-        cal.set(Calendar.DAY_OF_MONTH, 1);
+        Calendar cal = (Calendar) selectedMonth.clone();
         int maxDay = cal.getActualMaximum(Calendar.DAY_OF_MONTH);
 
         SimpleDateFormat dateIdFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
@@ -175,6 +209,6 @@ public class AttendanceProfileDialog extends DialogFragment {
         }
 
         binding.progressBar.setVisibility(View.GONE);
-        adapter.notifyDataSetChanged();
+        binding.gridAttendanceTable.notifyDataChanged();
     }
 }
\ No newline at end of file
@@ -0,0 +1,137 @@
+package com.inout.app.utils;
+
+import com.inout.app.models.AttendanceEvent;
+import com.inout.app.models.AttendanceRecord;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Deterministic fold of AttendanceEvents into an AttendanceRecord.
+ *
+ * The same fold is used for the live write (the daily document is merged with the projection of the
+ * new event inside the state machine transaction), for compaction and for incremental sync, so the
+ * daily document is always the projection of its events.
+ *
+ * Rules:
+ * 1. Events are applied in (timestamp, eventId) order.
+ * 2. Events at or before the record's lastEventTimestamp are already folded and are skipped,
+ *    so applying the same event twice is harmless.
+ * 3. Events that AttendanceStateMachine would reject (a second check-in, a transit after check-out)
+ *    are ignored, exactly as the live write would have refused them.
+ * 4. Every folded event's ID is appended to the record's eventIds. An event missing from it was never
+ *    accepted: either rejected by the state machine (an offline action another device beat) or queued
+ *    offline and not reconciled yet. AttendanceEventLog.compact() relies on this.
+ */
+public final class AttendanceProjector {
+
+    public static final Comparator<AttendanceEvent> ORDER = (a, b) -> {
+        int byTime = Long.compare(a.getTimestamp(), b.getTimestamp());
+        if (byTime != 0) return byTime;
+        String idA = a.getEventId() != null ? a.getEventId() : "";
+        String idB = b.getEventId() != null ? b.getEventId() : "";
+        return idA.compareTo(idB);
+    };
+
+    private AttendanceProjector() {}
+
+    /**
+     * @return The day's record, or null if the events do not start with a valid check-in.
+     */
+    public static AttendanceRecord project(List<AttendanceEvent> events) {
+        List<AttendanceEvent> sorted = new ArrayList<>(events);
+        Collections.sort(sorted, ORDER);
+
+        AttendanceRecord record = null;
+        for (AttendanceEvent event : sorted) {
+            record = apply(record, event);
+        }
+        return record;
+    }
+
+    /**
+     * Folds a new action into a copy of the current record. The event's timestamp is first moved past the
+     * record's last event: when this device's clock is behind the one that wrote it, rule 2 would skip the
+     * event while the write still commits and reports success. The event is updated in place, so the stored
+     * event carries the same timestamp. Safe to call again on a transaction retry.
+     */
+    public static AttendanceRecord applyNew(AttendanceRecord current, AttendanceEvent event) {
+        event.setTimestamp(Math.max(event.getTimestamp(), current.getLastEventTimestamp() + 1));
+        return apply(current.copy(), event);
+    }
+
+    /**
+     * Folds one event into the record (modified in place; pass a copy() to keep the original).
+     * @param record null before the check-in.
+     * @return The record after the event (a new record for a check-in).
+     */
+    public static AttendanceRecord apply(AttendanceRecord record, AttendanceEvent event) {
+        if (record != null && event.getTimestamp() <= record.getLastEventTimestamp()) return record;
+
+        AttendanceStateMachine.Action action = actionOf(event.getType());
+        if (action == null || AttendanceStateMachine.rejectReason(record, action, event.getLocationId()) != null) {
+            return record;
+        }
+
+        switch (action) {
+            case CHECK_IN:
+                record = new AttendanceRecord(event.getEmployeeId(), event.getEmployeeName(), event.getDate(), event.getTimestamp());
+                record.setRecordId(event.getRecordId());
+                record.setCheckInTime(event.getTime());
+                record.setCheckInLat(event.getLat());
+                record.setCheckInLng(event.getLng());
+                record.setFingerprintVerified(event.isFingerprintVerified());
+                record.setGpsVerified(event.isGpsVerified());
+                record.setDistanceMeters(event.getDistanceMeters());
+                record.setAssignedShift(event.getAssignedShift() != null ? event.getAssignedShift() : "N/A");
+                record.setAssignedLocationId(event.getAssignedLocationId());
+                record.setLocationName(event.getLocationName());
+                record.setLastVerifiedLocationId(event.getLocationId());
+
+                List<String> moves = new ArrayList<>();
+                if (event.getStartLocationName() != null) {
+                    record.setStartLocationName(event.getStartLocationName());
+                    moves.add("Started at " + event.getStartLocationName());
+                } else {
+                    moves.add(event.getLocationName());
+                }
+                record.setMovementLog(moves);
+                record.setMovementCount(moves.size());
+                break;
+
+            case TRANSIT:
+                record.setDistanceMeters(record.getDistanceMeters() + event.getDistanceMeters());
+                record.setLocationName(event.getLocationName());
+                record.setLastVerifiedLocationId(event.getLocationId());
+                record.setMovementCount(record.getMovementCount() + 1);
+                record.setMovementLog(AttendanceRecord.appendBounded(record.getMovementLog(), event.getLocationName()));
+                break;
+
+            case CHECK_OUT:
+                record.setCheckOutTime(event.getTime());
+                record.setCheckOutLat(event.getLat());
+                record.setCheckOutLng(event.getLng());
+                record.setTotalHours(TimeUtils.calculateDuration(record.getCheckInTime(), event.getTime()));
+                record.setWorkedMinutes(Math.max(0, TimeUtils.calculateDurationMinutes(record.getCheckInTime(), event.getTime())));
+                record.setOvertimeMinutes(event.getOvertimeMinutes());
+                record.setOvertimeHours(TimeUtils.formatMinutes(event.getOvertimeMinutes()));
+                record.setAutoClosed(event.isAutoClosed());
+                break;
+        }
+
+        record.setLastEventTimestamp(event.getTimestamp());
+        List<String> ids = record.getEventIds() != null ? new ArrayList<>(record.getEventIds()) : new ArrayList<String>();
+        if (event.getEventId() != null) ids.add(event.getEventId());
+        record.setEventIds(ids);
+        return record;
+    }
+
+    private static AttendanceStateMachine.Action actionOf(String type) {
+        if (AttendanceEvent.CHECK_IN.equals(type)) return AttendanceStateMachine.Action.CHECK_IN;
+        if (AttendanceEvent.TRANSIT.equals(type)) return AttendanceStateMachine.Action.TRANSIT;
+        if (AttendanceEvent.CHECK_OUT.equals(type)) return AttendanceStateMachine.Action.CHECK_OUT;
+        return null;
+    }
+}
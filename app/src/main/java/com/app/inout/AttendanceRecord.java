@@ -1,7 +1,10 @@
 package com.inout.app.models;
 
+import com.google.firebase.firestore.Exclude;
 import com.google.firebase.firestore.IgnoreExtraProperties;
+import com.google.firebase.firestore.ServerTimestamp;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -11,6 +14,9 @@ import java.util.List;
 @IgnoreExtraProperties
 public class AttendanceRecord {
 
+    /** Max entries kept in movementLog; the full hop history is the TRANSIT events (attendance_events). */
+    public static final int MAX_MOVEMENT_SUMMARY = 10;
+
     private String recordId;        
     private String employeeId;
     private String employeeName;    
@@ -30,12 +36,16 @@ public class AttendanceRecord {
     private float distanceMeters;   // Distance from target at check-in
     
     // TRANSIT LOGIC FIELDS
-    private List<String> movementLog; // Stores sequence ["Loc A", "Loc B"]
+    private List<String> movementLog; // Most recent stops ["Loc A", "Loc B"], bounded to MAX_MOVEMENT_SUMMARY
+    private int movementCount;        // Total stops ever appended (movementLog may hold fewer)
     private String lastVerifiedLocationId; // ID of the place currently checked in/transited to
+    private String assignedLocationId;     // Employee's home branch at check-in (scopes branch admin queries)
 
     // NEW FIELDS FOR SHIFT & TRAVELING
     private String assignedShift;   // e.g. "09:00 AM - 06:00 PM"
     private String overtimeHours;   // e.g. "3h 00m"
+    private int workedMinutes;      // Same as totalHours, numeric so the server can sum it
+    private int overtimeMinutes;    // Same as overtimeHours, numeric
     private String startLocationName; // Where the travel started (e.g. "Home")
 
     // Security flags
@@ -43,6 +53,17 @@ public class AttendanceRecord {
     private boolean gpsVerified; 
     
     private long timestamp; 
+    private long lastEventTimestamp; // Newest AttendanceEvent folded into this record (event-log cursor)
+    private boolean autoClosed;      // Checked out by the nightly job at shift end, not by the employee
+    private List<String> eventIds;   // AttendanceEvents accepted into this record, in fold order (see AttendanceProjector)
+    @ServerTimestamp
+    private Date updatedAt;          // Set by the server on every write (delta sync watermark, see DeltaSync)
+
+    // Derived values and display strings, built once per record version and dropped by every setter.
+    // No getter of its own, so Firestore never stores it. Volatile and immutable, so a reader on another
+    // thread sees either null or a complete bundle; renderers still snapshot it on the main thread.
+    private volatile Derived derived;
+    private int displayVersion;   // Bumped by invalidate(), lets renderers tell when their cached row is stale
 
     /**
      * Default constructor required for Firestore.
@@ -66,8 +87,15 @@ public class AttendanceRecord {
 
     /**
      * Helper to determine status for the UI logic.
+     * UPDATED: Memoised with the other derived values (see Derived).
      */
     public String getStatus() {
+        return derived().status;
+    }
+
+    private String computeStatus() {
+        // Checked out by the nightly job: the employee never checked out
+        if (checkInTime != null && autoClosed) return "Partial";
         if (checkInTime != null && checkOutTime != null && fingerprintVerified && gpsVerified) {
             return "Present";
         } else if (checkInTime != null) {
@@ -79,8 +107,14 @@ public class AttendanceRecord {
 
     /**
      * Helper to generate the Transit Summary string for CSV and UI.
+     * UPDATED: Built from the bounded movementLog summary and memoised, since adapters and
+     * CSV export call it for every row.
      */
     public String getTransitSummary() {
+        return derived().transitSummary;
+    }
+
+    private String buildTransitSummary() {
         if (movementLog == null || movementLog.size() <= 1) {
             // If traveling mode was used, show the start location
             if (startLocationName != null && !startLocationName.isEmpty()) {
@@ -95,6 +129,12 @@ public class AttendanceRecord {
             builder.append(startLocationName).append(" → ");
         }
 
+        // Older stops were trimmed from the summary; say how many
+        int hidden = movementCount - movementLog.size();
+        if (hidden > 0) {
+            builder.append("… +").append(hidden).append(" earlier → ");
+        }
+
         for (int i = 0; i < movementLog.size(); i++) {
             builder.append(movementLog.get(i));
             if (i < movementLog.size() - 1) {
@@ -104,74 +144,226 @@ public class AttendanceRecord {
         return builder.toString();
     }
 
+    /**
+     * Appends a stop to a movement log, keeping only the newest MAX_MOVEMENT_SUMMARY entries.
+     * Repeat visits are kept (A -> B -> A), unlike FieldValue.arrayUnion.
+     */
+    public static List<String> appendBounded(List<String> log, String stop) {
+        List<String> result = new ArrayList<>(log != null ? log : new ArrayList<String>());
+        result.add(stop);
+        while (result.size() > MAX_MOVEMENT_SUMMARY) {
+            result.remove(0);
+        }
+        return result;
+    }
+
+    /**
+     * @return Total stops recorded today, including ones trimmed from movementLog.
+     * Records written before movementCount existed fall back to the log size.
+     */
+    public int getMovementCount() {
+        int logSize = movementLog != null ? movementLog.size() : 0;
+        return Math.max(movementCount, logSize);
+    }
+
+    // Display strings for the 13-column table and CSV (not stored in Firestore)
+
+    @Exclude public String getCheckInDisplay() { return derived().checkIn; }
+    @Exclude public String getCheckOutDisplay() { return derived().checkOut; }
+    @Exclude public String getDayDisplay() { return derived().day; }
+    @Exclude public String getShiftDisplay() { return derived().shift; }
+    @Exclude public String getTotalHoursDisplay() { return derived().totalHours; }
+    @Exclude public String getOvertimeDisplay() { return derived().overtime; }
+    @Exclude public String getLocationDisplay() { return derived().location; }
+    @Exclude public String getDistanceDisplay() { return derived().distance; }         // e.g. "42m"
+    @Exclude public String getDistanceValueDisplay() { return derived().distanceValue; } // e.g. "42" (CSV)
+
+    private Derived derived() {
+        Derived d = derived;
+        if (d == null) {
+            d = new Derived(this);
+            derived = d;
+        }
+        return d;
+    }
+
+    /**
+     * Drops the memoised values. Called by every setter; call it too after mutating the list
+     * returned by getMovementLog() in place.
+     */
+    public void invalidate() {
+        derived = null;
+        displayVersion++;
+    }
+
+    @Exclude public int getDisplayVersion() { return displayVersion; }
+
     // Getters and Setters
 
     public String getRecordId() { return recordId; }
-    public void setRecordId(String recordId) { this.recordId = recordId; }
+    public void setRecordId(String recordId) { this.recordId = recordId; invalidate(); }
 
     public String getEmployeeId() { return employeeId; }
-    public void setEmployeeId(String employeeId) { this.employeeId = employeeId; }
+    public void setEmployeeId(String employeeId) { this.employeeId = employeeId; invalidate(); }
 
     public String getEmployeeName() { return employeeName; }
-    public void setEmployeeName(String employeeName) { this.employeeName = employeeName; }
+    public void setEmployeeName(String employeeName) { this.employeeName = employeeName; invalidate(); }
 
     public String getDate() { return date; }
-    public void setDate(String date) { this.date = date; }
+    public void setDate(String date) { this.date = date; invalidate(); }
 
     public String getDayOfWeek() { return dayOfWeek; }
-    public void setDayOfWeek(String dayOfWeek) { this.dayOfWeek = dayOfWeek; }
+    public void setDayOfWeek(String dayOfWeek) { this.dayOfWeek = dayOfWeek; invalidate(); }
 
     public String getCheckInTime() { return checkInTime; }
-    public void setCheckInTime(String checkInTime) { this.checkInTime = checkInTime; }
+    public void setCheckInTime(String checkInTime) { this.checkInTime = checkInTime; invalidate(); }
 
     public double getCheckInLat() { return checkInLat; }
-    public void setCheckInLat(double checkInLat) { this.checkInLat = checkInLat; }
+    public void setCheckInLat(double checkInLat) { this.checkInLat = checkInLat; invalidate(); }
 
     public double getCheckInLng() { return checkInLng; }
-    public void setCheckInLng(double checkInLng) { this.checkInLng = checkInLng; }
+    public void setCheckInLng(double checkInLng) { this.checkInLng = checkInLng; invalidate(); }
 
     public String getCheckOutTime() { return checkOutTime; }
-    public void setCheckOutTime(String checkOutTime) { this.checkOutTime = checkOutTime; }
+    public void setCheckOutTime(String checkOutTime) { this.checkOutTime = checkOutTime; invalidate(); }
 
     public double getCheckOutLat() { return checkOutLat; }
-    public void setCheckOutLat(double checkOutLat) { this.checkOutLat = checkOutLat; }
+    public void setCheckOutLat(double checkOutLat) { this.checkOutLat = checkOutLat; invalidate(); }
 
     public double getCheckOutLng() { return checkOutLng; }
-    public void setCheckOutLng(double checkOutLng) { this.checkOutLng = checkOutLng; }
+    public void setCheckOutLng(double checkOutLng) { this.checkOutLng = checkOutLng; invalidate(); }
 
     public String getTotalHours() { return totalHours; }
-    public void setTotalHours(String totalHours) { this.totalHours = totalHours; }
+    public void setTotalHours(String totalHours) { this.totalHours = totalHours; invalidate(); }
 
     public String getLocationName() { return locationName; }
-    public void setLocationName(String locationName) { this.locationName = locationName; }
+    public void setLocationName(String locationName) { this.locationName = locationName; invalidate(); }
 
     public float getDistanceMeters() { return distanceMeters; }
-    public void setDistanceMeters(float distanceMeters) { this.distanceMeters = distanceMeters; }
+    public void setDistanceMeters(float distanceMeters) { this.distanceMeters = distanceMeters; invalidate(); }
 
     public List<String> getMovementLog() { return movementLog; }
-    public void setMovementLog(List<String> movementLog) { this.movementLog = movementLog; }
+    public void setMovementLog(List<String> movementLog) { this.movementLog = movementLog; invalidate(); }
+
+    public void setMovementCount(int movementCount) { this.movementCount = movementCount; invalidate(); }
 
     public String getLastVerifiedLocationId() { return lastVerifiedLocationId; }
-    public void setLastVerifiedLocationId(String lastVerifiedLocationId) { this.lastVerifiedLocationId = lastVerifiedLocationId; }
+    public void setLastVerifiedLocationId(String lastVerifiedLocationId) { this.lastVerifiedLocationId = lastVerifiedLocationId; invalidate(); }
+
+    public String getAssignedLocationId() { return assignedLocationId; }
+    public void setAssignedLocationId(String assignedLocationId) { this.assignedLocationId = assignedLocationId; invalidate(); }
 
     // NEW GETTERS/SETTERS
     public String getAssignedShift() { return assignedShift; }
-    public void setAssignedShift(String assignedShift) { this.assignedShift = assignedShift; }
+    public void setAssignedShift(String assignedShift) { this.assignedShift = assignedShift; invalidate(); }
 
     public String getOvertimeHours() { return overtimeHours; }
-    public void setOvertimeHours(String overtimeHours) { this.overtimeHours = overtimeHours; }
+    public void setOvertimeHours(String overtimeHours) { this.overtimeHours = overtimeHours; invalidate(); }
+
+    public int getWorkedMinutes() { return workedMinutes; }
+    public void setWorkedMinutes(int workedMinutes) { this.workedMinutes = workedMinutes; invalidate(); }
+
+    public int getOvertimeMinutes() { return overtimeMinutes; }
+    public void setOvertimeMinutes(int overtimeMinutes) { this.overtimeMinutes = overtimeMinutes; invalidate(); }
 
     public String getStartLocationName() { return startLocationName; }
-    public void setStartLocationName(String startLocationName) { this.startLocationName = startLocationName; }
+    public void setStartLocationName(String startLocationName) { this.startLocationName = startLocationName; invalidate(); }
 
     public boolean isFingerprintVerified() { return fingerprintVerified; }
-    public void setFingerprintVerified(boolean fingerprintVerified) { this.fingerprintVerified = fingerprintVerified; }
+    public void setFingerprintVerified(boolean fingerprintVerified) { this.fingerprintVerified = fingerprintVerified; invalidate(); }
 
     public boolean isGpsVerified() { return gpsVerified; }
-    public void setGpsVerified(boolean gpsVerified) { this.gpsVerified = gpsVerified; }
+    public void setGpsVerified(boolean gpsVerified) { this.gpsVerified = gpsVerified; invalidate(); }
 
-    public void setLocationVerified(boolean verified) { this.gpsVerified = verified; }
+    public void setLocationVerified(boolean verified) { this.gpsVerified = verified; invalidate(); }
 
     public long getTimestamp() { return timestamp; }
-    public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
-}
\ No newline at end of file
+    public void setTimestamp(long timestamp) { this.timestamp = timestamp; invalidate(); }
+
+    public long getLastEventTimestamp() { return lastEventTimestamp; }
+    public void setLastEventTimestamp(long lastEventTimestamp) { this.lastEventTimestamp = lastEventTimestamp; invalidate(); }
+
+    public boolean isAutoClosed() { return autoClosed; }
+    public void setAutoClosed(boolean autoClosed) { this.autoClosed = autoClosed; invalidate(); }
+
+    public List<String> getEventIds() { return eventIds; }
+    public void setEventIds(List<String> eventIds) { this.eventIds = eventIds; }
+
+    public Date getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Date updatedAt) { this.updatedAt = updatedAt; }
+
+    /**
+     * @return A field-by-field copy, so a projection can be applied without touching the original.
+     * updatedAt is left null on purpose: writing the copy back gets a fresh server timestamp.
+     */
+    public AttendanceRecord copy() {
+        AttendanceRecord c = new AttendanceRecord();
+        c.recordId = recordId;
+        c.employeeId = employeeId;
+        c.employeeName = employeeName;
+        c.date = date;
+        c.dayOfWeek = dayOfWeek;
+        c.checkInTime = checkInTime;
+        c.checkInLat = checkInLat;
+        c.checkInLng = checkInLng;
+        c.checkOutTime = checkOutTime;
+        c.checkOutLat = checkOutLat;
+        c.checkOutLng = checkOutLng;
+        c.totalHours = totalHours;
+        c.locationName = locationName;
+        c.distanceMeters = distanceMeters;
+        c.movementLog = movementLog != null ? new ArrayList<>(movementLog) : new ArrayList<String>();
+        c.movementCount = movementCount;
+        c.lastVerifiedLocationId = lastVerifiedLocationId;
+        c.assignedLocationId = assignedLocationId;
+        c.assignedShift = assignedShift;
+        c.overtimeHours = overtimeHours;
+        c.workedMinutes = workedMinutes;
+        c.overtimeMinutes = overtimeMinutes;
+        c.startLocationName = startLocationName;
+        c.fingerprintVerified = fingerprintVerified;
+        c.gpsVerified = gpsVerified;
+        c.timestamp = timestamp;
+        c.lastEventTimestamp = lastEventTimestamp;
+        c.autoClosed = autoClosed;
+        c.eventIds = eventIds != null ? new ArrayList<>(eventIds) : null;
+        return c;
+    }
+
+    /**
+     * Immutable bundle of everything the adapter and CSV export derive from one record version.
+     * Built in one pass, so a fling through a year of history allocates these strings once per row.
+     */
+    private static final class Derived {
+        final String status;
+        final String transitSummary;
+        final String checkIn;
+        final String checkOut;
+        final String day;
+        final String shift;
+        final String totalHours;
+        final String overtime;
+        final String location;
+        final String distance;
+        final String distanceValue;
+
+        Derived(AttendanceRecord r) {
+            status = r.computeStatus();
+            transitSummary = r.buildTransitSummary();
+            checkIn = r.checkInTime != null ? r.checkInTime : "--:--";
+            checkOut = r.checkOutTime != null ? r.checkOutTime : "--:--";
+            day = r.dayOfWeek != null ? r.dayOfWeek : "--";
+            shift = r.assignedShift != null ? r.assignedShift : "--";
+            totalHours = r.totalHours != null ? r.totalHours : "0h 00m";
+            overtime = r.overtimeHours != null ? r.overtimeHours : "--";
+            location = r.locationName != null ? r.locationName : "N/A";
+            if (r.checkInTime != null) {
+                distanceValue = String.valueOf(Math.round(r.distanceMeters));
+                distance = distanceValue + "m";
+            } else {
+                distanceValue = "--";
+                distance = "--";
+            }
+        }
+    }
+}
@@ -63,7 +63,7 @@ public class AttendanceReportManager {
                 absentRecord.setDayOfWeek(dayName);
                 
                 // Note: Fields like totalHours, checkInTime, etc., stay null.
-                // The AttendanceAdapter and getStatus() logic will show this as "Absent".
+                // The attendance grid and getStatus() logic will show this as "Absent".
                 
                 fullList.add(absentRecord);
             }
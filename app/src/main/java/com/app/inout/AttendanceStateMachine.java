@@ -0,0 +1,251 @@
+package com.inout.app.utils;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+import com.inout.app.models.AttendanceRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * State machine for today's attendance record:
+ *
+ *   NOT_STARTED --CHECK_IN--> CHECKED_IN --CHECK_OUT--> CHECKED_OUT
+ *                              |      ^
+ *                              +------+ TRANSIT (to a different location)
+ *
+ * Two layers of enforcement:
+ * 1. rejectReason() checks the locally cached record, so double taps and actions that are
+ *    already done are answered without a prompt, a GPS fix or any Firestore read/write.
+ * 2. commit() applies the write inside a Firestore transaction that re-checks the transition
+ *    against the server copy, so a second device or a replayed action cannot overwrite the
+ *    morning check-in. The transaction's own read is the only read.
+ *
+ * The Android SDK has no precondition option for set()/update(), hence the transaction.
+ * Transactions need the server. When offline, only the action's event documents (SideWrite.event,
+ * new IDs, so they can never overwrite anything) are queued; nothing is merged into the daily record.
+ * Once the server acknowledges the events, the same guarded transaction folds the action into the
+ * record, so an offline check-in can never overwrite one another device made meanwhile: it is
+ * rejected instead. It stays in the event log but never enters the record's eventIds, so compaction
+ * (AttendanceEventLog.compact) never folds it in either.
+ */
+public final class AttendanceStateMachine {
+
+    public enum State { NOT_STARTED, CHECKED_IN, CHECKED_OUT }
+
+    public enum Action { CHECK_IN, TRANSIT, CHECK_OUT }
+
+    /**
+     * Computes the fields to merge for one action from the current record (null if none exists).
+     * May run more than once (transaction retries), so it must not have side effects.
+     */
+    public interface Mutation {
+        Object dataFor(AttendanceRecord current);
+    }
+
+    /**
+     * Extra documents written in the same transaction as the record (transit events, counters),
+     * computed from the same current record. May run more than once, like Mutation.
+     */
+    public interface SideWrites {
+        void addTo(List<SideWrite> writes, AttendanceRecord current);
+    }
+
+    /**
+     * One extra document write: a plain set (new documents), an event (a new document that is also
+     * queued while offline) or a merge (increments into shared documents).
+     */
+    public static final class SideWrite {
+        final DocumentReference ref;
+        final Object data;
+        final boolean merge;
+        final boolean event;
+
+        private SideWrite(DocumentReference ref, Object data, boolean merge, boolean event) {
+            this.ref = ref;
+            this.data = data;
+            this.merge = merge;
+            this.event = event;
+        }
+
+        public static SideWrite set(DocumentReference ref, Object data) {
+            return new SideWrite(ref, data, false, false);
+        }
+
+        public static SideWrite event(DocumentReference ref, Object data) {
+            return new SideWrite(ref, data, false, true);
+        }
+
+        public static SideWrite merge(DocumentReference ref, Object data) {
+            return new SideWrite(ref, data, true, false);
+        }
+    }
+
+    /**
+     * Raised from commit() when the server copy does not allow the action.
+     * Not a FirebaseFirestoreException: the transaction runner retries some of those (FAILED_PRECONDITION),
+     * and a rejection must end the transaction at once, after its single read.
+     */
+    public static class TransitionRejectedException extends RuntimeException {
+        public TransitionRejectedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * @return The rejection behind a failed commit() (possibly wrapped, e.g. by Tasks.await), or null.
+     */
+    public static TransitionRejectedException rejectionOf(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof TransitionRejectedException) return (TransitionRejectedException) t;
+        }
+        return null;
+    }
+
+    private AttendanceStateMachine() {}
+
+    public static State stateOf(AttendanceRecord record) {
+        if (record == null || isEmpty(record.getCheckInTime())) return State.NOT_STARTED;
+        if (isEmpty(record.getCheckOutTime())) return State.CHECKED_IN;
+        return State.CHECKED_OUT;
+    }
+
+    /**
+     * @param record           Today's record (cached or from the server), null if none.
+     * @param targetLocationId The location the action is being verified at.
+     * @return null if the action is allowed, otherwise a user-facing reason.
+     */
+    public static String rejectReason(AttendanceRecord record, Action action, String targetLocationId) {
+        State state = stateOf(record);
+        switch (action) {
+            case CHECK_IN:
+                if (state == State.CHECKED_IN) return "Already checked in today.";
+                if (state == State.CHECKED_OUT) return "Shift already completed today.";
+                return null;
+            case TRANSIT:
+                if (state == State.NOT_STARTED) return "Check in first.";
+                if (state == State.CHECKED_OUT) return "Shift already completed today.";
+                if (targetLocationId != null && targetLocationId.equals(record.getLastVerifiedLocationId())) {
+                    return "Already verified at this location.";
+                }
+                return null;
+            case CHECK_OUT:
+                if (state == State.NOT_STARTED) return "Check in first.";
+                if (state == State.CHECKED_OUT) return "Already checked out today.";
+                return null;
+            default:
+                return "Unknown action.";
+        }
+    }
+
+    /**
+     * Runs the mutation in one transaction, guarded by the transition check on the server copy.
+     * Fails with TransitionRejectedException if another device already moved the record on.
+     *
+     * @param cached The locally cached record, used only to compute the events queued while offline.
+     */
+    public static Task<Void> commit(FirebaseFirestore db, final DocumentReference ref, final Action action,
+                                    final String targetLocationId, final AttendanceRecord cached,
+                                    final Mutation mutation) {
+        return commit(db, ref, action, targetLocationId, cached, mutation, null);
+    }
+
+    /**
+     * Same as above, and also applies the side writes (e.g. a transit event in the record's subcollection,
+     * presence counter increments) in the same transaction, so they never disagree with the record.
+     * Document IDs of new event documents should be created once by the caller, so a retried
+     * transaction rewrites the same document.
+     */
+    public static Task<Void> commit(FirebaseFirestore db, final DocumentReference ref, final Action action,
+                                    final String targetLocationId, final AttendanceRecord cached,
+                                    final Mutation mutation, final SideWrites sideWrites) {
+        return commit(db, ref, action, targetLocationId, cached, mutation, sideWrites, null);
+    }
+
+    /**
+     * Same as above, with the offline path reported to the caller.
+     *
+     * @param onQueued Run on the main thread when the transaction could not reach the server and the
+     *                 events were queued instead. The returned task then completes once the events are on
+     *                 the server and the action has been folded into the record (or was rejected).
+     */
+    public static Task<Void> commit(final FirebaseFirestore db, final DocumentReference ref, final Action action,
+                                    final String targetLocationId, final AttendanceRecord cached,
+                                    final Mutation mutation, final SideWrites sideWrites, final Runnable onQueued) {
+        return guardedWrite(db, ref, action, targetLocationId, mutation, sideWrites, true).continueWithTask(task -> {
+            Exception e = task.getException();
+            if (!(e instanceof FirebaseFirestoreException)
+                    || ((FirebaseFirestoreException) e).getCode() != FirebaseFirestoreException.Code.UNAVAILABLE) {
+                return task;
+            }
+
+            // Offline: queue the create-only events, never a merge into the record
+            WriteBatch batch = db.batch();
+            final List<DocumentReference> events = new ArrayList<>();
+            for (SideWrite write : sideWritesFor(sideWrites, cached)) {
+                if (!write.event) continue;
+                batch.set(write.ref, write.data);
+                events.add(write.ref);
+            }
+            if (events.isEmpty()) return task; // Nothing that is safe to queue: report the failure
+
+            Task<Void> queued = batch.commit();
+            if (onQueued != null) onQueued.run();
+            return queued.continueWithTask(ack -> {
+                if (!ack.isSuccessful()) return ack;
+                for (DocumentReference w : events) FirestoreMeter.onWrite(w);
+                // Back online: fold the action in under the same guard; the events are already written
+                return guardedWrite(db, ref, action, targetLocationId, mutation, sideWrites, false);
+            });
+        });
+    }
+
+    private static Task<Void> guardedWrite(FirebaseFirestore db, final DocumentReference ref, final Action action,
+                                           final String targetLocationId, final Mutation mutation,
+                                           final SideWrites sideWrites, final boolean withEvents) {
+        final List<DocumentReference> written = new ArrayList<>(); // For FirestoreMeter, from the last attempt
+        return db.runTransaction(transaction -> {
+            written.clear();
+            DocumentSnapshot snapshot = transaction.get(ref);
+            AttendanceRecord current = snapshot.exists() ? snapshot.toObject(AttendanceRecord.class) : null;
+
+            String reason = rejectReason(current, action, targetLocationId);
+            if (reason != null) {
+                throw new TransitionRejectedException(reason);
+            }
+
+            transaction.set(ref, mutation.dataFor(current), SetOptions.merge());
+            written.add(ref);
+            for (SideWrite write : sideWritesFor(sideWrites, current)) {
+                if (write.event && !withEvents) continue; // Queued while offline, already on the server
+                if (write.merge) {
+                    transaction.set(write.ref, write.data, SetOptions.merge());
+                } else {
+                    transaction.set(write.ref, write.data);
+                }
+                written.add(write.ref);
+            }
+            return null;
+        }).addOnSuccessListener(ignored -> {
+            FirestoreMeter.onRead(ref.getParent().getId(), 1); // The guard's transaction read
+            for (DocumentReference w : written) FirestoreMeter.onWrite(w);
+        });
+    }
+
+    private static List<SideWrite> sideWritesFor(SideWrites sideWrites, AttendanceRecord current) {
+        List<SideWrite> writes = new ArrayList<>();
+        if (sideWrites != null) {
+            sideWrites.addTo(writes, current);
+        }
+        return writes;
+    }
+
+    private static boolean isEmpty(String s) {
+        return s == null || s.isEmpty();
+    }
+}
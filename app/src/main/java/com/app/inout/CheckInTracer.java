@@ -0,0 +1,137 @@
+package com.inout.app.utils;
+
+import android.os.SystemClock;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Records per-stage latency of Check-In / Transit / Check-Out actions.
+ * Keeps the most recent traces in a fixed-size ring buffer that can be exported as CSV.
+ */
+public class CheckInTracer {
+
+    public static final String STAGE_PROMPT = "prompt";       // Biometric prompt shown -> accepted
+    public static final String STAGE_FIX = "gps_fix";         // Location request -> fix received
+    public static final String STAGE_GEOCODE = "geocode";     // Reverse geocode (remote start only)
+    public static final String STAGE_WRITE_ACK = "write_ack"; // Firestore write -> server ack
+
+    private static final String[] STAGES = {STAGE_PROMPT, STAGE_FIX, STAGE_GEOCODE, STAGE_WRITE_ACK};
+    private static final int CAPACITY = 200;
+
+    private static CheckInTracer instance;
+    private final ArrayDeque<Trace> traces = new ArrayDeque<>(CAPACITY);
+
+    public static synchronized CheckInTracer getInstance() {
+        if (instance == null) {
+            instance = new CheckInTracer();
+        }
+        return instance;
+    }
+
+    /**
+     * Starts a new trace at the moment the user taps an action button.
+     */
+    public Trace begin(String action) {
+        return new Trace(this, action);
+    }
+
+    private synchronized void record(Trace trace) {
+        if (traces.size() == CAPACITY) {
+            traces.removeFirst();
+        }
+        traces.addLast(trace);
+    }
+
+    public synchronized List<Trace> getTraces() {
+        return new ArrayList<>(traces);
+    }
+
+    /**
+     * @return All buffered traces as CSV (one row per action, durations in ms, blank if a stage did not run).
+     */
+    public String toCsv() {
+        StringBuilder csv = new StringBuilder("StartedAt,Action,Outcome,TotalMs");
+        for (String stage : STAGES) {
+            csv.append(',').append(stage).append("_ms");
+        }
+        csv.append('\n');
+
+        SimpleDateFormat fmt = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+        for (Trace t : getTraces()) {
+            csv.append(fmt.format(new Date(t.startedAtMillis))).append(',')
+                    .append(t.action).append(',')
+                    .append(t.outcome).append(',')
+                    .append(t.totalMs);
+            for (String stage : STAGES) {
+                csv.append(',');
+                Long ms = t.getStageMs(stage);
+                if (ms != null) csv.append(ms);
+            }
+            csv.append('\n');
+        }
+        return csv.toString();
+    }
+
+    /**
+     * One action from tap to result. Stages may overlap (prompt and GPS fix run concurrently).
+     */
+    public static class Trace {
+        private final CheckInTracer owner;
+        private final String action;
+        private final long startedAtMillis;
+        private final long startElapsed;
+        private final Map<String, Long> stageStarts = new LinkedHashMap<>();
+        private final Map<String, Long> stageDurations = new LinkedHashMap<>();
+        private String outcome;
+        private long totalMs;
+
+        private Trace(CheckInTracer owner, String action) {
+            this.owner = owner;
+            this.action = action;
+            this.startedAtMillis = System.currentTimeMillis();
+            this.startElapsed = SystemClock.elapsedRealtime();
+        }
+
+        public synchronized void startStage(String stage) {
+            stageStarts.put(stage, SystemClock.elapsedRealtime());
+        }
+
+        public synchronized void endStage(String stage) {
+            Long start = stageStarts.get(stage);
+            if (start != null && !stageDurations.containsKey(stage)) {
+                stageDurations.put(stage, SystemClock.elapsedRealtime() - start);
+            }
+        }
+
+        /**
+         * Closes the trace and stores it in the ring buffer. Only the first call counts.
+         */
+        public void finish(String outcome) {
+            synchronized (this) {
+                if (this.outcome != null) return;
+                this.outcome = outcome;
+                this.totalMs = SystemClock.elapsedRealtime() - startElapsed;
+            }
+            owner.record(this);
+        }
+
+        public synchronized boolean isFinished() {
+            return outcome != null;
+        }
+
+        public String getAction() { return action; }
+        public synchronized String getOutcome() { return outcome; }
+        public synchronized long getTotalMs() { return totalMs; }
+
+        public synchronized Long getStageMs(String stage) {
+            return stageDurations.get(stage);
+        }
+    }
+}
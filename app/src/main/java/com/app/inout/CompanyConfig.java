@@ -2,6 +2,9 @@ package com.inout.app.models;
 
 import com.google.firebase.firestore.IgnoreExtraProperties;
 import com.google.firebase.firestore.PropertyName;
+import com.google.firebase.firestore.ServerTimestamp;
+
+import java.util.Date;
 
 /**
  * Model class representing an Office Location / Company Configuration.
@@ -16,6 +19,8 @@ public class CompanyConfig {
     private double latitude;
     private double longitude;
     private float radius;       // Allowed radius in meters (default 100)
+    @ServerTimestamp
+    private Date updatedAt;     // Set by the server on every write (delta sync watermark, see DeltaSync)
 
     public CompanyConfig() {
         // Default constructor required for Firestore
@@ -80,4 +85,14 @@ public class CompanyConfig {
     public void setRadius(float radius) {
         this.radius = radius;
     }
-}
\ No newline at end of file
+
+    @PropertyName("updatedAt")
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    @PropertyName("updatedAt")
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -9,9 +9,9 @@ import android.widget.Toast;
 import androidx.core.content.FileProvider;
 
 import com.inout.app.models.AttendanceRecord;
+import com.inout.app.utils.ShareCache;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.List;
 
@@ -33,30 +33,30 @@ public class CsvExportHelper {
     public static void exportAttendanceToCsv(Context context, List<AttendanceRecord> records, String fileName) {
         
         // 1. Create the CSV Header Row (13 Columns)
-        StringBuilder csvData = new StringBuilder();
+        StringBuilder csvData = new StringBuilder(160 * (records.size() + 1));
         csvData.append("Date,Day,CheckIn,TransitRoute,CheckOut,AssignedShift,TotalHours,Overtime,Location,DistanceMeters,FingerprintVerified,GPSVerified,Status\n");
 
         // 2. Loop through all records and format rows
         for (AttendanceRecord record : records) {
             String date = record.getDate();
             String day = record.getDayOfWeek();
-            String in = (record.getCheckInTime() != null) ? record.getCheckInTime() : "--";
+            String in = (record.getCheckInTime() != null) ? record.getCheckInTime() : "--";  // CSV keeps "--", not the table's "--:--"
             
-            // Transit Route (Wrapped in quotes to handle arrows safely)
+            // Transit Route (Wrapped in quotes to handle arrows safely), memoised on the record
             String transit = record.getTransitSummary();
             
             String out = (record.getCheckOutTime() != null) ? record.getCheckOutTime() : "--";
             
             // NEW: Shift Info
-            String shift = (record.getAssignedShift() != null) ? record.getAssignedShift() : "--";
+            String shift = record.getShiftDisplay();
             
-            String hours = (record.getTotalHours() != null) ? record.getTotalHours() : "0h 00m";
+            String hours = record.getTotalHoursDisplay();
             
             // NEW: Overtime Info
-            String overtime = (record.getOvertimeHours() != null) ? record.getOvertimeHours() : "--";
+            String overtime = record.getOvertimeDisplay();
             
-            String location = (record.getLocationName() != null) ? record.getLocationName() : "N/A";
-            String distance = (record.getCheckInTime() != null) ? String.valueOf(Math.round(record.getDistanceMeters())) : "--";
+            String location = record.getLocationDisplay();
+            String distance = record.getDistanceValueDisplay();
             
             // Convert Booleans to professional text proof
             String finger = record.isFingerprintVerified() ? "YES" : "NO";
@@ -82,15 +82,20 @@ public class CsvExportHelper {
                     .append(status).append("\n");
         }
 
-        // 3. Save to a temporary file for sharing (Zero Billing/No Permanent Storage)
+        // 3. Save to a temporary file and share it
+        shareCsv(context, csvData.toString(), fileName);
+    }
+
+    /**
+     * Writes CSV text into cacheDir/reports and opens the share menu.
+     * Zero Billing / No Permanent Storage: the file only lives in the app cache.
+     * UPDATED: Goes through ShareCache (byte budget, LRU); an identical export reuses the cached file.
+     */
+    public static void shareCsv(Context context, String csvText, String fileName) {
         try {
-            File folder = new File(context.getCacheDir(), "reports");
-            if (!folder.exists()) folder.mkdirs();
-            
-            File file = new File(folder, fileName + ".csv");
-            FileOutputStream outStream = new FileOutputStream(file);
-            outStream.write(csvData.toString().getBytes());
-            outStream.close();
+            final byte[] bytes = csvText.getBytes();
+            File file = ShareCache.obtain(context, ShareCache.REPORTS, ShareCache.key(csvText),
+                    fileName + ".csv", out -> out.write(bytes));
 
             // 4. Share the file via Intent
             shareCsvFile(context, file);
@@ -0,0 +1,235 @@
+package com.inout.app.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delta sync for 'users', 'locations' and 'attendance'.
+ *
+ * Every document the app writes to these collections carries an updatedAt server timestamp
+ * (@ServerTimestamp on the models, stamp() for map updates). For each synced scope a watermark
+ * (the newest updatedAt seen) is kept in SharedPreferences, per company.
+ *
+ * 1. The screen renders its query from the local Firestore cache (Source.CACHE, no billed reads).
+ * 2. sync() fetches only documents with updatedAt after the watermark, plus tombstones of deleted
+ *    documents, which brings the cache up to date.
+ * 3. The screen renders the query from the cache again.
+ *
+ * So reopening a screen costs reads proportional to what changed, not to the collection size.
+ * While QuotaGovernor is degraded, step 2 is skipped whenever the cache has something to show.
+ * The first sync of a scope (no watermark yet) is a full read, which also picks up documents
+ * written before updatedAt existed.
+ *
+ * Sync scopes should be filtered only on fields that never change (e.g. employeeId), otherwise a
+ * document leaving the scope would stay stale in the cache. Screens then apply their own filters
+ * to the cache query.
+ *
+ * Indexes: (scope fields, updatedAt) per scope, and (collection, deletedAt) on 'deletions'.
+ */
+public final class DeltaSync {
+
+    private static final String TAG = "DeltaSync";
+    private static final String PREFS = "delta_sync";
+
+    public static final String UPDATED_AT = "updatedAt";
+    public static final String TOMBSTONES = "deletions";
+
+    /**
+     * Server timestamps are assigned at commit, so a write can land slightly behind a watermark
+     * that was already read. Re-fetching this window costs a few duplicate reads, never a miss.
+     */
+    private static final long OVERLAP_MILLIS = 60_000;
+
+    public interface Listener {
+        /**
+         * Called with the cached result first, then again after the delta has been applied.
+         * @param synced false for the first (cache-only) call.
+         */
+        void onResult(QuerySnapshot snapshot, boolean synced);
+
+        void onError(Exception e);
+    }
+
+    private DeltaSync() {}
+
+    /**
+     * Adds the updatedAt server timestamp to a map update.
+     * @return The same map, for chaining.
+     */
+    public static Map<String, Object> stamp(Map<String, Object> updates) {
+        updates.put(UPDATED_AT, FieldValue.serverTimestamp());
+        return updates;
+    }
+
+    /**
+     * Stages a tombstone, so other devices drop the deleted document from their cache on their next sync.
+     */
+    public static void tombstone(WriteBatch batch, FirebaseFirestore db, String collection, String docId) {
+        batch.set(tombstoneRef(db, collection, docId), tombstoneOf(collection, docId));
+    }
+
+    /**
+     * Same as above, inside a transaction.
+     */
+    public static void tombstone(Transaction transaction, FirebaseFirestore db, String collection, String docId) {
+        transaction.set(tombstoneRef(db, collection, docId), tombstoneOf(collection, docId));
+    }
+
+    private static DocumentReference tombstoneRef(FirebaseFirestore db, String collection, String docId) {
+        return db.collection(TOMBSTONES).document(collection + "_" + docId);
+    }
+
+    private static Map<String, Object> tombstoneOf(String collection, String docId) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("collection", collection);
+        data.put("docId", docId);
+        data.put("deletedAt", FieldValue.serverTimestamp());
+        return data;
+    }
+
+    /**
+     * Cache first, then delta, then cache again (see class comment).
+     *
+     * @param scopeKey  Stable name of the sync scope, e.g. "users" or "attendance/EMP001".
+     * @param syncScope What is kept in sync: a collection, or one filtered on immutable fields.
+     * @param local     What the screen shows; read from the cache only.
+     */
+    public static void load(Context context, FirebaseFirestore db, String scopeKey, String collection,
+                            Query syncScope, Query local, Listener listener) {
+        FirestoreMeter.track(collection, local.get(Source.CACHE))
+                .addOnSuccessListener(cached -> {
+                    if (cached.isEmpty() && hasWatermark(context, scopeKey)) {
+                        // Cache was cleared or evicted behind our back: the watermark no longer applies
+                        reset(context, scopeKey);
+                    } else if (!cached.isEmpty() && QuotaGovernor.isDegraded()) {
+                        // Near the daily quota: the cache is the answer, the delta waits for tomorrow
+                        listener.onResult(cached, true);
+                        return;
+                    } else {
+                        listener.onResult(cached, false);
+                    }
+                    syncThenRead(context, db, scopeKey, collection, syncScope, local, listener);
+                })
+                .addOnFailureListener(e -> syncThenRead(context, db, scopeKey, collection, syncScope, local, listener));
+    }
+
+    private static void syncThenRead(Context context, FirebaseFirestore db, String scopeKey, String collection,
+                                     Query syncScope, Query local, Listener listener) {
+        sync(context, db, scopeKey, collection, syncScope)
+                .continueWithTask(task -> {
+                    if (!task.isSuccessful()) {
+                        // Offline or missing index: whatever the cache has is still the best answer
+                        Log.e(TAG, "Sync failed for " + scopeKey, task.getException());
+                    }
+                    return FirestoreMeter.track(collection, local.get(Source.CACHE));
+                })
+                .addOnSuccessListener(snapshot -> listener.onResult(snapshot, true))
+                .addOnFailureListener(listener::onError);
+    }
+
+    /**
+     * Brings the cache up to date for the scope.
+     * @return The number of changed and deleted documents fetched.
+     */
+    public static Task<Integer> sync(Context context, FirebaseFirestore db, String scopeKey, String collection, Query syncScope) {
+        final SharedPreferences prefs = prefs(context);
+        final String key = keyFor(scopeKey);
+        final long watermark = prefs.getLong(key, -1);
+
+        if (watermark < 0) {
+            // First sync: full read seeds the cache
+            return FirestoreMeter.track(collection, syncScope.get(Source.SERVER)).continueWith(task -> {
+                QuerySnapshot snapshot = task.getResult();
+                prefs.edit().putLong(key, newestOf(snapshot.getDocuments(), UPDATED_AT, 0)).apply();
+                return snapshot.size();
+            });
+        }
+
+        final Timestamp since = since(watermark);
+        Task<QuerySnapshot> changed = FirestoreMeter.track(collection,
+                syncScope.whereGreaterThan(UPDATED_AT, since).get(Source.SERVER));
+        Task<QuerySnapshot> deleted = FirestoreMeter.track(TOMBSTONES, db.collection(TOMBSTONES)
+                .whereEqualTo("collection", collection)
+                .whereGreaterThan("deletedAt", since)
+                .get(Source.SERVER));
+
+        return Tasks.whenAllSuccess(changed, deleted).continueWithTask(task -> {
+            List<DocumentSnapshot> changedDocs = changed.getResult().getDocuments();
+            List<DocumentSnapshot> tombstones = deleted.getResult().getDocuments();
+
+            // A server get of a deleted document records its absence in the cache
+            List<Task<DocumentSnapshot>> evictions = new ArrayList<>();
+            for (DocumentSnapshot tombstone : tombstones) {
+                String docId = tombstone.getString("docId");
+                if (docId != null) {
+                    evictions.add(FirestoreMeter.track(collection, db.collection(collection).document(docId).get(Source.SERVER)));
+                }
+            }
+
+            return Tasks.whenAllComplete(evictions).continueWith(ignored -> {
+                long newest = Math.max(watermark, newestOf(changedDocs, UPDATED_AT, watermark));
+                newest = Math.max(newest, newestOf(tombstones, "deletedAt", watermark));
+                prefs.edit().putLong(key, newest).apply();
+                return changedDocs.size() + tombstones.size();
+            });
+        });
+    }
+
+    /**
+     * Forgets the watermark; the next sync of the scope is a full read.
+     */
+    public static void reset(Context context, String scopeKey) {
+        prefs(context).edit().remove(keyFor(scopeKey)).apply();
+    }
+
+    private static boolean hasWatermark(Context context, String scopeKey) {
+        return prefs(context).contains(keyFor(scopeKey));
+    }
+
+    private static long newestOf(List<DocumentSnapshot> docs, String field, long fallback) {
+        long newest = fallback;
+        for (DocumentSnapshot doc : docs) {
+            Timestamp ts = doc.getTimestamp(field);
+            if (ts != null) {
+                newest = Math.max(newest, ts.toDate().getTime());
+            }
+        }
+        return newest;
+    }
+
+    /**
+     * @return The lower bound for a query after the watermark, including the overlap window.
+     */
+    static Timestamp since(long watermark) {
+        long millis = Math.max(0, watermark - OVERLAP_MILLIS);
+        return new Timestamp(millis / 1000, (int) (millis % 1000) * 1_000_000);
+    }
+
+    private static String keyFor(String scopeKey) {
+        // Watermarks are per company: each project has its own cache
+        return FirebaseManager.getActiveProjectId() + "/" + scopeKey;
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+}
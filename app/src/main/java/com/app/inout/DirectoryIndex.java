@@ -0,0 +1,207 @@
+package com.inout.app.utils;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+import com.inout.app.models.User;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Employee directory index: a few shard documents mapping uid to the roster fields
+ * (name, employee ID, phone, approval, assigned location).
+ *
+ * Roster screens read the shards (SHARDS reads) instead of one document per employee.
+ * Full 'users' documents are still the source of truth and are only needed for detail views.
+ * Every write to a user's roster fields must stage the matching entry in the same WriteBatch.
+ *
+ * Layout: employee_directory/shard_{n} -> { version, entries: { uid: { name, employeeId, ... } } }
+ * At ~150 bytes per entry one shard holds several thousand employees (1 MB document limit).
+ *
+ * UPDATED: Only rebuild() writes 'version'. Registrations and profile edits merge single entries and can
+ * create a shard before the backfill ran, so the index counts as built only when every shard carries
+ * VERSION (isBuilt()); until then roster screens rebuild it or fall back to 'users'.
+ */
+public final class DirectoryIndex {
+
+    public static final String COLLECTION = "employee_directory";
+    public static final int SHARDS = 4;
+
+    private static final String ENTRIES = "entries";
+    private static final String VERSION_FIELD = "version";
+    public static final int VERSION = 1;   // Bump to force a rebuild when the entry format changes
+
+    // User fields copied into the index
+    private static final String[] INDEXED_FIELDS = {
+            "name", "employeeId", "phone", "approved", "assignedLocationId"
+    };
+
+    private DirectoryIndex() {}
+
+    public static DocumentReference shardFor(FirebaseFirestore db, String uid) {
+        return shard(db, shardIndex(uid));
+    }
+
+    private static DocumentReference shard(FirebaseFirestore db, int index) {
+        return db.collection(COLLECTION).document("shard_" + index);
+    }
+
+    private static int shardIndex(String uid) {
+        return (uid.hashCode() & 0x7fffffff) % SHARDS;
+    }
+
+    /**
+     * Stages the full entry of an employee (e.g. a new account).
+     */
+    public static void put(WriteBatch batch, FirebaseFirestore db, User user) {
+        update(batch, db, user.getUid(), entryOf(user));
+    }
+
+    private static Map<String, Object> entryOf(User user) {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("name", user.getName());
+        entry.put("employeeId", user.getEmployeeId());
+        entry.put("phone", user.getPhone());
+        entry.put("approved", user.isApproved());
+        entry.put("assignedLocationId", user.getAssignedLocationId());
+        return entry;
+    }
+
+    /**
+     * Stages the indexed subset of a user update. Fields that are not indexed are ignored,
+     * so callers can pass the same map they write to 'users'. Merging keeps the other entries
+     * of the shard and the other fields of this entry.
+     */
+    public static void update(WriteBatch batch, FirebaseFirestore db, String uid, Map<String, Object> userFields) {
+        Map<String, Object> entry = new HashMap<>();
+        for (String field : INDEXED_FIELDS) {
+            if (userFields.containsKey(field)) {
+                entry.put(field, userFields.get(field));
+            }
+        }
+        if (entry.isEmpty()) return;
+
+        batch.set(shardFor(db, uid), entriesOf(uid, entry), SetOptions.merge());
+    }
+
+    /**
+     * Stages removal of an employee's entry (works even if the shard does not exist yet).
+     */
+    public static void remove(WriteBatch batch, FirebaseFirestore db, String uid) {
+        batch.set(shardFor(db, uid), entriesOf(uid, FieldValue.delete()), SetOptions.merge());
+    }
+
+    private static Map<String, Object> entriesOf(String uid, Object value) {
+        Map<String, Object> entries = new HashMap<>();
+        entries.put(uid, value);
+        Map<String, Object> data = new HashMap<>();
+        data.put(ENTRIES, entries);
+        return data;
+    }
+
+    /**
+     * Reads the whole roster from the shards.
+     * The result is null if the index has not been built yet (see isBuilt()).
+     */
+    public static Task<List<User>> loadRoster(FirebaseFirestore db) {
+        return FirestoreMeter.track(COLLECTION, db.collection(COLLECTION).get()).continueWith(task -> {
+            QuerySnapshot shards = task.getResult();
+            return isBuilt(shards) ? fromShards(shards) : null;
+        });
+    }
+
+    /**
+     * @return true if every shard was written by rebuild() at the current VERSION. Shards created by a
+     * single put()/update() before the backfill hold only those entries and do not count.
+     */
+    public static boolean isBuilt(QuerySnapshot shards) {
+        if (shards == null || shards.size() < SHARDS) return false;
+        for (DocumentSnapshot shard : shards.getDocuments()) {
+            Long version = shard.getLong(VERSION_FIELD);
+            if (version == null || version < VERSION) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Converts shard documents (from a get or a snapshot listener) into lightweight Users,
+     * sorted by name. Only uid, role and the indexed fields are set.
+     */
+    @SuppressWarnings("unchecked")
+    public static List<User> fromShards(QuerySnapshot shards) {
+        List<User> users = new ArrayList<>();
+        if (shards == null) return users;
+
+        for (DocumentSnapshot shard : shards.getDocuments()) {
+            Object entries = shard.get(ENTRIES);
+            if (!(entries instanceof Map)) continue;
+
+            for (Map.Entry<String, Object> e : ((Map<String, Object>) entries).entrySet()) {
+                if (!(e.getValue() instanceof Map)) continue;
+                Map<String, Object> entry = (Map<String, Object>) e.getValue();
+
+                User user = new User(e.getKey(), null, "employee");
+                user.setName((String) entry.get("name"));
+                user.setEmployeeId((String) entry.get("employeeId"));
+                user.setPhone((String) entry.get("phone"));
+                user.setApproved(Boolean.TRUE.equals(entry.get("approved")));
+                user.setAssignedLocationId((String) entry.get("assignedLocationId"));
+                users.add(user);
+            }
+        }
+
+        Collections.sort(users, (a, b) -> sortKey(a).compareTo(sortKey(b)));
+        return users;
+    }
+
+    private static String sortKey(User user) {
+        return user.getName() != null ? user.getName().toLowerCase(Locale.ROOT) : "";
+    }
+
+    /**
+     * Builds the index from the 'users' collection (one-time backfill, admin only).
+     * @return The roster that was written, sorted by name.
+     */
+    public static Task<List<User>> rebuild(FirebaseFirestore db) {
+        return FirestoreMeter.track("users", db.collection("users")
+                .whereEqualTo("role", "employee")
+                .get())
+                .continueWithTask(task -> {
+                    List<User> users = new ArrayList<>();
+                    WriteBatch batch = db.batch();
+                    // One merge per employee would exceed the 500-write batch limit, so group by shard
+                    List<Map<String, Object>> shardEntries = new ArrayList<>();
+                    for (int i = 0; i < SHARDS; i++) shardEntries.add(new HashMap<>());
+
+                    for (DocumentSnapshot doc : task.getResult()) {
+                        User user = doc.toObject(User.class);
+                        if (user == null) continue;
+                        user.setUid(doc.getId());
+                        users.add(user);
+                        shardEntries.get(shardIndex(user.getUid())).put(user.getUid(), entryOf(user));
+                    }
+                    for (int i = 0; i < SHARDS; i++) {
+                        Map<String, Object> data = new HashMap<>();
+                        data.put(VERSION_FIELD, VERSION);
+                        data.put(ENTRIES, shardEntries.get(i));
+                        // Not merged: a rebuild also drops entries of deleted users
+                        batch.set(shard(db, i), data);
+                    }
+                    Collections.sort(users, (a, b) -> sortKey(a).compareTo(sortKey(b)));
+                    return batch.commit().continueWith(ignored -> {
+                        FirestoreMeter.onWrite(COLLECTION, SHARDS);
+                        return users;
+                    });
+                });
+    }
+}
@@ -1,5 +1,6 @@
 package com.inout.app;
 
+import android.content.Context;
 import android.location.Address;
 import android.location.Geocoder;
 import android.location.Location;
@@ -12,25 +13,42 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
 
+import com.google.android.gms.tasks.Task;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
 import com.inout.app.databinding.FragmentEmployeeCheckinBinding;
+import com.inout.app.models.AttendanceEvent;
 import com.inout.app.models.AttendanceRecord;
 import com.inout.app.models.CompanyConfig;
 import com.inout.app.models.User;
+import com.inout.app.utils.AttendanceEventLog;
+import com.inout.app.utils.AttendanceIds;
+import com.inout.app.utils.AttendanceProjector;
+import com.inout.app.utils.AttendanceStateMachine;
 import com.inout.app.utils.BiometricHelper;
+import com.inout.app.utils.CheckInTracer;
+import com.inout.app.utils.FirebaseManager;
+import com.inout.app.utils.FirestoreMeter;
 import com.inout.app.utils.LocationHelper;
+import com.inout.app.utils.PresenceCounter;
+import com.inout.app.utils.QuotaGovernor;
 import com.inout.app.utils.TimeUtils;
 
 import java.io.IOException;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -45,16 +63,30 @@ public class EmployeeCheckInFragment extends Fragment {
     private FirebaseFirestore db;
     private FirebaseAuth mAuth;
     private LocationHelper locationHelper;
+    private Context appContext;
     
     private User currentUser;
     private CompanyConfig assignedLocation;
     private AttendanceRecord todayRecord;
 
+    // Today's record: current-format and legacy document (dual read during the ID migration)
+    private String todayRecordId;
+    private ListenerRegistration todayListener;
+    private ListenerRegistration legacyTodayListener;
+    private DocumentSnapshot currentDoc;
+    private DocumentSnapshot legacyDoc;
+
+    private PendingAction pendingAction;
+    private ExecutorService backgroundExecutor;
+
     // Action Constants
     private static final int ACTION_IN = 1;
     private static final int ACTION_TRANSIT = 2;
     private static final int ACTION_OUT = 3;
 
+    // Minutes after the shift start that still count as on time (presence counters)
+    private static final int LATE_GRACE_MINUTES = 0;
+
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
         binding = FragmentEmployeeCheckinBinding.inflate(inflater, container, false);
@@ -64,10 +96,13 @@ public class EmployeeCheckInFragment extends Fragment {
     @Override
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
+        FirestoreMeter.setScreen(getClass().getSimpleName());
 
-        db = FirebaseFirestore.getInstance();
-        mAuth = FirebaseAuth.getInstance();
+        appContext = requireContext().getApplicationContext();
+        db = FirebaseManager.getFirestore();
+        mAuth = FirebaseManager.getAuth();
         locationHelper = new LocationHelper(requireContext());
+        backgroundExecutor = Executors.newSingleThreadExecutor();
 
         updateButtonState(false, false, false);
 
@@ -93,6 +128,7 @@ public class EmployeeCheckInFragment extends Fragment {
         String uid = mAuth.getCurrentUser().getUid();
         
         db.collection("users").document(uid).addSnapshotListener((doc, error) -> {
+            FirestoreMeter.onListen("users", doc);
             if (error != null) return;
             
             if (doc != null && doc.exists()) {
@@ -118,7 +154,7 @@ public class EmployeeCheckInFragment extends Fragment {
     }
 
     private void fetchAssignedLocationDetails(String locId) {
-        db.collection("locations").document(locId).get().addOnSuccessListener(doc -> {
+        FirestoreMeter.track("locations", QuotaGovernor.cacheFirst(db.collection("locations").document(locId))).addOnSuccessListener(doc -> {
             if (doc.exists()) {
                 assignedLocation = doc.toObject(CompanyConfig.class);
                 assignedLocation.setId(doc.getId());
@@ -130,20 +166,58 @@ public class EmployeeCheckInFragment extends Fragment {
         }).addOnFailureListener(e -> binding.tvStatus.setText("Status: Error fetching location."));
     }
 
+    /**
+     * UPDATED: Today's record lives under the hash-prefixed ID (AttendanceIds). Until the migration
+     * has run, a record checked in before the update may still sit under the legacy ID, so both are
+     * watched and the current one wins.
+     */
     private void loadTodayAttendance() {
         if (currentUser == null || currentUser.getEmployeeId() == null) return;
         
         String dateId = TimeUtils.getCurrentDateId();
-        String recordId = currentUser.getEmployeeId() + "_" + dateId;
-
-        db.collection("attendance").document(recordId).addSnapshotListener((snapshot, e) -> {
-            if (snapshot != null && snapshot.exists()) {
-                todayRecord = snapshot.toObject(AttendanceRecord.class);
-            } else {
-                todayRecord = null;
-            }
-            updateUIBasedOnStatus();
+        String recordId = AttendanceIds.recordId(currentUser.getEmployeeId(), dateId);
+        if (recordId.equals(todayRecordId)) return; // Already listening (the user document changed)
+        todayRecordId = recordId;
+        removeTodayListeners();
+        currentDoc = null;
+        legacyDoc = null;
+
+        // Yesterday is final: rebuild its record from the event log once per day
+        AttendanceEventLog.compactYesterdayOnce(appContext, db, currentUser.getEmployeeId());
+
+        todayListener = db.collection("attendance").document(recordId).addSnapshotListener((snapshot, e) -> {
+            FirestoreMeter.onListen("attendance", snapshot);
+            currentDoc = snapshot;
+            resolveTodayRecord();
         });
+        if (AttendanceIds.DUAL_READ) {
+            String legacyId = AttendanceIds.legacyId(currentUser.getEmployeeId(), dateId);
+            legacyTodayListener = db.collection("attendance").document(legacyId).addSnapshotListener((snapshot, e) -> {
+                FirestoreMeter.onListen("attendance", snapshot);
+                legacyDoc = snapshot;
+                resolveTodayRecord();
+            });
+        }
+    }
+
+    private void resolveTodayRecord() {
+        DocumentSnapshot source = currentDoc != null && currentDoc.exists() ? currentDoc
+                : legacyDoc != null && legacyDoc.exists() ? legacyDoc : null;
+        if (source != null) {
+            todayRecord = source.toObject(AttendanceRecord.class);
+            // Transit/check-out write to the document the record was found in
+            if (todayRecord != null) todayRecord.setRecordId(source.getId());
+        } else {
+            todayRecord = null;
+        }
+        if (binding != null) updateUIBasedOnStatus();
+    }
+
+    private void removeTodayListeners() {
+        if (todayListener != null) todayListener.remove();
+        if (legacyTodayListener != null) legacyTodayListener.remove();
+        todayListener = null;
+        legacyTodayListener = null;
     }
 
     private void updateUIBasedOnStatus() {
@@ -182,20 +256,82 @@ public class EmployeeCheckInFragment extends Fragment {
         }
     }
 
+    /**
+     * One in-flight action. The biometric prompt and the GPS fix run at the same time;
+     * the action commits once both have succeeded.
+     */
+    private static class PendingAction {
+        final int actionType;
+        final CheckInTracer.Trace trace;
+        boolean authenticated;
+        Location location;
+        String locationError;
+        CompletableFuture<String> remoteAddress; // Traveling-mode check-in only, resolved while the prompt is open
+        boolean done;
+
+        PendingAction(int actionType, CheckInTracer.Trace trace) {
+            this.actionType = actionType;
+            this.trace = trace;
+        }
+    }
+
     private void initiateAction(int actionType) {
         if (assignedLocation == null) {
             Toast.makeText(getContext(), "Error: Office location not assigned.", Toast.LENGTH_LONG).show();
             return;
         }
+        if (pendingAction != null && !pendingAction.done) return; // One action at a time (double taps)
+
+        // Illegal or duplicate actions are answered from the cached record: no prompt, no GPS, no reads
+        String rejected = AttendanceStateMachine.rejectReason(todayRecord, toStateAction(actionType), assignedLocation.getId());
+        if (rejected != null) {
+            Toast.makeText(getContext(), rejected, Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        final PendingAction action = new PendingAction(actionType,
+                CheckInTracer.getInstance().begin(actionName(actionType)));
+        pendingAction = action;
+        binding.progressBar.setVisibility(View.VISIBLE);
 
+        // 1. Start the GPS fix right away so it is acquired while the prompt is on screen
+        action.trace.startStage(CheckInTracer.STAGE_FIX);
+        locationHelper.getCurrentLocation(new LocationHelper.LocationResultCallback() {
+            @Override
+            public void onLocationResult(Location location) {
+                action.trace.endStage(CheckInTracer.STAGE_FIX);
+                if (location == null) {
+                    action.locationError = "Failed to fetch current location.";
+                } else {
+                    action.location = location;
+                    if (actionType == ACTION_IN && currentUser.isTraveling()) {
+                        prefetchAddress(action);
+                    }
+                }
+                tryCommit(action);
+            }
+
+            @Override
+            public void onError(String errorMsg) {
+                action.trace.endStage(CheckInTracer.STAGE_FIX);
+                action.locationError = errorMsg;
+                tryCommit(action);
+            }
+        });
+
+        // 2. Biometric prompt in parallel
+        action.trace.startStage(CheckInTracer.STAGE_PROMPT);
         BiometricHelper.authenticate(requireActivity(), new BiometricHelper.BiometricCallback() {
             @Override
             public void onAuthenticationSuccess() {
-                verifyLocationAndProceed(actionType);
+                action.trace.endStage(CheckInTracer.STAGE_PROMPT);
+                action.authenticated = true;
+                tryCommit(action);
             }
 
             @Override
             public void onAuthenticationError(String errorMsg) {
+                abort(action, "auth_error");
                 Toast.makeText(getContext(), "Auth Error: " + errorMsg, Toast.LENGTH_SHORT).show();
             }
 
@@ -206,138 +342,301 @@ public class EmployeeCheckInFragment extends Fragment {
         });
     }
 
-    private void verifyLocationAndProceed(int actionType) {
-        binding.progressBar.setVisibility(View.VISIBLE);
-        
-        locationHelper.getCurrentLocation(new LocationHelper.LocationResultCallback() {
-            @Override
-            public void onLocationResult(Location location) {
-                binding.progressBar.setVisibility(View.GONE);
-                
-                if (location != null) {
-                    boolean inRange = LocationHelper.isWithinRadius(
-                            location.getLatitude(), location.getLongitude(),
-                            assignedLocation.getLatitude(), assignedLocation.getLongitude(),
-                            assignedLocation.getRadius());
+    /**
+     * Called whenever the prompt or the GPS fix completes; proceeds only when both are in.
+     */
+    private void tryCommit(PendingAction action) {
+        if (action.done || !action.authenticated) return;
 
-                    // UPDATED LOGIC: Traveling Mode Bypass
-                    if (actionType == ACTION_IN && currentUser.isTraveling()) {
-                        // Bypass radius check for FIRST check-in if Traveling is enabled
-                        float dist = 0; // Distance logic technically doesn't apply to "remote" start
-                        performCheckIn(location, dist, true); // True flag for remote start
-                    } 
-                    else if (inRange) {
-                        float dist = LocationHelper.calculateDistance(
-                                location.getLatitude(), location.getLongitude(),
-                                assignedLocation.getLatitude(), assignedLocation.getLongitude());
-                        
-                        if (actionType == ACTION_IN) performCheckIn(location, dist, false);
-                        else if (actionType == ACTION_TRANSIT) performTransit(location, dist);
-                        else if (actionType == ACTION_OUT) performCheckOut(location);
-                    } else {
-                        String msg = "Denied: You are not at " + assignedLocation.getName() + ".";
-                        Toast.makeText(getContext(), msg, Toast.LENGTH_LONG).show();
-                    }
-                }
-            }
+        if (action.locationError != null) {
+            abort(action, "gps_error");
+            Toast.makeText(getContext(), "GPS Error: " + action.locationError, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (action.location == null) return; // Still waiting for the fix
 
-            @Override
-            public void onError(String errorMsg) {
-                binding.progressBar.setVisibility(View.GONE);
-                Toast.makeText(getContext(), "GPS Error: " + errorMsg, Toast.LENGTH_SHORT).show();
-            }
-        });
+        action.done = true;
+        proceedWithLocation(action);
+    }
+
+    private void abort(PendingAction action, String outcome) {
+        action.done = true;
+        action.trace.finish(outcome);
+        if (binding != null) binding.progressBar.setVisibility(View.GONE);
+    }
+
+    private void proceedWithLocation(PendingAction action) {
+        if (binding == null) {
+            action.trace.finish("view_destroyed");
+            return;
+        }
+        binding.progressBar.setVisibility(View.GONE);
+
+        Location location = action.location;
+        int actionType = action.actionType;
+
+        boolean inRange = LocationHelper.isWithinRadius(
+                location.getLatitude(), location.getLongitude(),
+                assignedLocation.getLatitude(), assignedLocation.getLongitude(),
+                assignedLocation.getRadius());
+
+        // UPDATED LOGIC: Traveling Mode Bypass
+        if (actionType == ACTION_IN && currentUser.isTraveling()) {
+            // Bypass radius check for FIRST check-in if Traveling is enabled
+            float dist = 0; // Distance logic technically doesn't apply to "remote" start
+            performCheckIn(action, location, dist, true); // True flag for remote start
+        } 
+        else if (inRange) {
+            float dist = LocationHelper.calculateDistance(
+                    location.getLatitude(), location.getLongitude(),
+                    assignedLocation.getLatitude(), assignedLocation.getLongitude());
+            
+            if (actionType == ACTION_IN) performCheckIn(action, location, dist, false);
+            else if (actionType == ACTION_TRANSIT) performTransit(action, location, dist);
+            else if (actionType == ACTION_OUT) performCheckOut(action, location);
+        } else {
+            action.trace.finish("out_of_range");
+            String msg = "Denied: You are not at " + assignedLocation.getName() + ".";
+            Toast.makeText(getContext(), msg, Toast.LENGTH_LONG).show();
+        }
     }
 
     /**
      * @param isRemoteStart If true, user is checking in from home/travel, not the office.
      */
-    private void performCheckIn(Location loc, float distance, boolean isRemoteStart) {
+    private void performCheckIn(PendingAction action, Location loc, float distance, boolean isRemoteStart) {
         String dateId = TimeUtils.getCurrentDateId();
-        String recordId = currentUser.getEmployeeId() + "_" + dateId;
-
-        AttendanceRecord record = new AttendanceRecord(
-                currentUser.getEmployeeId(), 
-                currentUser.getName(), 
-                dateId, 
-                TimeUtils.getCurrentTimestamp());
-
-        record.setRecordId(recordId);
-        record.setCheckInTime(TimeUtils.getCurrentTime());
-        record.setCheckInLat(loc.getLatitude());
-        record.setCheckInLng(loc.getLongitude());
-        record.setFingerprintVerified(true);
-        record.setLocationVerified(true);
-        record.setDistanceMeters(distance);
-        
+        String recordId = AttendanceIds.recordId(currentUser.getEmployeeId(), dateId);
+
+        // The check-in is appended to the event log; the daily record is its projection
+        DocumentReference eventRef = AttendanceEventLog.newEventRef(db);
+        AttendanceEvent event = new AttendanceEvent(eventRef.getId(), AttendanceEvent.CHECK_IN, recordId,
+                currentUser.getEmployeeId(), dateId, TimeUtils.getCurrentTimestamp(), TimeUtils.getCurrentTime());
+        event.setEmployeeName(currentUser.getName());
+        event.setLat(loc.getLatitude());
+        event.setLng(loc.getLongitude());
+        event.setFingerprintVerified(true);
+        event.setGpsVerified(true);
+        event.setDistanceMeters(distance);
+        event.setLocationId(assignedLocation.getId());
+        event.setLocationName(assignedLocation.getName()); // Still assigned to the final destination when remote
+        event.setAssignedLocationId(currentUser.getAssignedLocationId()); // Branch admins query by this
+
         // Save assigned shift info for the record
         String shiftInfo = "N/A";
         if (currentUser.getShiftStartTime() != null && currentUser.getShiftEndTime() != null) {
             shiftInfo = currentUser.getShiftStartTime() + " - " + currentUser.getShiftEndTime();
         }
-        record.setAssignedShift(shiftInfo);
+        event.setAssignedShift(shiftInfo);
 
-        List<String> moves = new ArrayList<>();
-        
         if (isRemoteStart) {
-            // Find address name for remote start
-            String addressName = getAddressName(loc);
-            record.setStartLocationName(addressName); // "Home" or street address
-            record.setLocationName(assignedLocation.getName()); // Still assigned to the final destination
-            moves.add("Started at " + addressName); // Add to log
-        } else {
-            record.setLocationName(assignedLocation.getName());
-            moves.add(assignedLocation.getName());
+            // Find address name for remote start ("Home" or street address); the write waits for it,
+            // the main thread does not
+            binding.progressBar.setVisibility(View.VISIBLE);
+            addressFor(action).thenAcceptAsync(address -> {
+                if (binding == null) {
+                    action.trace.finish("view_destroyed");
+                    return;
+                }
+                binding.progressBar.setVisibility(View.GONE);
+                event.setStartLocationName(address);
+                commitCheckIn(action, event, eventRef, recordId, dateId);
+            }, ContextCompat.getMainExecutor(appContext));
+            return;
         }
-        
-        record.setMovementLog(moves);
-        record.setLastVerifiedLocationId(assignedLocation.getId());
-
-        db.collection("attendance").document(recordId).set(record)
-                .addOnSuccessListener(aVoid -> Toast.makeText(getContext(), "Check-In Success!", Toast.LENGTH_SHORT).show());
+        commitCheckIn(action, event, eventRef, recordId, dateId);
     }
 
-    private void performTransit(Location loc, float distance) {
-        if (todayRecord == null) return;
+    private void commitCheckIn(PendingAction action, AttendanceEvent event, DocumentReference eventRef,
+                               String recordId, String dateId) {
+        final AttendanceRecord record = AttendanceProjector.apply(null, event);
+
+        // Live presence counters move in the same transaction (a rejected check-in never counts)
+        final DocumentReference counterShard = PresenceCounter.randomShard(db, dateId);
+        final Map<String, Object> counterDelta = PresenceCounter.onCheckIn(
+                assignedLocation.getId(), isLate(record.getCheckInTime()));
+
+        // Guarded write: the transaction refuses to overwrite a check-in made by another device
+        action.trace.startStage(CheckInTracer.STAGE_WRITE_ACK);
+        trackWriteAck(action, AttendanceStateMachine.commit(db, db.collection("attendance").document(recordId),
+                AttendanceStateMachine.Action.CHECK_IN, assignedLocation.getId(), todayRecord,
+                current -> record,
+                (writes, current) -> {
+                    writes.add(AttendanceStateMachine.SideWrite.event(eventRef, event));
+                    writes.add(AttendanceStateMachine.SideWrite.merge(counterShard, counterDelta));
+                },
+                () -> onQueuedOffline(action, record)),
+                "Check-In Success!");
+    }
 
-        float newTotalDist = todayRecord.getDistanceMeters() + distance;
-        String newLocName = assignedLocation.getName();
+    private void performTransit(PendingAction action, Location loc, float distance) {
+        if (todayRecord == null) {
+            action.trace.finish("no_record");
+            return;
+        }
 
-        db.collection("attendance").document(todayRecord.getRecordId())
-                .update(
-                    "distanceMeters", newTotalDist,
-                    "locationName", newLocName,
-                    "lastVerifiedLocationId", assignedLocation.getId(),
-                    "movementLog", FieldValue.arrayUnion(newLocName)
-                )
-                .addOnSuccessListener(aVoid -> Toast.makeText(getContext(), "Transit Verified!", Toast.LENGTH_SHORT).show());
+        final String newLocName = assignedLocation.getName();
+        final String newLocId = assignedLocation.getId();
+
+        // The full hop history is the TRANSIT events; the record only keeps a bounded summary
+        DocumentReference recordRef = db.collection("attendance").document(todayRecord.getRecordId());
+        long now = TimeUtils.getCurrentTimestamp();
+
+        DocumentReference eventRef = AttendanceEventLog.newEventRef(db);
+        AttendanceEvent event = new AttendanceEvent(eventRef.getId(), AttendanceEvent.TRANSIT, todayRecord.getRecordId(),
+                currentUser.getEmployeeId(), todayRecord.getDate(), now, TimeUtils.getCurrentTime());
+        event.setEmployeeName(currentUser.getName());
+        event.setLat(loc.getLatitude());
+        event.setLng(loc.getLongitude());
+        event.setLocationId(newLocId);
+        event.setLocationName(newLocName);
+        event.setDistanceMeters(distance);
+        DocumentReference counterShard = PresenceCounter.randomShard(db, todayRecord.getDate());
+
+        // Totals are computed from the server copy inside the transaction, not the cached record
+        action.trace.startStage(CheckInTracer.STAGE_WRITE_ACK);
+        trackWriteAck(action, AttendanceStateMachine.commit(db, recordRef,
+                AttendanceStateMachine.Action.TRANSIT, newLocId, todayRecord,
+                current -> AttendanceProjector.applyNew(current, event),
+                (writes, current) -> {
+                    writes.add(AttendanceStateMachine.SideWrite.event(eventRef, event));
+                    // Per-location presence follows the employee from the previous stop
+                    writes.add(AttendanceStateMachine.SideWrite.merge(counterShard,
+                            PresenceCounter.onTransit(current.getLastVerifiedLocationId(), newLocId)));
+                },
+                () -> onQueuedOffline(action, AttendanceProjector.applyNew(todayRecord, event))),
+                "Transit Verified!");
     }
 
-    private void performCheckOut(Location loc) {
-        if (todayRecord == null) return;
+    private void performCheckOut(PendingAction action, Location loc) {
+        if (todayRecord == null) {
+            action.trace.finish("no_record");
+            return;
+        }
 
-        String checkOutTime = TimeUtils.getCurrentTime();
-        String totalHrs = TimeUtils.calculateDuration(todayRecord.getCheckInTime(), checkOutTime);
-        
+        final String checkOutTime = TimeUtils.getCurrentTime();
+        final DocumentReference counterShard = PresenceCounter.randomShard(db, todayRecord.getDate());
+
+        // Overtime is computed once here (from the shift) and carried by the event, so the projection
+        // never depends on the profile at replay time
+        final DocumentReference eventRef = AttendanceEventLog.newEventRef(db);
+        final AttendanceEvent event = new AttendanceEvent(eventRef.getId(), AttendanceEvent.CHECK_OUT, todayRecord.getRecordId(),
+                currentUser.getEmployeeId(), todayRecord.getDate(), TimeUtils.getCurrentTimestamp(), checkOutTime);
+        event.setEmployeeName(currentUser.getName());
+        event.setLat(loc.getLatitude());
+        event.setLng(loc.getLongitude());
+        event.setLocationId(assignedLocation.getId());
+        event.setLocationName(assignedLocation.getName());
         // NEW: OVERTIME CALCULATION
-        String overtimeStr = calculateOvertime(todayRecord.getCheckInTime(), checkOutTime);
-
-        db.collection("attendance").document(todayRecord.getRecordId())
-                .update(
-                        "checkOutTime", checkOutTime,
-                        "checkOutLat", loc.getLatitude(),
-                        "checkOutLng", loc.getLongitude(),
-                        "totalHours", totalHrs,
-                        "overtimeHours", overtimeStr // Save calculated overtime
-                )
-                .addOnSuccessListener(aVoid -> Toast.makeText(getContext(), "Check-Out Success!", Toast.LENGTH_SHORT).show());
+        event.setOvertimeMinutes(calculateOvertimeMinutes(todayRecord.getCheckInTime(), checkOutTime));
+
+        action.trace.startStage(CheckInTracer.STAGE_WRITE_ACK);
+        trackWriteAck(action, AttendanceStateMachine.commit(db, db.collection("attendance").document(todayRecord.getRecordId()),
+                AttendanceStateMachine.Action.CHECK_OUT, assignedLocation.getId(), todayRecord,
+                current -> AttendanceProjector.applyNew(current, event),
+                (writes, current) -> {
+                    writes.add(AttendanceStateMachine.SideWrite.event(eventRef, event));
+                    writes.add(AttendanceStateMachine.SideWrite.merge(counterShard,
+                            PresenceCounter.onCheckOut(current.getLastVerifiedLocationId())));
+                },
+                () -> onQueuedOffline(action, AttendanceProjector.applyNew(todayRecord, event))),
+                "Check-Out Success!");
+    }
+
+    /**
+     * Late = checked in after the assigned shift start.
+     */
+    private boolean isLate(String checkInTime) {
+        int shiftStart = TimeUtils.minutesOfDay(currentUser.getShiftStartTime());
+        int checkIn = TimeUtils.minutesOfDay(checkInTime);
+        return shiftStart >= 0 && checkIn > shiftStart + LATE_GRACE_MINUTES;
+    }
+
+    /**
+     * Closes the trace when the server acknowledges the write.
+     * The UI already updated from the local cache through the snapshot listener.
+     * An action queued offline completes (or is rejected) only once the device is back online.
+     */
+    private void trackWriteAck(PendingAction action, Task<Void> write, String successMsg) {
+        write.addOnSuccessListener(aVoid -> {
+            action.trace.endStage(CheckInTracer.STAGE_WRITE_ACK);
+            action.trace.finish("success");
+            if (getContext() == null) return;
+            Toast.makeText(getContext(), successMsg, Toast.LENGTH_SHORT).show();
+        }).addOnFailureListener(e -> {
+            AttendanceStateMachine.TransitionRejectedException rejected = AttendanceStateMachine.rejectionOf(e);
+            if (rejected != null) {
+                // Another device or an earlier tap already moved today's record on
+                action.trace.finish("rejected");
+                if (getContext() == null) return;
+                Toast.makeText(getContext(), rejected.getMessage(), Toast.LENGTH_SHORT).show();
+                return;
+            }
+            action.trace.finish("write_failed");
+            Log.e(TAG, "Attendance write failed", e);
+            if (getContext() == null) return;
+            Toast.makeText(getContext(), "Save failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+        });
+    }
+
+    /**
+     * No connection: only the event was queued, the record is written once the server has it
+     * (see AttendanceStateMachine). Shows the expected state meanwhile.
+     */
+    private void onQueuedOffline(PendingAction action, AttendanceRecord projected) {
+        action.trace.finish("queued_offline");
+        if (binding == null) return;
+        todayRecord = projected;
+        updateUIBasedOnStatus();
+        Toast.makeText(getContext(), "No connection: saved, will sync when you are back online.",
+                Toast.LENGTH_LONG).show();
+    }
+
+    private static AttendanceStateMachine.Action toStateAction(int actionType) {
+        if (actionType == ACTION_IN) return AttendanceStateMachine.Action.CHECK_IN;
+        if (actionType == ACTION_TRANSIT) return AttendanceStateMachine.Action.TRANSIT;
+        return AttendanceStateMachine.Action.CHECK_OUT;
+    }
+
+    private static String actionName(int actionType) {
+        if (actionType == ACTION_IN) return "check_in";
+        if (actionType == ACTION_TRANSIT) return "transit";
+        return "check_out";
+    }
+
+    /**
+     * Starts reverse geocoding as soon as the fix arrives, so it overlaps the biometric prompt.
+     */
+    private void prefetchAddress(PendingAction action) {
+        action.remoteAddress = geocode(action);
+    }
+
+    private CompletableFuture<String> addressFor(PendingAction action) {
+        CompletableFuture<String> address = action.remoteAddress != null ? action.remoteAddress : geocode(action);
+        return address.exceptionally(e -> {
+            Log.e(TAG, "Address lookup failed", e);
+            return "Remote Location";
+        });
+    }
+
+    private CompletableFuture<String> geocode(PendingAction action) {
+        final Location loc = action.location;
+        return CompletableFuture.supplyAsync(() -> {
+            action.trace.startStage(CheckInTracer.STAGE_GEOCODE);
+            try {
+                return getAddressName(loc);
+            } finally {
+                action.trace.endStage(CheckInTracer.STAGE_GEOCODE);
+            }
+        }, backgroundExecutor);
     }
 
     /**
      * Calculates overtime based on assigned shift hours vs actual worked hours.
+     * UPDATED: Returns minutes; the "3h 00m" string is formatted by the caller.
      */
-    private String calculateOvertime(String inTime, String outTime) {
-        if (currentUser.getShiftStartTime() == null || currentUser.getShiftEndTime() == null) return "0h 00m";
+    private int calculateOvertimeMinutes(String inTime, String outTime) {
+        if (currentUser.getShiftStartTime() == null || currentUser.getShiftEndTime() == null) return 0;
 
         try {
             SimpleDateFormat sdf = new SimpleDateFormat("hh:mm a", Locale.US);
@@ -353,20 +652,17 @@ public class EmployeeCheckInFragment extends Fragment {
             long workedMillis = actualOut.getTime() - actualIn.getTime();
 
             if (workedMillis > shiftMillis) {
-                long otMillis = workedMillis - shiftMillis;
-                long hours = TimeUnit.MILLISECONDS.toHours(otMillis);
-                long minutes = TimeUnit.MILLISECONDS.toMinutes(otMillis) % 60;
-                return String.format(Locale.US, "%dh %02dm", hours, minutes);
+                return (int) TimeUnit.MILLISECONDS.toMinutes(workedMillis - shiftMillis);
             }
         } catch (Exception e) {
             Log.e(TAG, "Overtime calc failed", e);
         }
-        return "0h 00m";
+        return 0;
     }
 
     private String getAddressName(Location loc) {
         try {
-            Geocoder geocoder = new Geocoder(requireContext(), Locale.getDefault());
+            Geocoder geocoder = new Geocoder(appContext, Locale.getDefault());
             List<Address> addresses = geocoder.getFromLocation(loc.getLatitude(), loc.getLongitude(), 1);
             if (addresses != null && !addresses.isEmpty()) {
                 // Return simplified address (e.g., "Main St, City")
@@ -384,6 +680,9 @@ public class EmployeeCheckInFragment extends Fragment {
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        backgroundExecutor.shutdown();
+        removeTodayListeners();
+        todayRecordId = null;
         binding = null;
     }
 }
\ No newline at end of file
@@ -23,7 +23,14 @@ import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.inout.app.databinding.ActivityEmployeeDashboardBinding;
 import com.inout.app.models.User;
+import com.inout.app.utils.CheckInTracer;
 import com.inout.app.utils.EncryptionHelper;
+import com.inout.app.utils.FirebaseManager;
+import com.inout.app.utils.FirestoreMeter;
+import com.inout.app.utils.LocalMirror;
+import com.inout.app.utils.MaintenanceJobs;
+import com.inout.app.utils.MirrorSync;
+import com.inout.app.utils.StartupPipeline;
 
 /**
  * Main dashboard for Employees.
@@ -35,15 +42,24 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
     private ActivityEmployeeDashboardBinding binding;
     private FirebaseAuth mAuth;
     private FirebaseFirestore db;
+    private String mirroredEmployeeId;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
+        StartupPipeline pipeline = StartupPipeline.getInstance(this);
+        // Restored fragments query Firestore as soon as they are attached: restore them only when
+        // Firebase is already up (the normal case), otherwise the dashboard starts fresh once it is
+        super.onCreate(pipeline.isFirebaseReady() ? savedInstanceState : null);
+        // Firebase may still be initializing if this screen was restored without the Splash
+        pipeline.whenFirebaseReady(this, this::setUpDashboard);
+    }
+
+    private void setUpDashboard() {
         binding = ActivityEmployeeDashboardBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
 
-        mAuth = FirebaseAuth.getInstance();
-        db = FirebaseFirestore.getInstance();
+        mAuth = FirebaseManager.getAuth();
+        db = FirebaseManager.getFirestore();
         
         setSupportActionBar(binding.toolbar);
 
@@ -76,6 +92,7 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
 
         db.collection("users").document(firebaseUser.getUid())
                 .addSnapshotListener((snapshot, error) -> {
+                    FirestoreMeter.onListen("EmployeeDashboardActivity", "users", snapshot);
                     if (error != null) return;
 
                     if (snapshot != null && snapshot.exists()) {
@@ -96,12 +113,24 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
                                 showWaitingOverlay(true);
                             } else {
                                 showWaitingOverlay(false);
+                                startMirror(firebaseUser.getUid(), user.getEmployeeId());
                             }
                         }
                     }
                 });
     }
 
+    /**
+     * Keeps the local mirror (profile, own history, locations) current while the dashboard is open.
+     */
+    private void startMirror(String uid, String employeeId) {
+        if (employeeId == null || employeeId.equals(mirroredEmployeeId)) return;
+        mirroredEmployeeId = employeeId;
+        MirrorSync.startEmployee(this, db, uid, employeeId);
+        // Nightly auto check-out and morning prefetch (approved employees only)
+        MaintenanceJobs.schedule(this);
+    }
+
     /**
      * Shows or hides an overlay that blocks interaction until the admin approves the account.
      */
@@ -128,6 +157,9 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
         if (id == R.id.action_edit_profile) {
             startActivity(new Intent(this, EmployeeProfileActivity.class));
             return true;
+        } else if (id == R.id.action_export_checkin_timings) {
+            CsvExportHelper.shareCsv(this, CheckInTracer.getInstance().toCsv(), "checkin_timings");
+            return true;
         } else if (id == R.id.action_logout) {
             logout();
             return true;
@@ -135,6 +167,12 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
         return super.onOptionsItemSelected(item);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        MirrorSync.release(this);
+    }
+
     /**
      * UPDATED: Full Logout Logic.
      * 1. Signs out of Firebase.
@@ -143,6 +181,11 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
      * 4. Returns to the absolute landing page (Splash/Role Selection).
      */
     private void logout() {
+        // Company data must not outlive the session on this device
+        MirrorSync.stop();
+        LocalMirror.deleteAll(this);
+        MaintenanceJobs.cancel(this);
+
         // 1. Sign out from Firebase
         mAuth.signOut();
 
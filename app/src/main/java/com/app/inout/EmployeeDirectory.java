@@ -0,0 +1,166 @@
+package com.inout.app.utils;
+
+import com.inout.app.models.User;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * In-memory prefix index over the employees loaded so far (paged list + remote search hits).
+ * Keys are every word of the name and the employee ID, lower-cased, so "jo", "vine", "emp01" and
+ * "josy v" all find "Josy Vine (EMP012)". Lookup is a sorted-map range scan on the first query word,
+ * not a scan of every employee.
+ *
+ * Thread-safe: the suggestion filter searches on a worker thread while pages load on the main thread.
+ */
+public class EmployeeDirectory {
+
+    private final Map<String, User> usersByUid = new LinkedHashMap<>();
+    private final List<User> paged = new ArrayList<>();   // Page order (rows of the matrix)
+    private final Map<String, Integer> pagedPosition = new HashMap<>();   // uid -> index in paged
+    private final TreeMap<String, Set<String>> prefixIndex = new TreeMap<>();   // key -> uids
+
+    /**
+     * Adds the next page in load order.
+     * @return The users of the page that were not known yet (in page order).
+     */
+    public synchronized List<User> addPage(List<User> page) {
+        List<User> added = new ArrayList<>();
+        for (User user : page) {
+            if (user.getUid() == null) continue;
+            put(user);
+            if (!pagedPosition.containsKey(user.getUid())) {
+                pagedPosition.put(user.getUid(), paged.size());
+                paged.add(user);
+                added.add(user);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Adds users found by a remote search. They become searchable but are not part of the page order.
+     */
+    public synchronized void addSearchResults(List<User> users) {
+        for (User user : users) {
+            put(user);
+        }
+    }
+
+    public synchronized int getPagedCount() {
+        return paged.size();
+    }
+
+    public synchronized User getPaged(int position) {
+        return paged.get(position);
+    }
+
+    /**
+     * Every word of the query must prefix-match a different key, so "josy v" finds "Josy Vine"
+     * but not "Josy Abraham". Ordered by the match of the first word.
+     *
+     * @return Up to limit users matching all words of the query.
+     */
+    public synchronized List<User> search(String query, int limit) {
+        List<User> results = new ArrayList<>();
+        List<String> words = words(query);
+        if (words.isEmpty()) return results;
+
+        // 1. Candidates from the first word (range scan), 2. kept only if every other word matches too
+        for (String uid : prefixMatches(words.get(0))) {
+            User user = usersByUid.get(uid);
+            if (words.size() > 1 && !matchesAll(keysOf(user), words)) continue;
+            results.add(user);
+            if (results.size() == limit) return results;
+        }
+        return results;
+    }
+
+    /**
+     * @return The words of a query, lower-cased, e.g. " Josy  v " -> [josy, v].
+     */
+    public static List<String> words(String query) {
+        List<String> words = new ArrayList<>();
+        for (String word : normalize(query).split("\\s+")) {
+            if (!word.isEmpty()) words.add(word);
+        }
+        return words;
+    }
+
+    private Set<String> prefixMatches(String prefix) {
+        Set<String> uids = new LinkedHashSet<>();
+        for (Set<String> entry : prefixIndex.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            uids.addAll(entry);
+        }
+        return uids;
+    }
+
+    /**
+     * Each query word needs its own key ("jo jo" does not match "Josy Vine").
+     */
+    private static boolean matchesAll(List<String> keys, List<String> words) {
+        List<String> unused = new ArrayList<>(keys);
+        for (String word : words) {
+            boolean found = false;
+            for (int i = 0; i < unused.size(); i++) {
+                if (unused.get(i).startsWith(word)) {
+                    unused.remove(i);
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    private void put(User user) {
+        if (user.getUid() == null) return;
+        User previous = usersByUid.put(user.getUid(), user);
+        if (previous != null) {
+            unindex(previous);
+            Integer position = pagedPosition.get(user.getUid());
+            if (position != null) paged.set(position, user);
+        }
+        for (String key : keysOf(user)) {
+            Set<String> uids = prefixIndex.get(key);
+            if (uids == null) {
+                uids = new LinkedHashSet<>();
+                prefixIndex.put(key, uids);
+            }
+            uids.add(user.getUid());
+        }
+    }
+
+    private void unindex(User user) {
+        for (String key : keysOf(user)) {
+            Set<String> uids = prefixIndex.get(key);
+            if (uids != null) {
+                uids.remove(user.getUid());
+                if (uids.isEmpty()) prefixIndex.remove(key);
+            }
+        }
+    }
+
+    private static List<String> keysOf(User user) {
+        List<String> keys = new ArrayList<>();
+        if (user.getName() != null) {
+            keys.addAll(words(user.getName()));
+        }
+        if (user.getEmployeeId() != null) {
+            keys.add(normalize(user.getEmployeeId()));
+        }
+        return keys;
+    }
+
+    private static String normalize(String s) {
+        return s == null ? "" : s.trim().toLowerCase(Locale.ROOT);
+    }
+}
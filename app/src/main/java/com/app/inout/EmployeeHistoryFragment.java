@@ -10,25 +10,36 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
-import androidx.recyclerview.widget.LinearLayoutManager;
 
 import com.bumptech.glide.Glide;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
-import com.inout.app.adapters.AttendanceAdapter;
+import com.google.firebase.firestore.QuerySnapshot;
 import com.inout.app.databinding.FragmentEmployeeHistoryBinding;
+import com.inout.app.models.AttendanceEvent;
 import com.inout.app.models.AttendanceRecord;
+import com.inout.app.models.MonthArchive;
 import com.inout.app.models.User;
+import com.inout.app.utils.AttendanceEventLog;
+import com.inout.app.utils.AttendanceProjector;
+import com.inout.app.utils.DeltaSync;
 import com.inout.app.utils.EncryptionHelper;
+import com.inout.app.utils.FirebaseManager;
+import com.inout.app.utils.FirestoreMeter;
+import com.inout.app.utils.LocalMirror;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 
 /**
  * Fragment for Employees to view their own personal attendance history.
@@ -43,9 +54,11 @@ public class EmployeeHistoryFragment extends Fragment {
     private FirebaseAuth mAuth;
     
     private List<AttendanceRecord> historyLogs;
-    private AttendanceAdapter adapter;
     private String employeeId;
     private User currentUserProfile;
+    private ListenerRegistration eventListener;
+    private boolean logsLoaded;     // Firestore answered; the mirror's first paint is no longer wanted
+    private final List<AttendanceRecord> archivedLogs = new ArrayList<>(); // Days of purged, archived months
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -56,12 +69,13 @@ public class EmployeeHistoryFragment extends Fragment {
     @Override
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
+        FirestoreMeter.setScreen(getClass().getSimpleName());
 
-        db = FirebaseFirestore.getInstance();
-        mAuth = FirebaseAuth.getInstance();
+        db = FirebaseManager.getFirestore();
+        mAuth = FirebaseManager.getAuth();
         historyLogs = new ArrayList<>();
 
-        setupRecyclerView();
+        setupTable();
         fetchEmployeeIdAndLoadLogs();
 
         // FIXED: Connected the Export button to logic
@@ -75,10 +89,8 @@ public class EmployeeHistoryFragment extends Fragment {
         });
     }
 
-    private void setupRecyclerView() {
-        binding.rvHistoryTable.setLayoutManager(new LinearLayoutManager(getContext()));
-        adapter = new AttendanceAdapter(historyLogs);
-        binding.rvHistoryTable.setAdapter(adapter);
+    private void setupTable() {
+        binding.gridHistoryTable.setRecords(historyLogs);
     }
 
     private void fetchEmployeeIdAndLoadLogs() {
@@ -86,8 +98,9 @@ public class EmployeeHistoryFragment extends Fragment {
         
         String uid = mAuth.getCurrentUser().getUid();
         binding.progressBar.setVisibility(View.VISIBLE);
+        renderFromMirror(uid);
 
-        db.collection("users").document(uid).get()
+        FirestoreMeter.track("users", db.collection("users").document(uid).get())
                 .addOnSuccessListener(documentSnapshot -> {
                     if (documentSnapshot.exists()) {
                         currentUserProfile = documentSnapshot.toObject(User.class);
@@ -124,56 +137,177 @@ public class EmployeeHistoryFragment extends Fragment {
                 });
     }
 
+    /**
+     * NEW: First paint from the local SQLite mirror (see MirrorSync), before any network round trip.
+     * Skipped if Firestore has already answered.
+     */
+    private void renderFromMirror(String uid) {
+        final LocalMirror mirror = LocalMirror.get(requireContext());
+        LocalMirror.read(() -> mirror.user(uid), user -> {
+            if (binding == null || logsLoaded || user == null || user.getEmployeeId() == null) return;
+            binding.tvHistoryName.setText(user.getName());
+            binding.tvHistoryId.setText("ID: " + user.getEmployeeId());
+
+            LocalMirror.read(() -> mirror.attendanceForEmployee(user.getEmployeeId()), records -> {
+                if (binding == null || logsLoaded || records == null || records.isEmpty()) return;
+                historyLogs.clear();
+                for (AttendanceRecord record : records) {
+                    setDayOfWeek(record);
+                    historyLogs.add(record);
+                }
+                binding.progressBar.setVisibility(View.GONE);
+                showLogs();
+            });
+        });
+    }
+
+    /**
+     * UPDATED: Records render from the local cache, then only records changed since the last visit are
+     * fetched (DeltaSync). Afterwards only new attendance events are listened to and folded into the
+     * list (AttendanceProjector), instead of re-downloading changed records.
+     */
     private void loadMyLogs() {
-        db.collection("attendance")
-                .whereEqualTo("employeeId", employeeId)
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .addSnapshotListener((value, error) -> {
-                    binding.progressBar.setVisibility(View.GONE);
-                    
-                    if (error != null) {
-                        Log.e(TAG, "Error listening for history logs", error);
-                        Toast.makeText(getContext(), "Error syncing logs.", Toast.LENGTH_SHORT).show();
-                        return;
+        Query mine = db.collection("attendance").whereEqualTo("employeeId", employeeId);
+        Query ordered = mine.orderBy("timestamp", Query.Direction.DESCENDING);
+        loadArchivedLogs();
+
+        DeltaSync.load(requireContext(), db, "attendance/" + employeeId, "attendance", mine, ordered, new DeltaSync.Listener() {
+            @Override
+            public void onResult(QuerySnapshot value, boolean synced) {
+                if (binding == null) return;
+                if (!synced && value.isEmpty()) return; // Nothing cached yet: keep the spinner
+                binding.progressBar.setVisibility(View.GONE);
+                logsLoaded = true;
+
+                historyLogs.clear();
+                long cursor = 0;
+                for (DocumentSnapshot doc : value) {
+                    AttendanceRecord record = doc.toObject(AttendanceRecord.class);
+                    if (record != null) {
+                        if (record.getRecordId() == null) record.setRecordId(doc.getId());
+                        setDayOfWeek(record);
+                        historyLogs.add(record);
+                        cursor = Math.max(cursor, record.getLastEventTimestamp());
                     }
+                }
+                appendArchivedLogs();
+                showLogs();
+                if (!synced) return;
 
-                    if (value != null) {
-                        historyLogs.clear();
-                        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
-                        SimpleDateFormat dayFormat = new SimpleDateFormat("EEEE", Locale.US);
-
-                        for (DocumentSnapshot doc : value) {
-                            AttendanceRecord record = doc.toObject(AttendanceRecord.class);
-                            if (record != null) {
-                                // FIXED: Calculate and set the Day Name from the Date string
-                                try {
-                                    Date date = sdf.parse(record.getDate());
-                                    if (date != null) {
-                                        record.setDayOfWeek(dayFormat.format(date));
-                                    }
-                                } catch (Exception e) {
-                                    record.setDayOfWeek("Unknown");
-                                }
-                                historyLogs.add(record);
-                            }
-                        }
-                        
-                        adapter.notifyDataSetChanged();
-                        
-                        if (historyLogs.isEmpty()) {
-                            binding.tvNoData.setVisibility(View.VISIBLE);
-                            binding.tableHeader.getRoot().setVisibility(View.GONE);
-                        } else {
-                            binding.tvNoData.setVisibility(View.GONE);
-                            binding.tableHeader.getRoot().setVisibility(View.VISIBLE);
-                        }
+                // Records written before the event log have no cursor; nothing older than this month can change
+                Calendar monthStart = Calendar.getInstance();
+                monthStart.set(Calendar.DAY_OF_MONTH, 1);
+                monthStart.set(Calendar.HOUR_OF_DAY, 0);
+                monthStart.set(Calendar.MINUTE, 0);
+                monthStart.set(Calendar.SECOND, 0);
+                monthStart.set(Calendar.MILLISECOND, 0);
+                listenForEvents(Math.max(cursor, monthStart.getTimeInMillis()));
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Error loading history logs", e);
+                if (binding == null) return;
+                binding.progressBar.setVisibility(View.GONE);
+                Toast.makeText(getContext(), "Error syncing logs.", Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    /**
+     * NEW: Months closed with purge only exist as MonthArchive documents (one read per month).
+     */
+    private void loadArchivedLogs() {
+        FirestoreMeter.track(MonthArchive.COLLECTION, db.collection(MonthArchive.COLLECTION)
+                .whereEqualTo("employeeId", employeeId)
+                .whereEqualTo("purged", true)
+                .get())
+                .addOnSuccessListener(value -> {
+                    archivedLogs.clear();
+                    for (DocumentSnapshot doc : value) {
+                        MonthArchive archive = doc.toObject(MonthArchive.class);
+                        if (archive != null) archivedLogs.addAll(archive.toRecords());
                     }
-                });
+                    if (binding == null || archivedLogs.isEmpty()) return;
+                    appendArchivedLogs();
+                    showLogs();
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Error loading archived months", e));
+    }
+
+    private void appendArchivedLogs() {
+        Set<String> dates = new HashSet<>();
+        for (AttendanceRecord record : historyLogs) dates.add(record.getDate());
+        List<AttendanceRecord> older = new ArrayList<>();
+        for (AttendanceRecord record : archivedLogs) {
+            if (dates.add(record.getDate())) {
+                setDayOfWeek(record);
+                older.add(record);
+            }
+        }
+        // Newest first, like the daily records above them
+        Collections.sort(older, (a, b) -> Long.compare(b.getTimestamp(), a.getTimestamp()));
+        historyLogs.addAll(older);
+    }
+
+    private void listenForEvents(long cursor) {
+        if (eventListener != null) eventListener.remove();
+        eventListener = AttendanceEventLog.listenAfter(db, employeeId, cursor, events -> {
+            if (binding == null) return;
+            for (AttendanceEvent event : events) {
+                applyEvent(event);
+            }
+            showLogs();
+        });
+    }
+
+    /**
+     * Folds the event into its day's record; a check-in adds a new row at the top.
+     */
+    private void applyEvent(AttendanceEvent event) {
+        for (int i = 0; i < historyLogs.size(); i++) {
+            AttendanceRecord record = historyLogs.get(i);
+            if (event.getRecordId() != null && event.getRecordId().equals(record.getRecordId())) {
+                historyLogs.set(i, AttendanceProjector.apply(record, event));
+                return;
+            }
+        }
+        AttendanceRecord created = AttendanceProjector.apply(null, event);
+        if (created != null) {
+            setDayOfWeek(created);
+            historyLogs.add(0, created);
+        }
+    }
+
+    private void setDayOfWeek(AttendanceRecord record) {
+        // FIXED: Calculate and set the Day Name from the Date string
+        try {
+            Date date = new SimpleDateFormat("yyyy-MM-dd", Locale.US).parse(record.getDate());
+            if (date != null) {
+                record.setDayOfWeek(new SimpleDateFormat("EEEE", Locale.US).format(date));
+            }
+        } catch (Exception e) {
+            record.setDayOfWeek("Unknown");
+        }
+    }
+
+    private void showLogs() {
+        binding.gridHistoryTable.notifyDataChanged();
+
+        if (historyLogs.isEmpty()) {
+            binding.tvNoData.setVisibility(View.VISIBLE);
+            binding.gridHistoryTable.setVisibility(View.GONE);
+        } else {
+            binding.tvNoData.setVisibility(View.GONE);
+            binding.gridHistoryTable.setVisibility(View.VISIBLE);
+        }
     }
 
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        if (eventListener != null) eventListener.remove();
+        eventListener = null;
         binding = null;
     }
 }
\ No newline at end of file
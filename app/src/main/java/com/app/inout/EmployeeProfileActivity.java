@@ -14,8 +14,14 @@ import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
 import com.inout.app.databinding.ActivityEmployeeProfileBinding;
 import com.inout.app.models.User;
+import com.inout.app.utils.DeltaSync;
+import com.inout.app.utils.DirectoryIndex;
+import com.inout.app.utils.FirebaseManager;
+import com.inout.app.utils.FirestoreMeter;
+import com.inout.app.utils.LocalMirror;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -36,11 +42,12 @@ public class EmployeeProfileActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        FirestoreMeter.setScreen(getClass().getSimpleName());
         binding = ActivityEmployeeProfileBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
 
-        mAuth = FirebaseAuth.getInstance();
-        db = FirebaseFirestore.getInstance();
+        mAuth = FirebaseManager.getAuth();
+        db = FirebaseManager.getFirestore();
 
         // 1. Load data if user already exists
         loadCurrentUserData();
@@ -66,8 +73,20 @@ public class EmployeeProfileActivity extends AppCompatActivity {
             binding.etName.setText(firebaseUser.getDisplayName());
         }
 
+        // NEW: Pre-fill from the local mirror at once; Firestore overwrites it when it answers
+        LocalMirror mirror = LocalMirror.get(this);
+        LocalMirror.read(() -> mirror.user(firebaseUser.getUid()), user -> {
+            if (user == null || isFinishing()) return;
+            if (user.getName() != null && binding.etName.getText().toString().equals(firebaseUser.getDisplayName())) {
+                binding.etName.setText(user.getName());
+            }
+            if (user.getPhone() != null && binding.etPhone.getText().toString().isEmpty()) {
+                binding.etPhone.setText(user.getPhone());
+            }
+        });
+
         // Fetch the user's profile from Firestore to see if phone is already saved
-        db.collection("users").document(firebaseUser.getUid()).get()
+        FirestoreMeter.track("users", db.collection("users").document(firebaseUser.getUid()).get())
                 .addOnSuccessListener(documentSnapshot -> {
                     if (documentSnapshot.exists()) {
                         User user = documentSnapshot.toObject(User.class);
@@ -124,11 +143,16 @@ public class EmployeeProfileActivity extends AppCompatActivity {
         updates.put("phone", phone);
         updates.put("photoUrl", googlePhotoUrl); // Saving the Google-hosted link
 
-        db.collection("users").document(uid)
-                .set(updates, SetOptions.merge())
+        // Name and phone are also in the admin's directory index: update both together
+        WriteBatch batch = db.batch();
+        batch.set(db.collection("users").document(uid), DeltaSync.stamp(updates), SetOptions.merge());
+        DirectoryIndex.update(batch, db, uid, updates);
+
+        batch.commit()
                 .addOnSuccessListener(new OnSuccessListener<Void>() {
                     @Override
                     public void onSuccess(Void aVoid) {
+                        FirestoreMeter.onWrite("users", 2);
                         binding.progressBar.setVisibility(View.GONE);
                         Toast.makeText(EmployeeProfileActivity.this, "Profile Updated via Google Sync", Toast.LENGTH_SHORT).show();
                         finish();
@@ -0,0 +1,95 @@
+package com.inout.app;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ArrayAdapter;
+import android.widget.Filter;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+
+import com.inout.app.models.User;
+import com.inout.app.utils.EmployeeDirectory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Suggestions for the employee search box, served from the EmployeeDirectory prefix index.
+ * Shows "Name (ID)" rows; matches on any word of the name or on the employee ID.
+ */
+public class EmployeeSuggestionAdapter extends ArrayAdapter<User> {
+
+    private static final int MAX_SUGGESTIONS = 20;
+
+    private final EmployeeDirectory directory;
+    private final List<User> suggestions = new ArrayList<>();
+
+    public EmployeeSuggestionAdapter(@NonNull Context context, EmployeeDirectory directory) {
+        super(context, android.R.layout.simple_dropdown_item_1line);
+        this.directory = directory;
+    }
+
+    @Override
+    public int getCount() {
+        return suggestions.size();
+    }
+
+    @Override
+    public User getItem(int position) {
+        return suggestions.get(position);
+    }
+
+    @NonNull
+    @Override
+    public View getView(int position, View convertView, @NonNull ViewGroup parent) {
+        TextView view = (TextView) super.getView(position, convertView, parent);
+        view.setText(label(suggestions.get(position)));
+        return view;
+    }
+
+    static String label(User user) {
+        // Format: Name (EmployeeID)
+        return user.getName() + " (" + user.getEmployeeId() + ")";
+    }
+
+    @NonNull
+    @Override
+    public Filter getFilter() {
+        return filter;
+    }
+
+    private final Filter filter = new Filter() {
+        @Override
+        protected FilterResults performFiltering(CharSequence constraint) {
+            // Runs on the filter thread; the directory is synchronized
+            List<User> matches = constraint != null
+                    ? directory.search(constraint.toString(), MAX_SUGGESTIONS)
+                    : new ArrayList<User>();
+            FilterResults results = new FilterResults();
+            results.values = matches;
+            results.count = matches.size();
+            return results;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void publishResults(CharSequence constraint, FilterResults results) {
+            suggestions.clear();
+            if (results.values != null) {
+                suggestions.addAll((List<User>) results.values);
+            }
+            if (results.count > 0) {
+                notifyDataSetChanged();
+            } else {
+                notifyDataSetInvalidated();
+            }
+        }
+
+        @Override
+        public CharSequence convertResultToString(Object resultValue) {
+            return ((User) resultValue).getName();
+        }
+    };
+}
@@ -8,20 +8,28 @@ import android.util.Log;
 import androidx.security.crypto.EncryptedSharedPreferences;
 import androidx.security.crypto.MasterKeys;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
 import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
 /**
  * Handles security operations:
- * 1. Secure local storage of Firebase Config and User Roles.
+ * 1. Secure local storage of Firebase Config and User Roles (one role per company, see roleKey).
  * 2. AES Encryption/Decryption for QR Code payloads.
+ *
+ * QR payloads are written as a versioned envelope:
+ * [version (1 byte)] [GCM nonce (12 bytes)] [ciphertext + GCM tag (16 bytes)], Base64 encoded.
+ * Older printed QRs (plain AES/ECB, no header) are still accepted by decryptQrPayload.
  */
 public class EncryptionHelper {
 
@@ -29,19 +37,48 @@ public class EncryptionHelper {
     private static final String PREFS_FILENAME = "secure_app_prefs";
     
     // Keys for SharedPreferences
-    private static final String KEY_USER_ROLE = "key_user_role"; // "admin" or "employee"
+    private static final String KEY_USER_ROLE = "key_user_role"; // "admin" or "employee", + "_" + projectId
     private static final String KEY_FIREBASE_CONFIG = "key_firebase_config";
     private static final String KEY_COMPANY_NAME = "key_company_name";
     private static final String KEY_PROJECT_ID = "key_project_id";
     private static final String KEY_IS_SETUP_DONE = "key_is_setup_done";
+    private static final String KEY_TENANTS = "key_tenants"; // JSON map of every company set up on this device
 
     // Hardcoded Key for QR Code Encryption (Shared between Admin & Employee logic)
     private static final String QR_ENCRYPTION_KEY = "InOutAppSuperSecretKey2026";
     private static final String AES_ALGORITHM = "AES";
 
+    // Envelope format for QR payloads
+    private static final byte QR_ENVELOPE_V1 = 0x01;
+    private static final String GCM_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int GCM_NONCE_LENGTH = 12;
+    private static final int GCM_TAG_BITS = 128;
+    private static final int GCM_MIN_ENVELOPE_LENGTH = 1 + GCM_NONCE_LENGTH + GCM_TAG_BITS / 8;
+
+    // The QR key is derived from a constant, so it is computed once per process.
+    private static volatile SecretKeySpec qrKey;
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    // Cipher objects are not thread-safe, so each thread keeps its own instance.
+    private static final ThreadLocal<Cipher> GCM_CIPHER = new ThreadLocal<Cipher>() {
+        @Override
+        protected Cipher initialValue() {
+            return newCipher(GCM_TRANSFORMATION);
+        }
+    };
+    private static final ThreadLocal<Cipher> LEGACY_CIPHER = new ThreadLocal<Cipher>() {
+        @Override
+        protected Cipher initialValue() {
+            return newCipher(AES_ALGORITHM);
+        }
+    };
+
     private final SharedPreferences sharedPreferences;
     private static EncryptionHelper instance;
 
+    // Decrypted copy of the stored values; replaced on every write, never mutated.
+    private volatile AppConfigSnapshot config;
+
     private EncryptionHelper(Context context) {
         try {
             String masterKeyAlias = MasterKeys.getOrCreate(MasterKeys.AES256_GCM_SPEC);
@@ -64,80 +101,199 @@ public class EncryptionHelper {
         return instance;
     }
 
-    public void saveUserRole(String role) {
-        sharedPreferences.edit().putString(KEY_USER_ROLE, role).apply();
+    /**
+     * Returns the in-memory configuration, decrypting it from storage on first use only.
+     */
+    public AppConfigSnapshot getConfig() {
+        AppConfigSnapshot snapshot = config;
+        if (snapshot == null) {
+            synchronized (this) {
+                snapshot = config;
+                if (snapshot == null) {
+                    String firebaseConfig = sharedPreferences.getString(KEY_FIREBASE_CONFIG, null);
+                    String companyName = sharedPreferences.getString(KEY_COMPANY_NAME, AppConfigSnapshot.DEFAULT_COMPANY_NAME);
+                    String projectId = sharedPreferences.getString(KEY_PROJECT_ID, null);
+
+                    Map<String, TenantConfig> tenants = TenantConfig.fromJson(sharedPreferences.getString(KEY_TENANTS, null));
+                    if (tenants.isEmpty() && firebaseConfig != null && projectId != null) {
+                        // Installed before multi-company support: the saved company lives in the default app
+                        tenants.put(projectId, new TenantConfig(projectId, companyName, firebaseConfig,
+                                TenantConfig.appNameFor(projectId, tenants)));
+                    }
+
+                    String role = sharedPreferences.getString(roleKey(projectId), null);
+                    if (role == null && projectId != null) {
+                        // Saved before roles were per company: it belongs to the active one
+                        role = sharedPreferences.getString(KEY_USER_ROLE, null);
+                        if (role != null) {
+                            sharedPreferences.edit().putString(roleKey(projectId), role).remove(KEY_USER_ROLE).apply();
+                        }
+                    }
+
+                    snapshot = new AppConfigSnapshot(
+                            role,
+                            firebaseConfig,
+                            companyName,
+                            projectId,
+                            sharedPreferences.getBoolean(KEY_IS_SETUP_DONE, false),
+                            tenants);
+                    config = snapshot;
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * UPDATED: Saved for the active company only; before setup (no company yet) it is kept unscoped
+     * and handed to the company saved next (saveFirebaseConfig).
+     */
+    public synchronized void saveUserRole(String role) {
+        sharedPreferences.edit().putString(roleKey(getConfig().getProjectId()), role).apply();
+        config = getConfig().withUserRole(role);
     }
 
     public String getUserRole() {
-        return sharedPreferences.getString(KEY_USER_ROLE, null);
+        return getConfig().getUserRole();
     }
 
     /**
-     * NEW: Clears only the User Role.
+     * NEW: Clears only the User Role (of the active company).
      * Used during Logout to force the user back to the "Select Role" screen.
      */
-    public void clearUserRole() {
-        sharedPreferences.edit().remove(KEY_USER_ROLE).apply();
+    public synchronized void clearUserRole() {
+        sharedPreferences.edit().remove(roleKey(getConfig().getProjectId())).apply();
+        config = getConfig().withUserRole(null);
     }
 
-    public void saveFirebaseConfig(String jsonConfig, String companyName, String projectId) {
-        sharedPreferences.edit()
+    /**
+     * Saves the company config, registers it as a tenant and makes it the active one.
+     * UPDATED: The role becomes that company's own. A company with no role yet (just set up, or saved
+     * before roles were per company) takes the current one, as chosen on the Role Selection screen
+     * or held in the company it was added from.
+     */
+    public synchronized void saveFirebaseConfig(String jsonConfig, String companyName, String projectId) {
+        AppConfigSnapshot current = getConfig();
+        Map<String, TenantConfig> tenants = new LinkedHashMap<>(current.getTenantMap());
+        tenants.put(projectId, new TenantConfig(projectId, companyName, jsonConfig,
+                TenantConfig.appNameFor(projectId, tenants)));
+
+        String role = sharedPreferences.getString(roleKey(projectId), null);
+        if (role == null) role = current.getUserRole();
+
+        SharedPreferences.Editor editor = sharedPreferences.edit().remove(KEY_USER_ROLE);
+        if (role != null) editor.putString(roleKey(projectId), role);
+        editor
                 .putString(KEY_FIREBASE_CONFIG, jsonConfig)
                 .putString(KEY_COMPANY_NAME, companyName)
                 .putString(KEY_PROJECT_ID, projectId)
                 .putBoolean(KEY_IS_SETUP_DONE, true)
+                .putString(KEY_TENANTS, TenantConfig.toJson(tenants))
                 .apply();
+        // Rebuild from what was just written instead of decrypting it back
+        config = new AppConfigSnapshot(role, jsonConfig, companyName, projectId, true, tenants);
+    }
+
+    /**
+     * Makes a previously saved company the active one.
+     *
+     * @return false if the projectId is not a known tenant.
+     */
+    public synchronized boolean setActiveTenant(String projectId) {
+        TenantConfig tenant = getConfig().getTenant(projectId);
+        if (tenant == null) return false;
+        saveFirebaseConfig(tenant.getFirebaseConfig(), tenant.getCompanyName(), tenant.getProjectId());
+        return true;
+    }
+
+    public List<TenantConfig> getTenants() {
+        return getConfig().getTenants();
     }
 
     public String getFirebaseConfig() {
-        return sharedPreferences.getString(KEY_FIREBASE_CONFIG, null);
+        return getConfig().getFirebaseConfig();
     }
 
     public String getCompanyName() {
-        return sharedPreferences.getString(KEY_COMPANY_NAME, "Unknown Company");
+        return getConfig().getCompanyName();
     }
     
     public String getProjectId() {
-        return sharedPreferences.getString(KEY_PROJECT_ID, null);
+        return getConfig().getProjectId();
     }
 
     public boolean isSetupDone() {
-        return sharedPreferences.getBoolean(KEY_IS_SETUP_DONE, false);
+        return getConfig().isSetupDone();
     }
     
-    public void clearAllData() {
+    /**
+     * @return Where the role of a company is kept; unscoped before any company is set up.
+     */
+    private static String roleKey(String projectId) {
+        return projectId != null ? KEY_USER_ROLE + "_" + projectId : KEY_USER_ROLE;
+    }
+
+    public synchronized void clearAllData() {
         sharedPreferences.edit().clear().apply();
+        config = AppConfigSnapshot.EMPTY;
     }
 
-    private SecretKeySpec generateKey() throws Exception {
+    private static Cipher newCipher(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+            throw new IllegalStateException("Cipher not available: " + transformation, e);
+        }
+    }
+
+    static SecretKeySpec getQrKey() throws NoSuchAlgorithmException {
+        SecretKeySpec key = qrKey;
+        if (key == null) {
+            synchronized (EncryptionHelper.class) {
+                key = qrKey;
+                if (key == null) {
+                    key = deriveQrKey();
+                    qrKey = key;
+                }
+            }
+        }
+        return key;
+    }
+
+    static SecretKeySpec deriveQrKey() throws NoSuchAlgorithmException {
         final MessageDigest digest = MessageDigest.getInstance("SHA-256");
         byte[] bytes = QR_ENCRYPTION_KEY.getBytes(StandardCharsets.UTF_8);
         digest.update(bytes, 0, bytes.length);
-        byte[] key = digest.digest();
-        return new SecretKeySpec(key, AES_ALGORITHM);
+        return new SecretKeySpec(digest.digest(), AES_ALGORITHM);
     }
 
+    /**
+     * Encrypts the QR payload into a v1 envelope (AES-GCM with a random nonce).
+     */
     public String encryptQrPayload(String plainText) {
         try {
-            SecretKeySpec key = generateKey();
-            Cipher cipher = Cipher.getInstance(AES_ALGORITHM);
-            cipher.init(Cipher.ENCRYPT_MODE, key);
-            byte[] encVal = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
-            return Base64.encodeToString(encVal, Base64.NO_WRAP);
+            return Base64.encodeToString(sealQr(plainText.getBytes(StandardCharsets.UTF_8)), Base64.NO_WRAP);
         } catch (Exception e) {
             Log.e(TAG, "QR Encryption failed", e);
             return null;
         }
     }
 
+    /**
+     * Decrypts a QR payload. Accepts both the v1 envelope and the legacy
+     * header-less AES payload found on QRs printed before the envelope existed.
+     */
     public String decryptQrPayload(String encryptedText) {
+        byte[] decodedValue;
         try {
-            SecretKeySpec key = generateKey();
-            Cipher cipher = Cipher.getInstance(AES_ALGORITHM);
-            cipher.init(Cipher.DECRYPT_MODE, key);
-            byte[] decodedValue = Base64.decode(encryptedText, Base64.NO_WRAP);
-            byte[] decValue = cipher.doFinal(decodedValue);
-            return new String(decValue, StandardCharsets.UTF_8);
+            decodedValue = Base64.decode(encryptedText, Base64.NO_WRAP);
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "QR Decryption failed: not Base64", e);
+            return null;
+        }
+
+        try {
+            return new String(openQr(decodedValue), StandardCharsets.UTF_8);
         } catch (Exception e) {
             Log.e(TAG, "QR Decryption failed", e);
             return null;
@@ -145,32 +301,47 @@ public class EncryptionHelper {
     }
 
     /**
-     * Extracts the Web Client ID (Type 3) from the saved Firebase JSON.
-     * This is required for Google Sign-In to work dynamically.
+     * The byte-level envelope, without Base64 or logging (android.util), so the JVM tests can run it.
      */
-    public String getWebClientId() {
-        String jsonConfig = getFirebaseConfig();
-        if (jsonConfig == null) return null;
+    static byte[] sealQr(byte[] plain) throws GeneralSecurityException {
+        byte[] nonce = new byte[GCM_NONCE_LENGTH];
+        SECURE_RANDOM.nextBytes(nonce);
 
-        try {
-            JSONObject root = new JSONObject(jsonConfig);
-            JSONArray clientArray = root.getJSONArray("client");
-            if (clientArray.length() > 0) {
-                JSONObject client = clientArray.getJSONObject(0);
-                JSONArray oauthClientArray = client.getJSONArray("oauth_client");
-
-                for (int i = 0; i < oauthClientArray.length(); i++) {
-                    JSONObject oauthClient = oauthClientArray.getJSONObject(i);
-                    int clientType = oauthClient.getInt("client_type");
-                    // Type 3 is the Web Client ID required for requestIdToken
-                    if (clientType == 3) {
-                        return oauthClient.getString("client_id");
-                    }
-                }
+        Cipher cipher = GCM_CIPHER.get();
+        cipher.init(Cipher.ENCRYPT_MODE, getQrKey(), new GCMParameterSpec(GCM_TAG_BITS, nonce));
+        byte[] sealed = cipher.doFinal(plain);
+
+        byte[] envelope = new byte[1 + GCM_NONCE_LENGTH + sealed.length];
+        envelope[0] = QR_ENVELOPE_V1;
+        System.arraycopy(nonce, 0, envelope, 1, GCM_NONCE_LENGTH);
+        System.arraycopy(sealed, 0, envelope, 1 + GCM_NONCE_LENGTH, sealed.length);
+        return envelope;
+    }
+
+    static byte[] openQr(byte[] data) throws GeneralSecurityException {
+        if (data.length >= GCM_MIN_ENVELOPE_LENGTH && data[0] == QR_ENVELOPE_V1) {
+            try {
+                Cipher cipher = GCM_CIPHER.get();
+                cipher.init(Cipher.DECRYPT_MODE, getQrKey(),
+                        new GCMParameterSpec(GCM_TAG_BITS, data, 1, GCM_NONCE_LENGTH));
+                int offset = 1 + GCM_NONCE_LENGTH;
+                return cipher.doFinal(data, offset, data.length - offset);
+            } catch (GeneralSecurityException e) {
+                // A legacy ciphertext can start with the version byte by chance; fall through.
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Error extracting Web Client ID", e);
         }
-        return null; // Return null if not found
+
+        Cipher cipher = LEGACY_CIPHER.get();
+        cipher.init(Cipher.DECRYPT_MODE, getQrKey());
+        return cipher.doFinal(data);
+    }
+
+    /**
+     * Extracts the Web Client ID (Type 3) from the saved Firebase JSON.
+     * This is required for Google Sign-In to work dynamically.
+     * Parsed once per saved config, not on every call.
+     */
+    public String getWebClientId() {
+        return getConfig().getWebClientId();
     }
-}
\ No newline at end of file
+}
@@ -5,67 +5,172 @@ import android.util.Log;
 
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.FirebaseFirestore;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Manages the dynamic initialization of the Firebase backend.
  * This allows the app to connect to different Firebase projects based on the
  * configuration uploaded by the Admin or scanned by the Employee.
+ *
+ * Every company (tenant) gets its own named FirebaseApp, keyed by projectId, so several
+ * companies can stay initialized at once, each with its own auth session and Firestore cache.
+ * Screens must use getFirestore()/getAuth() so they follow the active tenant.
  */
 public class FirebaseManager {
 
     private static final String TAG = "FirebaseManager";
 
+    // Registry of live tenants, keyed by projectId
+    private static final Map<String, FirebaseApp> apps = new ConcurrentHashMap<>();
+    private static final Map<String, FirebaseFirestore> firestores = new ConcurrentHashMap<>();
+    private static final Map<String, FirebaseOptions> optionsCache = new ConcurrentHashMap<>();
+
+    private static volatile String activeProjectId;
+
     /**
-     * Initializes Firebase using the configuration stored in EncryptionHelper.
-     * This is called automatically by InOutApplication.
+     * Initializes Firebase for the active company stored in EncryptionHelper.
+     * Used after setup/QR scan; cold start goes through StartupPipeline instead.
      */
     public static void initialize(Context context) {
-        String jsonConfig = EncryptionHelper.getInstance(context).getFirebaseConfig();
+        TenantConfig tenant = EncryptionHelper.getInstance(context).getConfig().getActiveTenant();
+
+        if (tenant != null) {
+            activate(context, tenant);
+        } else {
+            Log.d(TAG, "No dynamic Firebase config found. Waiting for setup.");
+        }
+    }
+
+    /**
+     * Makes the tenant's FirebaseApp the active one, creating it on first use.
+     * A live app whose options no longer match the saved config (re-uploaded JSON) is deleted and
+     * initialized again, since a FirebaseApp cannot change its options.
+     * Safe to call from a background thread.
+     *
+     * @return true if the tenant's FirebaseApp is available afterwards.
+     */
+    public static synchronized boolean activate(Context context, TenantConfig tenant) {
+        if (tenant == null) return false;
+
+        String projectId = tenant.getProjectId();
+        FirebaseOptions options = getOptions(tenant);
+        FirebaseApp app = apps.get(projectId);
+        if (app == null) {
+            if (options == null) return false;
 
-        if (jsonConfig != null && !jsonConfig.isEmpty()) {
             try {
-                // If a config exists locally, use it to initialize Firebase
-                FirebaseOptions options = buildOptionsFromJson(jsonConfig);
-                
-                // Check if the default app is already initialized
-                if (!FirebaseApp.getApps(context).isEmpty()) {
-                    FirebaseApp app = FirebaseApp.getInstance();
-                    // If the project ID has changed, we might need to re-init (rare in this flow, usually requires restart)
-                    // For now, we assume the app process starts fresh or we just log it.
-                    if (!app.getOptions().getApplicationId().equals(options.getApplicationId())) {
-                         Log.w(TAG, "Firebase already initialized with different config. Creating named app not supported in this simple flow yet.");
-                    }
-                } else {
-                    FirebaseApp.initializeApp(context, options);
-                    Log.d(TAG, "Firebase initialized successfully with DYNAMIC config.");
-                }
+                app = FirebaseApp.getInstance(tenant.getAppName());
+            } catch (IllegalStateException notYetCreated) {
+                app = FirebaseApp.initializeApp(context.getApplicationContext(), options, tenant.getAppName());
+                Log.d(TAG, "Firebase app '" + tenant.getAppName() + "' initialized with DYNAMIC config.");
+            }
+            apps.put(projectId, app);
+        }
+
+        if (options != null && !options.equals(app.getOptions())) {
+            // The auth session is persisted per app name, so it survives the re-initialization
+            Log.d(TAG, "Firebase config of '" + tenant.getAppName() + "' changed, re-initializing.");
+            if (projectId.equals(activeProjectId)) MirrorSync.stop(); // Its listeners belong to the old instance
+            apps.remove(projectId);
+            firestores.remove(projectId);
+            app.delete();
+            app = FirebaseApp.initializeApp(context.getApplicationContext(), options, tenant.getAppName());
+            apps.put(projectId, app);
+        }
+
+        activeProjectId = projectId;
+        return true;
+    }
+
+    /**
+     * Switches the whole app to another saved company without a restart.
+     * If the user already signed in to that company before, the session is still there.
+     */
+    public static boolean switchTenant(Context context, String projectId) {
+        EncryptionHelper helper = EncryptionHelper.getInstance(context);
+        if (!helper.setActiveTenant(projectId)) {
+            Log.w(TAG, "Unknown company: " + projectId);
+            return false;
+        }
+        return activate(context, helper.getConfig().getActiveTenant());
+    }
+
+    /**
+     * Parses (once per tenant) the stored google-services JSON into FirebaseOptions.
+     *
+     * @return The options, or null if the config is missing or invalid.
+     */
+    public static FirebaseOptions getOptions(TenantConfig tenant) {
+        if (tenant == null || tenant.getFirebaseConfig() == null) return null;
+
+        FirebaseOptions options = optionsCache.get(tenant.getProjectId());
+        if (options == null) {
+            try {
+                options = buildOptionsFromJson(tenant.getFirebaseConfig());
+                optionsCache.put(tenant.getProjectId(), options);
             } catch (Exception e) {
                 Log.e(TAG, "Failed to parse saved Firebase config.", e);
+                return null;
             }
-        } else {
-            Log.d(TAG, "No dynamic Firebase config found. Waiting for setup.");
         }
+        return options;
     }
 
     /**
-     * Forces re-initialization of Firebase with a new JSON string.
-     * Used when Admin switches companies or Employee scans a new QR.
-     * Note: Changing the DEFAULT app usually requires an app restart or using named apps.
-     * For this implementation, we will try to re-init if list is empty, otherwise we rely on restart prompt.
+     * @return The active tenant's FirebaseApp, or null before any company is set up.
+     */
+    public static FirebaseApp getActiveApp() {
+        String projectId = activeProjectId;
+        return projectId != null ? apps.get(projectId) : null;
+    }
+
+    public static String getActiveProjectId() {
+        return activeProjectId;
+    }
+
+    public static FirebaseFirestore getFirestore() {
+        String projectId = activeProjectId;
+        FirebaseApp app = getActiveApp();
+        if (app == null) return FirebaseFirestore.getInstance();
+
+        FirebaseFirestore db = firestores.get(projectId);
+        if (db == null) {
+            db = FirebaseFirestore.getInstance(app);
+            firestores.put(projectId, db);
+        }
+        return db;
+    }
+
+    public static FirebaseAuth getAuth() {
+        FirebaseApp app = getActiveApp();
+        return app != null ? FirebaseAuth.getInstance(app) : FirebaseAuth.getInstance();
+    }
+
+    /**
+     * Validates and saves a new company configuration, making it the active tenant.
+     * Used when Admin adds a company or Employee scans a new QR.
+     * Call initialize() afterwards to bring its FirebaseApp up.
      */
     public static boolean setConfiguration(Context context, String jsonConfig, String companyName, String projectId) {
         try {
             // Validate JSON by trying to build options
-            buildOptionsFromJson(jsonConfig);
+            FirebaseOptions options = buildOptionsFromJson(jsonConfig);
 
             // Save to encrypted storage
             EncryptionHelper.getInstance(context).saveFirebaseConfig(jsonConfig, companyName, projectId);
             
+            // A re-uploaded config for a known company replaces its cached options;
+            // activate() then re-initializes its FirebaseApp if they differ
+            optionsCache.put(projectId, options);
+
             Log.d(TAG, "New Firebase configuration saved successfully.");
             return true;
         } catch (Exception e) {
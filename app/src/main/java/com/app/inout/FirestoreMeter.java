@@ -0,0 +1,318 @@
+package com.inout.app.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.AggregateQuerySnapshot;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts Firestore document reads, writes and listener deliveries per day, company, screen and collection.
+ *
+ * Counting follows Firestore billing: a server query costs one read per document returned (at least 1),
+ * a listener one read per changed document, an aggregation one read; results served from the local
+ * cache are free and counted separately (CACHE). The screen is the one last resumed (setScreen), unless
+ * the caller names a background source such as "mirror" or a job.
+ *
+ * Counts are buffered in memory and flushed to a small SQLite store (firestore_meter.db) every few
+ * seconds; rows are kept for RETENTION_DAYS. Shown by the hidden diagnostics dialog (FirestoreMeterDialog).
+ */
+public final class FirestoreMeter {
+
+    private static final String TAG = "FirestoreMeter";
+
+    public static final String READ = "read";
+    public static final String WRITE = "write";
+    public static final String LISTEN = "listen";
+    public static final String CACHE = "cache";
+
+    private static final long FLUSH_DELAY_SECONDS = 5;
+    private static final int RETENTION_DAYS = 35;
+
+    private static final ScheduledExecutorService io = Executors.newSingleThreadScheduledExecutor();
+    private static final Map<String, Long> pending = new HashMap<>();   // Row key -> count not yet flushed
+    private static final Map<String, Long> today = new HashMap<>();     // project|kind -> today's total
+    private static String todayDay;
+    private static boolean flushScheduled;
+    private static volatile String screen = "startup";
+    private static Store store;
+
+    private FirestoreMeter() {}
+
+    /**
+     * Opens the store and loads today's totals. Called once from InOutApplication.
+     */
+    public static synchronized void init(Context context) {
+        if (store != null) return;
+        store = new Store(context.getApplicationContext());
+        io.execute(FirestoreMeter::loadToday);
+    }
+
+    /**
+     * Attributes following Firestore traffic to this screen (called when a screen is created).
+     */
+    public static void setScreen(String name) {
+        screen = name;
+    }
+
+    public static String getScreen() {
+        return screen;
+    }
+
+    // ---- Recording ----
+
+    public static void onQuery(String collection, QuerySnapshot snapshot) {
+        onQuery(screen, collection, snapshot);
+    }
+
+    public static void onQuery(String source, String collection, QuerySnapshot snapshot) {
+        if (snapshot == null) return;
+        if (snapshot.getMetadata().isFromCache()) {
+            add(source, collection, CACHE, snapshot.size());
+        } else {
+            add(source, collection, READ, Math.max(1, snapshot.size()));
+        }
+    }
+
+    public static void onDocument(String collection, DocumentSnapshot doc) {
+        onDocument(screen, collection, doc);
+    }
+
+    public static void onDocument(String source, String collection, DocumentSnapshot doc) {
+        if (doc == null) return;
+        add(source, collection, doc.getMetadata().isFromCache() ? CACHE : READ, 1);
+    }
+
+    /**
+     * A listener delivery: billed per changed document once the snapshot comes from the server.
+     */
+    public static void onListen(String collection, QuerySnapshot snapshot) {
+        onListen(screen, collection, snapshot);
+    }
+
+    public static void onListen(String source, String collection, QuerySnapshot snapshot) {
+        if (snapshot == null || snapshot.getMetadata().hasPendingWrites()) return; // Own local write, not billed
+        int changes = snapshot.getDocumentChanges().size();
+        if (changes == 0) return;
+        add(source, collection, snapshot.getMetadata().isFromCache() ? CACHE : LISTEN, changes);
+    }
+
+    public static void onListen(String collection, DocumentSnapshot doc) {
+        onListen(screen, collection, doc);
+    }
+
+    public static void onListen(String source, String collection, DocumentSnapshot doc) {
+        if (doc == null || doc.getMetadata().hasPendingWrites()) return;
+        add(source, collection, doc.getMetadata().isFromCache() ? CACHE : LISTEN, 1);
+    }
+
+    public static void onRead(String collection, int documents) {
+        add(screen, collection, READ, documents);
+    }
+
+    public static void onWrite(String collection, int documents) {
+        onWrite(screen, collection, documents);
+    }
+
+    public static void onWrite(String source, String collection, int documents) {
+        add(source, collection, WRITE, documents);
+    }
+
+    public static void onWrite(DocumentReference ref) {
+        add(screen, ref.getParent().getId(), WRITE, 1);
+    }
+
+    /**
+     * Counts the result of a one-shot get (query, document or aggregation) when it succeeds.
+     * @return The same task, so call sites can wrap their get() in place.
+     */
+    public static <T> Task<T> track(String collection, Task<T> task) {
+        final String source = screen;
+        task.addOnSuccessListener(io, result -> {
+            if (result instanceof QuerySnapshot) {
+                onQuery(source, collection, (QuerySnapshot) result);
+            } else if (result instanceof DocumentSnapshot) {
+                onDocument(source, collection, (DocumentSnapshot) result);
+            } else if (result instanceof AggregateQuerySnapshot) {
+                add(source, collection, READ, 1);
+            }
+        });
+        return task;
+    }
+
+    // ---- Reading ----
+
+    /**
+     * @return Today's total of a kind for the active company (READ, WRITE, LISTEN, CACHE).
+     */
+    public static synchronized long todayCount(String kind) {
+        rollDay();
+        Long n = today.get(FirebaseManager.getActiveProjectId() + "|" + kind);
+        return n != null ? n : 0;
+    }
+
+    public interface RowCallback {
+        void onRow(String day, String project, String screen, String collection, String kind, long count);
+    }
+
+    /**
+     * Flushes, then walks all stored rows (newest day first) on the meter thread.
+     */
+    public static void forEachRow(RowCallback callback, Runnable done) {
+        io.execute(() -> {
+            flush();
+            if (store != null) {
+                try (Cursor c = store.getReadableDatabase().query(Store.T_USAGE,
+                        new String[]{"day", "project", "screen", "collection", "kind", "count"},
+                        null, null, null, null, "day DESC, count DESC")) {
+                    while (c.moveToNext()) {
+                        callback.onRow(c.getString(0), c.getString(1), c.getString(2), c.getString(3),
+                                c.getString(4), c.getLong(5));
+                    }
+                }
+            }
+            done.run();
+        });
+    }
+
+    public static void reset() {
+        io.execute(() -> {
+            synchronized (FirestoreMeter.class) {
+                pending.clear();
+                today.clear();
+            }
+            if (store != null) store.getWritableDatabase().delete(Store.T_USAGE, null, null);
+        });
+    }
+
+    // ---- Internals ----
+
+    private static synchronized void add(String source, String collection, String kind, long count) {
+        if (count <= 0) return;
+        rollDay();
+        String project = String.valueOf(FirebaseManager.getActiveProjectId());
+        String key = todayDay + "|" + project + "|" + source + "|" + collection + "|" + kind;
+        Long old = pending.get(key);
+        pending.put(key, (old != null ? old : 0) + count);
+
+        String totalKey = project + "|" + kind;
+        Long total = today.get(totalKey);
+        today.put(totalKey, (total != null ? total : 0) + count);
+
+        if (!flushScheduled && store != null) {
+            flushScheduled = true;
+            io.schedule(FirestoreMeter::flush, FLUSH_DELAY_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void rollDay() {
+        String day = dayOf(new Date());
+        if (!day.equals(todayDay)) {
+            todayDay = day;
+            today.clear();
+        }
+    }
+
+    private static void flush() {
+        Map<String, Long> batch;
+        synchronized (FirestoreMeter.class) {
+            flushScheduled = false;
+            if (pending.isEmpty() || store == null) return;
+            batch = new HashMap<>(pending);
+            pending.clear();
+        }
+        SQLiteDatabase db = store.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            // No UPSERT before SQLite 3.24 (API 30): update, insert if there was no row
+            SQLiteStatement update = db.compileStatement("UPDATE " + Store.T_USAGE + " SET count = count + ? "
+                    + "WHERE day = ? AND project = ? AND screen = ? AND collection = ? AND kind = ?");
+            for (Map.Entry<String, Long> e : batch.entrySet()) {
+                String[] k = e.getKey().split("\\|", 5);
+                update.clearBindings();
+                update.bindLong(1, e.getValue());
+                for (int i = 0; i < 5; i++) update.bindString(i + 2, k[i]);
+                if (update.executeUpdateDelete() == 0) {
+                    ContentValues row = new ContentValues();
+                    row.put("day", k[0]);
+                    row.put("project", k[1]);
+                    row.put("screen", k[2]);
+                    row.put("collection", k[3]);
+                    row.put("kind", k[4]);
+                    row.put("count", e.getValue());
+                    db.insert(Store.T_USAGE, null, row);
+                }
+            }
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            Log.e(TAG, "Meter flush failed", e);
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static void loadToday() {
+        SQLiteDatabase db = store.getWritableDatabase();
+        Calendar cutoff = Calendar.getInstance();
+        cutoff.add(Calendar.DAY_OF_MONTH, -RETENTION_DAYS);
+        db.delete(Store.T_USAGE, "day < ?", new String[]{dayOf(cutoff.getTime())});
+
+        String day = dayOf(new Date());
+        try (Cursor c = db.rawQuery("SELECT project, kind, SUM(count) FROM " + Store.T_USAGE
+                + " WHERE day = ? GROUP BY project, kind", new String[]{day})) {
+            synchronized (FirestoreMeter.class) {
+                rollDay();
+                while (c.moveToNext()) {
+                    String key = c.getString(0) + "|" + c.getString(1);
+                    Long counted = today.get(key); // Counted in memory before the load finished
+                    today.put(key, c.getLong(2) + (counted != null ? counted : 0));
+                }
+            }
+        }
+    }
+
+    private static String dayOf(Date date) {
+        return new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(date);
+    }
+
+    private static final class Store extends SQLiteOpenHelper {
+
+        static final String T_USAGE = "usage";
+
+        Store(Context context) {
+            super(context, "firestore_meter.db", null, 1);
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE " + T_USAGE + " ("
+                    + "day TEXT NOT NULL, project TEXT NOT NULL, screen TEXT NOT NULL, "
+                    + "collection TEXT NOT NULL, kind TEXT NOT NULL, count INTEGER NOT NULL, "
+                    + "PRIMARY KEY (day, project, screen, collection, kind))");
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+            db.execSQL("DROP TABLE IF EXISTS " + T_USAGE);
+            onCreate(db);
+        }
+    }
+}
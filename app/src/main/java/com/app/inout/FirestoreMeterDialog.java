@@ -0,0 +1,88 @@
+package com.inout.app;
+
+import android.app.Activity;
+import android.app.AlertDialog;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.inout.app.utils.FirebaseManager;
+import com.inout.app.utils.FirestoreMeter;
+import com.inout.app.utils.QuotaGovernor;
+import com.inout.app.utils.TimeUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Hidden diagnostics: Firestore usage counted by FirestoreMeter.
+ * Opened by a long press on the admin overview subtitle.
+ *
+ * Shows today's totals for the active company, then the costliest screens and collections,
+ * with a CSV export of every stored row (all days and companies).
+ */
+public final class FirestoreMeterDialog {
+
+    private static final int TOP = 8;
+
+    private FirestoreMeterDialog() {}
+
+    public static void show(final Activity activity) {
+        final String day = TimeUtils.getCurrentDateId();
+        final String project = String.valueOf(FirebaseManager.getActiveProjectId());
+        final Map<String, Long> byScreen = new LinkedHashMap<>();
+        final Map<String, Long> byCollection = new LinkedHashMap<>();
+        final StringBuilder csv = new StringBuilder("Day,Company,Screen,Collection,Kind,Count\n");
+
+        FirestoreMeter.forEachRow((rowDay, rowProject, screen, collection, kind, count) -> {
+            csv.append(rowDay).append(',').append(rowProject).append(',').append(screen).append(',')
+                    .append(collection).append(',').append(kind).append(',').append(count).append('\n');
+            // Billed traffic of today, active company
+            if (rowDay.equals(day) && rowProject.equals(project) && !FirestoreMeter.CACHE.equals(kind)) {
+                add(byScreen, screen, count);
+                add(byCollection, collection + " (" + kind + ")", count);
+            }
+        }, () -> new Handler(Looper.getMainLooper()).post(() -> {
+            if (activity.isFinishing()) return;
+
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.US, "Today: %d reads, %d listener reads, %d writes, %d from cache\n\n",
+                    FirestoreMeter.todayCount(FirestoreMeter.READ),
+                    FirestoreMeter.todayCount(FirestoreMeter.LISTEN),
+                    FirestoreMeter.todayCount(FirestoreMeter.WRITE),
+                    FirestoreMeter.todayCount(FirestoreMeter.CACHE)));
+            sb.append(QuotaGovernor.describe())
+                    .append(QuotaGovernor.isDegraded() ? "\nDegraded: cache first, roster listener paused" : "")
+                    .append("\n\n");
+            sb.append("By screen\n").append(top(byScreen)).append('\n');
+            sb.append("By collection\n").append(top(byCollection));
+
+            new AlertDialog.Builder(activity)
+                    .setTitle("Firestore Usage")
+                    .setMessage(sb.toString().trim())
+                    .setPositiveButton("Export CSV", (d, w) ->
+                            CsvExportHelper.shareCsv(activity, csv.toString(), "firestore_usage_" + day))
+                    .setNeutralButton("Reset", (d, w) -> FirestoreMeter.reset())
+                    .setNegativeButton("Close", null)
+                    .show();
+        }));
+    }
+
+    private static void add(Map<String, Long> totals, String key, long count) {
+        Long old = totals.get(key);
+        totals.put(key, (old != null ? old : 0) + count);
+    }
+
+    private static String top(Map<String, Long> totals) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(totals.entrySet());
+        Collections.sort(entries, (a, b) -> Long.compare(b.getValue(), a.getValue()));
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < entries.size() && i < TOP; i++) {
+            sb.append("  ").append(entries.get(i).getKey()).append(": ").append(entries.get(i).getValue()).append('\n');
+        }
+        return sb.length() > 0 ? sb.toString() : "  (none)\n";
+    }
+}
@@ -2,7 +2,9 @@ package com.inout.app;
 
 import android.app.Application;
 
-import com.inout.app.utils.FirebaseManager;
+import com.inout.app.utils.FirestoreMeter;
+import com.inout.app.utils.QuotaGovernor;
+import com.inout.app.utils.StartupPipeline;
 
 /**
  * The custom Application class for InOut.
@@ -16,9 +18,13 @@ public class InOutApplication extends Application {
     public void onCreate() {
         super.onCreate();
 
-        // Initialize our custom FirebaseManager.
-        // This manager will attempt to load a stored Firebase configuration (encrypted)
-        // if one exists, allowing dynamic project switching.
-        FirebaseManager.initialize(this);
+        // Kick off the startup pipeline on background threads.
+        // It loads encrypted storage, initializes Firebase from the stored (encrypted) config
+        // and checks the auth session, without blocking the main thread.
+        StartupPipeline.start(this);
+
+        // Firestore read/write counters (see FirestoreMeter); opens its store off the main thread
+        FirestoreMeter.init(this);
+        QuotaGovernor.init(this);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,82 @@
+package com.inout.app.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Run history of the background maintenance jobs on this device (see MaintenanceJobs).
+ * The newest MAX_RUNS runs per job are kept in SharedPreferences as a JSON array, newest first.
+ */
+public final class JobHistory {
+
+    private static final String TAG = "JobHistory";
+    private static final String PREFS = "maintenance_jobs";
+    private static final int MAX_RUNS = 20;
+
+    public static final String OK = "ok";
+    public static final String SKIPPED = "skipped";
+    public static final String RETRY = "retry";
+    public static final String FAILED = "failed";
+
+    private JobHistory() {}
+
+    public static synchronized void record(Context context, String job, long startedAt, long durationMs,
+                                           String result, String detail) {
+        SharedPreferences prefs = prefs(context);
+        try {
+            JSONArray old = new JSONArray(prefs.getString(job, "[]"));
+            JSONArray runs = new JSONArray();
+            runs.put(new JSONObject()
+                    .put("startedAt", startedAt)
+                    .put("durationMs", durationMs)
+                    .put("result", result)
+                    .put("detail", detail != null ? detail : ""));
+            for (int i = 0; i < old.length() && runs.length() < MAX_RUNS; i++) {
+                runs.put(old.get(i));
+            }
+            prefs.edit().putString(job, runs.toString()).apply();
+        } catch (JSONException e) {
+            Log.e(TAG, "Could not record run of " + job, e);
+        }
+    }
+
+    /**
+     * @return One line per run, newest first, e.g. "18 Oct 01:02 · ok · 1840 ms · closed 3".
+     */
+    public static String describe(Context context, String job) {
+        StringBuilder sb = new StringBuilder();
+        SimpleDateFormat fmt = new SimpleDateFormat("dd MMM HH:mm", Locale.US);
+        try {
+            JSONArray runs = new JSONArray(prefs(context).getString(job, "[]"));
+            for (int i = 0; i < runs.length(); i++) {
+                JSONObject run = runs.getJSONObject(i);
+                sb.append(fmt.format(new Date(run.getLong("startedAt"))))
+                        .append(" · ").append(run.getString("result"))
+                        .append(" · ").append(run.getLong("durationMs")).append(" ms");
+                String detail = run.optString("detail");
+                if (!detail.isEmpty()) sb.append(" · ").append(detail);
+                sb.append('\n');
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "Corrupt history for " + job, e);
+        }
+        return sb.length() > 0 ? sb.toString() : "No runs yet\n";
+    }
+
+    public static void clear(Context context) {
+        prefs(context).edit().clear().apply();
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+}
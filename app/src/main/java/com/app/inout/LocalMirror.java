@@ -0,0 +1,401 @@
+package com.inout.app.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.inout.app.models.AttendanceRecord;
+import com.inout.app.models.CompanyConfig;
+import com.inout.app.models.User;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local SQLite mirror of 'attendance', 'users' and 'locations', one database per company.
+ *
+ * Screens render from it first (no network, indexed lookups), then refresh from Firestore.
+ * MirrorSync keeps it current from snapshot listeners. Unlike the Firestore cache it can be
+ * queried freely offline, e.g. attendance by location or status.
+ *
+ * Indexes:
+ * 1. attendance (employee_id, date)    - history
+ * 2. attendance (location_id, date)    - per-location lists (last verified location)
+ * 3. users (approved, role)            - roster tabs
+ *
+ * All access goes through one background thread (read()/write()); callbacks run on the main thread.
+ */
+public final class LocalMirror extends SQLiteOpenHelper {
+
+    private static final String TAG = "LocalMirror";
+    private static final int VERSION = 1;
+
+    static final String T_ATTENDANCE = "attendance";
+    static final String T_USERS = "users";
+    static final String T_LOCATIONS = "locations";
+    private static final String T_SYNC_STATE = "sync_state";
+
+    public interface Callback<T> {
+        void onResult(T result);
+    }
+
+    private static final Map<String, LocalMirror> instances = new HashMap<>();
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private static final Handler main = new Handler(Looper.getMainLooper());
+
+    private LocalMirror(Context context, String projectId) {
+        super(context.getApplicationContext(), fileName(projectId), null, VERSION);
+    }
+
+    /**
+     * @return The mirror of the active company.
+     */
+    public static synchronized LocalMirror get(Context context) {
+        String projectId = FirebaseManager.getActiveProjectId();
+        LocalMirror mirror = instances.get(projectId);
+        if (mirror == null) {
+            mirror = new LocalMirror(context, projectId);
+            instances.put(projectId, mirror);
+        }
+        return mirror;
+    }
+
+    private static String fileName(String projectId) {
+        return "mirror_" + (projectId != null ? projectId.replaceAll("[^A-Za-z0-9_-]", "_") : "default") + ".db";
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + T_ATTENDANCE + " ("
+                + "record_id TEXT PRIMARY KEY, employee_id TEXT, employee_name TEXT, date TEXT, "
+                + "check_in_time TEXT, check_in_lat REAL, check_in_lng REAL, "
+                + "check_out_time TEXT, check_out_lat REAL, check_out_lng REAL, "
+                + "total_hours TEXT, location_name TEXT, distance_meters REAL, "
+                + "movement_log TEXT, movement_count INTEGER, location_id TEXT, assigned_location_id TEXT, "
+                + "assigned_shift TEXT, overtime_hours TEXT, worked_minutes INTEGER, overtime_minutes INTEGER, "
+                + "start_location_name TEXT, fingerprint_verified INTEGER, gps_verified INTEGER, "
+                + "timestamp INTEGER, last_event_timestamp INTEGER, status TEXT)");
+        db.execSQL("CREATE INDEX idx_attendance_employee_date ON " + T_ATTENDANCE + " (employee_id, date)");
+        db.execSQL("CREATE INDEX idx_attendance_location_date ON " + T_ATTENDANCE + " (location_id, date)");
+
+        db.execSQL("CREATE TABLE " + T_USERS + " ("
+                + "uid TEXT PRIMARY KEY, name TEXT, email TEXT, phone TEXT, role TEXT, approved INTEGER, "
+                + "employee_id TEXT, photo_url TEXT, assigned_location_id TEXT, is_traveling INTEGER, "
+                + "shift_start_time TEXT, shift_end_time TEXT)");
+        db.execSQL("CREATE INDEX idx_users_approved_role ON " + T_USERS + " (approved, role)");
+
+        db.execSQL("CREATE TABLE " + T_LOCATIONS + " ("
+                + "id TEXT PRIMARY KEY, name TEXT, latitude REAL, longitude REAL, radius REAL)");
+
+        db.execSQL("CREATE TABLE " + T_SYNC_STATE + " (scope TEXT PRIMARY KEY, watermark INTEGER)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // A mirror holds no original data: rebuild it from Firestore
+        db.execSQL("DROP TABLE IF EXISTS " + T_ATTENDANCE);
+        db.execSQL("DROP TABLE IF EXISTS " + T_USERS);
+        db.execSQL("DROP TABLE IF EXISTS " + T_LOCATIONS);
+        db.execSQL("DROP TABLE IF EXISTS " + T_SYNC_STATE);
+        onCreate(db);
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Threading
+    // ---------------------------------------------------------------------------------------------
+
+    /**
+     * Runs a query on the mirror thread and delivers the result on the main thread.
+     * Errors are logged and delivered as null, so a broken mirror only costs the first paint.
+     */
+    public static <T> void read(Callable<T> query, Callback<T> callback) {
+        executor.execute(() -> {
+            T result = null;
+            try {
+                result = query.call();
+            } catch (Exception e) {
+                Log.e(TAG, "Mirror read failed", e);
+            }
+            final T delivered = result;
+            main.post(() -> callback.onResult(delivered));
+        });
+    }
+
+    /**
+     * Runs a write on the mirror thread, inside one transaction.
+     */
+    public void write(Callback<SQLiteDatabase> work) {
+        executor.execute(() -> {
+            try {
+                SQLiteDatabase db = getWritableDatabase();
+                db.beginTransaction();
+                try {
+                    work.onResult(db);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Mirror write failed", e);
+            }
+        });
+    }
+
+    /**
+     * Deletes the active company's mirror (logout).
+     */
+    public static void deleteAll(Context context) {
+        final LocalMirror mirror = get(context);
+        executor.execute(() -> {
+            SQLiteDatabase db = mirror.getWritableDatabase();
+            db.delete(T_ATTENDANCE, null, null);
+            db.delete(T_USERS, null, null);
+            db.delete(T_LOCATIONS, null, null);
+            db.delete(T_SYNC_STATE, null, null);
+        });
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Writes (mirror thread, inside write())
+    // ---------------------------------------------------------------------------------------------
+
+    static void putAttendance(SQLiteDatabase db, String recordId, AttendanceRecord r) {
+        ContentValues v = new ContentValues();
+        v.put("record_id", recordId);
+        v.put("employee_id", r.getEmployeeId());
+        v.put("employee_name", r.getEmployeeName());
+        v.put("date", r.getDate());
+        v.put("check_in_time", r.getCheckInTime());
+        v.put("check_in_lat", r.getCheckInLat());
+        v.put("check_in_lng", r.getCheckInLng());
+        v.put("check_out_time", r.getCheckOutTime());
+        v.put("check_out_lat", r.getCheckOutLat());
+        v.put("check_out_lng", r.getCheckOutLng());
+        v.put("total_hours", r.getTotalHours());
+        v.put("location_name", r.getLocationName());
+        v.put("distance_meters", r.getDistanceMeters());
+        v.put("movement_log", r.getMovementLog() != null ? new JSONArray(r.getMovementLog()).toString() : null);
+        v.put("movement_count", r.getMovementCount());
+        v.put("location_id", r.getLastVerifiedLocationId());
+        v.put("assigned_location_id", r.getAssignedLocationId());
+        v.put("assigned_shift", r.getAssignedShift());
+        v.put("overtime_hours", r.getOvertimeHours());
+        v.put("worked_minutes", r.getWorkedMinutes());
+        v.put("overtime_minutes", r.getOvertimeMinutes());
+        v.put("start_location_name", r.getStartLocationName());
+        v.put("fingerprint_verified", r.isFingerprintVerified() ? 1 : 0);
+        v.put("gps_verified", r.isGpsVerified() ? 1 : 0);
+        v.put("timestamp", r.getTimestamp());
+        v.put("last_event_timestamp", r.getLastEventTimestamp());
+        v.put("status", r.getStatus());
+        db.insertWithOnConflict(T_ATTENDANCE, null, v, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    static void putUser(SQLiteDatabase db, String uid, User u) {
+        ContentValues v = new ContentValues();
+        v.put("uid", uid);
+        v.put("name", u.getName());
+        v.put("email", u.getEmail());
+        v.put("phone", u.getPhone());
+        v.put("role", u.getRole());
+        v.put("approved", u.isApproved() ? 1 : 0);
+        v.put("employee_id", u.getEmployeeId());
+        v.put("photo_url", u.getPhotoUrl());
+        v.put("assigned_location_id", u.getAssignedLocationId());
+        v.put("is_traveling", u.isTraveling() ? 1 : 0);
+        v.put("shift_start_time", u.getShiftStartTime());
+        v.put("shift_end_time", u.getShiftEndTime());
+        db.insertWithOnConflict(T_USERS, null, v, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    static void putLocation(SQLiteDatabase db, String id, CompanyConfig c) {
+        ContentValues v = new ContentValues();
+        v.put("id", id);
+        v.put("name", c.getName());
+        v.put("latitude", c.getLatitude());
+        v.put("longitude", c.getLongitude());
+        v.put("radius", c.getRadius());
+        db.insertWithOnConflict(T_LOCATIONS, null, v, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    static void delete(SQLiteDatabase db, String table, String id) {
+        db.delete(table, keyColumn(table) + " = ?", new String[]{id});
+    }
+
+    static long watermark(SQLiteDatabase db, String scope) {
+        try (Cursor c = db.rawQuery("SELECT watermark FROM " + T_SYNC_STATE + " WHERE scope = ?", new String[]{scope})) {
+            return c.moveToFirst() ? c.getLong(0) : -1;
+        }
+    }
+
+    static void setWatermark(SQLiteDatabase db, String scope, long watermark) {
+        ContentValues v = new ContentValues();
+        v.put("scope", scope);
+        v.put("watermark", watermark);
+        db.insertWithOnConflict(T_SYNC_STATE, null, v, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    private static String keyColumn(String table) {
+        if (T_ATTENDANCE.equals(table)) return "record_id";
+        if (T_USERS.equals(table)) return "uid";
+        return "id";
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Reads (call through read())
+    // ---------------------------------------------------------------------------------------------
+
+    /**
+     * @return The employee's records, newest first.
+     */
+    public List<AttendanceRecord> attendanceForEmployee(String employeeId) {
+        return queryAttendance("employee_id = ?", new String[]{employeeId}, "date DESC");
+    }
+
+    /**
+     * @return Records last verified at the location within [fromDate, toDate] (yyyy-MM-dd).
+     */
+    public List<AttendanceRecord> attendanceAtLocation(String locationId, String fromDate, String toDate) {
+        return queryAttendance("location_id = ? AND date BETWEEN ? AND ?",
+                new String[]{locationId, fromDate, toDate}, "date DESC, employee_name");
+    }
+
+    /**
+     * @param status "Present", "Partial" or "Absent" (see AttendanceRecord.getStatus()).
+     */
+    public List<AttendanceRecord> attendanceByStatus(String status, String fromDate, String toDate) {
+        return queryAttendance("status = ? AND date BETWEEN ? AND ?",
+                new String[]{status, fromDate, toDate}, "date DESC, employee_name");
+    }
+
+    /**
+     * @param branchId null for all branches.
+     */
+    public List<User> users(String role, boolean approved, String branchId) {
+        String where = "approved = ? AND role = ?";
+        List<String> args = new ArrayList<>();
+        args.add(approved ? "1" : "0");
+        args.add(role);
+        if (branchId != null) {
+            where += " AND assigned_location_id = ?";
+            args.add(branchId);
+        }
+
+        List<User> users = new ArrayList<>();
+        try (Cursor c = getReadableDatabase().query(T_USERS, null, where, args.toArray(new String[0]),
+                null, null, "name COLLATE NOCASE")) {
+            while (c.moveToNext()) users.add(userAt(c));
+        }
+        return users;
+    }
+
+    /**
+     * @return The user, or null if not mirrored yet.
+     */
+    public User user(String uid) {
+        try (Cursor c = getReadableDatabase().query(T_USERS, null, "uid = ?", new String[]{uid}, null, null, null)) {
+            return c.moveToFirst() ? userAt(c) : null;
+        }
+    }
+
+    public List<CompanyConfig> locations() {
+        List<CompanyConfig> locations = new ArrayList<>();
+        try (Cursor c = getReadableDatabase().query(T_LOCATIONS, null, null, null, null, null, "name COLLATE NOCASE")) {
+            while (c.moveToNext()) {
+                CompanyConfig config = new CompanyConfig(str(c, "name"), dbl(c, "latitude"), dbl(c, "longitude"));
+                config.setId(str(c, "id"));
+                config.setRadius((float) dbl(c, "radius"));
+                locations.add(config);
+            }
+        }
+        return locations;
+    }
+
+    private List<AttendanceRecord> queryAttendance(String where, String[] args, String orderBy) {
+        List<AttendanceRecord> records = new ArrayList<>();
+        try (Cursor c = getReadableDatabase().query(T_ATTENDANCE, null, where, args, null, null, orderBy)) {
+            while (c.moveToNext()) records.add(attendanceAt(c));
+        }
+        return records;
+    }
+
+    private static AttendanceRecord attendanceAt(Cursor c) {
+        AttendanceRecord r = new AttendanceRecord(str(c, "employee_id"), str(c, "employee_name"),
+                str(c, "date"), lng(c, "timestamp"));
+        r.setRecordId(str(c, "record_id"));
+        r.setCheckInTime(str(c, "check_in_time"));
+        r.setCheckInLat(dbl(c, "check_in_lat"));
+        r.setCheckInLng(dbl(c, "check_in_lng"));
+        r.setCheckOutTime(str(c, "check_out_time"));
+        r.setCheckOutLat(dbl(c, "check_out_lat"));
+        r.setCheckOutLng(dbl(c, "check_out_lng"));
+        r.setTotalHours(str(c, "total_hours"));
+        r.setLocationName(str(c, "location_name"));
+        r.setDistanceMeters((float) dbl(c, "distance_meters"));
+        r.setMovementLog(movementLogOf(str(c, "movement_log")));
+        r.setMovementCount((int) lng(c, "movement_count"));
+        r.setLastVerifiedLocationId(str(c, "location_id"));
+        r.setAssignedLocationId(str(c, "assigned_location_id"));
+        r.setAssignedShift(str(c, "assigned_shift"));
+        r.setOvertimeHours(str(c, "overtime_hours"));
+        r.setWorkedMinutes((int) lng(c, "worked_minutes"));
+        r.setOvertimeMinutes((int) lng(c, "overtime_minutes"));
+        r.setStartLocationName(str(c, "start_location_name"));
+        r.setFingerprintVerified(lng(c, "fingerprint_verified") == 1);
+        r.setGpsVerified(lng(c, "gps_verified") == 1);
+        r.setLastEventTimestamp(lng(c, "last_event_timestamp"));
+        return r;
+    }
+
+    private static User userAt(Cursor c) {
+        User u = new User(str(c, "uid"), str(c, "email"), str(c, "role"));
+        u.setName(str(c, "name"));
+        u.setPhone(str(c, "phone"));
+        u.setApproved(lng(c, "approved") == 1);
+        u.setEmployeeId(str(c, "employee_id"));
+        u.setPhotoUrl(str(c, "photo_url"));
+        u.setAssignedLocationId(str(c, "assigned_location_id"));
+        u.setTraveling(lng(c, "is_traveling") == 1);
+        u.setShiftStartTime(str(c, "shift_start_time"));
+        u.setShiftEndTime(str(c, "shift_end_time"));
+        return u;
+    }
+
+    private static List<String> movementLogOf(String json) {
+        List<String> log = new ArrayList<>();
+        if (json == null) return log;
+        try {
+            JSONArray array = new JSONArray(json);
+            for (int i = 0; i < array.length(); i++) log.add(array.optString(i));
+        } catch (JSONException e) {
+            Log.e(TAG, "Bad movement log in mirror", e);
+        }
+        return log;
+    }
+
+    private static String str(Cursor c, String column) {
+        int i = c.getColumnIndexOrThrow(column);
+        return c.isNull(i) ? null : c.getString(i);
+    }
+
+    private static double dbl(Cursor c, String column) {
+        return c.getDouble(c.getColumnIndexOrThrow(column));
+    }
+
+    private static long lng(Cursor c, String column) {
+        return c.getLong(c.getColumnIndexOrThrow(column));
+    }
+}
@@ -10,6 +10,7 @@ import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.Lifecycle;
 
 import com.google.android.gms.auth.api.signin.GoogleSignIn;
 import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
@@ -24,10 +25,17 @@ import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.auth.GoogleAuthProvider;
 import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
 import com.inout.app.databinding.ActivityLoginBinding;
 import com.inout.app.models.User;
+import com.inout.app.utils.DeltaSync;
+import com.inout.app.utils.DirectoryIndex;
 import com.inout.app.utils.EncryptionHelper;
+import com.inout.app.utils.FirebaseManager;
+import com.inout.app.utils.FirestoreMeter;
+import com.inout.app.utils.StartupPipeline;
 
 /**
  * Handles Google Sign-In and initial User Profile creation.
@@ -69,11 +77,24 @@ public class LoginActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        FirestoreMeter.setScreen(getClass().getSimpleName());
+
         binding = ActivityLoginBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
+        binding.btnGoogleSignIn.setEnabled(false);
+
+        // Firebase may still be initializing if this screen was restored without the Splash
+        StartupPipeline.getInstance(this).whenFirebaseReady(this, () -> {
+            mAuth = FirebaseManager.getAuth();
+            db = FirebaseManager.getFirestore();
+            binding.btnGoogleSignIn.setEnabled(true);
+            setUpSignIn();
+            // onStart found Firebase not ready yet and left the session check to us
+            if (getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.STARTED)) checkSignedIn();
+        });
+    }
 
-        mAuth = FirebaseAuth.getInstance();
-        db = FirebaseFirestore.getInstance();
+    private void setUpSignIn() {
         EncryptionHelper encryptionHelper = EncryptionHelper.getInstance(this);
         expectedRole = encryptionHelper.getUserRole();
         
@@ -103,6 +124,10 @@ public class LoginActivity extends AppCompatActivity {
     @Override
     protected void onStart() {
         super.onStart();
+        if (mAuth != null) checkSignedIn();
+    }
+
+    private void checkSignedIn() {
         FirebaseUser currentUser = mAuth.getCurrentUser();
         if (currentUser != null) {
             checkUserInFirestore(currentUser);
@@ -139,13 +164,15 @@ public class LoginActivity extends AppCompatActivity {
 
         DocumentReference userRef = db.collection("users").document(firebaseUser.getUid());
 
-        userRef.get().addOnSuccessListener(documentSnapshot -> {
+        FirestoreMeter.track("users", userRef.get()).addOnSuccessListener(documentSnapshot -> {
             if (documentSnapshot.exists()) {
                 User user = documentSnapshot.toObject(User.class);
                 if (user != null && user.getRole().equals(expectedRole)) {
                     // Update photoURL if it changed on Google side
                     if (firebaseUser.getPhotoUrl() != null) {
-                        userRef.update("photoUrl", firebaseUser.getPhotoUrl().toString());
+                        userRef.update("photoUrl", firebaseUser.getPhotoUrl().toString(),
+                                DeltaSync.UPDATED_AT, FieldValue.serverTimestamp());
+                        FirestoreMeter.onWrite("users", 1);
                     }
                     proceedToDashboard(user);
                 } else {
@@ -181,8 +208,16 @@ public class LoginActivity extends AppCompatActivity {
             newUser.setApproved(false);
         }
 
-        userRef.set(newUser)
+        WriteBatch batch = db.batch();
+        batch.set(userRef, newUser);
+        if ("employee".equals(expectedRole)) {
+            // New employees show up in the admin's roster (directory index) as pending
+            DirectoryIndex.put(batch, db, newUser);
+        }
+
+        batch.commit()
                 .addOnSuccessListener(aVoid -> {
+                    FirestoreMeter.onWrite("users", "employee".equals(expectedRole) ? 2 : 1);
                     Toast.makeText(LoginActivity.this, "Account Created Successfully.", Toast.LENGTH_SHORT).show();
                     proceedToDashboard(newUser);
                 })
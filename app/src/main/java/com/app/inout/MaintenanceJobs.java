@@ -0,0 +1,330 @@
+package com.inout.app.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Source;
+
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background maintenance that runs without a screen open (WorkManager, periodic, unique per job).
+ *
+ * 1. auto_close:  nightly; checks out records still open after their shift end (AttendanceAutoClose).
+ *                 Employees close their own, admins their branch or company.
+ * 2. month_end:   once per month on a company-wide admin's device; archives last month (MonthArchiver)
+ *                 so month reports are one read per employee. Unmetered + charging + idle. Waits out the
+ *                 month's grace period, and re-archives daily while the month still has open days.
+ * 3. cache_prune: drops shared reports and images not accessed for two days (ShareCache). Idle only.
+ * 4. prefetch:    early morning; syncs the roster/own profile and locations into the Firestore cache,
+ *                 so the first screen of the day renders without waiting on the network. Unmetered.
+ *
+ * Every run is recorded with its duration in JobHistory (admin menu "Background Jobs").
+ * While QuotaGovernor is degraded only auto_close (and the local cache_prune) run; the others skip.
+ * WorkManager does not allow backoff on idle jobs, so month_end and cache_prune just run again next period.
+ */
+public final class MaintenanceJobs {
+
+    private static final String TAG = "MaintenanceJobs";
+    private static final String TAG_ALL = "maintenance";
+    private static final String STATE_PREFS = "maintenance_state";
+
+    public static final String AUTO_CLOSE = "auto_close";
+    public static final String MONTH_END = "month_end";
+    public static final String CACHE_PRUNE = "cache_prune";
+    public static final String PREFETCH = "prefetch";
+    public static final String[] ALL = {AUTO_CLOSE, MONTH_END, CACHE_PRUNE, PREFETCH};
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long CACHE_MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(2);
+
+    private MaintenanceJobs() {}
+
+    /**
+     * Schedules all jobs. Idempotent (KEEP): called on every dashboard start.
+     */
+    public static void schedule(Context context) {
+        WorkManager wm = WorkManager.getInstance(context);
+
+        Constraints online = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .setRequiresBatteryNotLow(true)
+                .build();
+        wm.enqueueUniquePeriodicWork(AUTO_CLOSE, ExistingPeriodicWorkPolicy.KEEP,
+                new PeriodicWorkRequest.Builder(AutoCloseWorker.class, 1, TimeUnit.DAYS)
+                        .setConstraints(online)
+                        .setInitialDelay(delayUntil(1), TimeUnit.MILLISECONDS)
+                        .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 15, TimeUnit.MINUTES)
+                        .addTag(TAG_ALL)
+                        .build());
+
+        wm.enqueueUniquePeriodicWork(MONTH_END, ExistingPeriodicWorkPolicy.KEEP,
+                new PeriodicWorkRequest.Builder(MonthEndWorker.class, 1, TimeUnit.DAYS)
+                        .setConstraints(new Constraints.Builder()
+                                .setRequiredNetworkType(NetworkType.UNMETERED)
+                                .setRequiresCharging(true)
+                                .setRequiresDeviceIdle(true)
+                                .build())
+                        .addTag(TAG_ALL)
+                        .build());
+
+        wm.enqueueUniquePeriodicWork(CACHE_PRUNE, ExistingPeriodicWorkPolicy.KEEP,
+                new PeriodicWorkRequest.Builder(CachePruneWorker.class, 1, TimeUnit.DAYS)
+                        .setConstraints(new Constraints.Builder()
+                                .setRequiresDeviceIdle(true)
+                                .setRequiresBatteryNotLow(true)
+                                .build())
+                        .addTag(TAG_ALL)
+                        .build());
+
+        wm.enqueueUniquePeriodicWork(PREFETCH, ExistingPeriodicWorkPolicy.KEEP,
+                new PeriodicWorkRequest.Builder(PrefetchWorker.class, 1, TimeUnit.DAYS)
+                        .setConstraints(new Constraints.Builder()
+                                .setRequiredNetworkType(NetworkType.UNMETERED)
+                                .setRequiresBatteryNotLow(true)
+                                .build())
+                        .setInitialDelay(delayUntil(5), TimeUnit.MILLISECONDS)
+                        .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 30, TimeUnit.MINUTES)
+                        .addTag(TAG_ALL)
+                        .build());
+    }
+
+    /**
+     * Stops all jobs and forgets their history (logout).
+     */
+    public static void cancel(Context context) {
+        WorkManager.getInstance(context).cancelAllWorkByTag(TAG_ALL);
+        JobHistory.clear(context);
+        context.getApplicationContext().getSharedPreferences(STATE_PREFS, Context.MODE_PRIVATE).edit().clear().apply();
+    }
+
+    /**
+     * @return Millis until the next occurrence of the given hour of day.
+     */
+    private static long delayUntil(int hourOfDay) {
+        Calendar next = Calendar.getInstance();
+        next.set(Calendar.HOUR_OF_DAY, hourOfDay);
+        next.set(Calendar.MINUTE, 0);
+        next.set(Calendar.SECOND, 0);
+        next.set(Calendar.MILLISECOND, 0);
+        if (next.getTimeInMillis() <= System.currentTimeMillis()) {
+            next.add(Calendar.DAY_OF_MONTH, 1);
+        }
+        return next.getTimeInMillis() - System.currentTimeMillis();
+    }
+
+    /**
+     * A job that has nothing to do for this user/device. Recorded, not retried.
+     */
+    static class Skip extends Exception {
+        Skip(String reason) {
+            super(reason);
+        }
+    }
+
+    /**
+     * Common run loop: waits for Firebase, checks the session, times the run and records it.
+     */
+    abstract static class Job extends Worker {
+
+        Job(@NonNull Context context, @NonNull WorkerParameters params) {
+            super(context, params);
+        }
+
+        abstract String name();
+
+        /**
+         * @return A short result summary for the history, e.g. "closed 3".
+         */
+        abstract String run(Context context, FirebaseFirestore db, FirebaseUser user, boolean admin) throws Exception;
+
+        /** Jobs that only touch local files override this. */
+        boolean needsSession() {
+            return true;
+        }
+
+        /** Jobs that still run when the daily quota is nearly used up (see QuotaGovernor). */
+        boolean essential() {
+            return false;
+        }
+
+        @NonNull
+        @Override
+        public Result doWork() {
+            Context context = getApplicationContext();
+            long startedAt = System.currentTimeMillis();
+            long t0 = SystemClock.elapsedRealtime();
+            try {
+                FirebaseFirestore db = null;
+                FirebaseUser user = null;
+                boolean admin = "admin".equals(EncryptionHelper.getInstance(context).getUserRole());
+                if (needsSession()) {
+                    // The process may have been started just for this job
+                    StartupPipeline.getInstance(context).awaitFirebase();
+                    user = FirebaseManager.getAuth().getCurrentUser();
+                    if (user == null) throw new Skip("signed out");
+                    if (!essential() && QuotaGovernor.isDegraded()) throw new Skip("quota: " + QuotaGovernor.describe());
+                    db = FirebaseManager.getFirestore();
+                }
+                String detail;
+                String screen = FirestoreMeter.getScreen();
+                FirestoreMeter.setScreen("job:" + name());
+                try {
+                    detail = run(context, db, user, admin);
+                } finally {
+                    FirestoreMeter.setScreen(screen);
+                }
+                JobHistory.record(context, name(), startedAt, SystemClock.elapsedRealtime() - t0, JobHistory.OK, detail);
+                return Result.success();
+            } catch (Skip skip) {
+                JobHistory.record(context, name(), startedAt, SystemClock.elapsedRealtime() - t0, JobHistory.SKIPPED, skip.getMessage());
+                return Result.success();
+            } catch (Exception e) {
+                Log.e(TAG, name() + " failed (attempt " + (getRunAttemptCount() + 1) + ")", e);
+                boolean retry = getRunAttemptCount() + 1 < MAX_ATTEMPTS;
+                JobHistory.record(context, name(), startedAt, SystemClock.elapsedRealtime() - t0,
+                        retry ? JobHistory.RETRY : JobHistory.FAILED, String.valueOf(e.getMessage()));
+                return retry ? Result.retry() : Result.failure();
+            }
+        }
+    }
+
+    public static class AutoCloseWorker extends Job {
+        public AutoCloseWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+            super(context, params);
+        }
+
+        @Override
+        String name() {
+            return AUTO_CLOSE;
+        }
+
+        @Override
+        boolean essential() {
+            return true; // Check-outs always go through
+        }
+
+        @Override
+        String run(Context context, FirebaseFirestore db, FirebaseUser user, boolean admin) throws Exception {
+            int closed;
+            if (admin) {
+                String branchId = Tasks.await(AdminScope.loadBranch(db));
+                closed = AttendanceAutoClose.closeDue(db, AttendanceAutoClose.openRecords(db, null, branchId));
+            } else {
+                String employeeId = employeeIdOf(db, user);
+                closed = AttendanceAutoClose.closeDue(db, AttendanceAutoClose.openRecords(db, employeeId, null));
+            }
+            return "closed " + closed;
+        }
+    }
+
+    public static class MonthEndWorker extends Job {
+        public MonthEndWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+            super(context, params);
+        }
+
+        @Override
+        String name() {
+            return MONTH_END;
+        }
+
+        @Override
+        String run(Context context, FirebaseFirestore db, FirebaseUser user, boolean admin) throws Exception {
+            if (!admin) throw new Skip("not an admin");
+            if (Tasks.await(AdminScope.loadBranch(db)) != null) throw new Skip("branch admin");
+
+            String month = MonthArchiver.previousMonth();
+            SharedPreferences state = context.getApplicationContext().getSharedPreferences(STATE_PREFS, Context.MODE_PRIVATE);
+            String key = FirebaseManager.getActiveProjectId() + "/archived";
+            if (month.equals(state.getString(key, null))) throw new Skip(month + " already archived");
+            if (!MonthArchiver.isClosed(month)) throw new Skip(month + " is in its grace period");
+
+            int[] result = MonthArchiver.closeMonthBlocking(db, month, false, (employees, archived) -> {});
+            String summary = month + ": " + result[1] + "/" + result[0] + " employees";
+            if (result[3] > 0) {
+                // Not marked archived: the next run archives the month again until every day is closed
+                return summary + ", " + result[3] + " open days, retrying";
+            }
+            state.edit().putString(key, month).apply();
+            return summary;
+        }
+    }
+
+    public static class CachePruneWorker extends Job {
+        public CachePruneWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+            super(context, params);
+        }
+
+        @Override
+        String name() {
+            return CACHE_PRUNE;
+        }
+
+        @Override
+        boolean needsSession() {
+            return false;
+        }
+
+        @Override
+        String run(Context context, FirebaseFirestore db, FirebaseUser user, boolean admin) {
+            // Shared CSVs and QR images only need to live until the share sheet has handed them over
+            int deleted = ShareCache.prune(context, CACHE_MAX_AGE_MILLIS);
+            return "deleted " + deleted + " files";
+        }
+    }
+
+    public static class PrefetchWorker extends Job {
+        public PrefetchWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+            super(context, params);
+        }
+
+        @Override
+        String name() {
+            return PREFETCH;
+        }
+
+        @Override
+        String run(Context context, FirebaseFirestore db, FirebaseUser user, boolean admin) throws Exception {
+            int fetched = Tasks.await(DeltaSync.sync(context, db, "locations", "locations", db.collection("locations")));
+            if (admin) {
+                fetched += Tasks.await(DeltaSync.sync(context, db, "users", "users", db.collection("users")));
+            } else {
+                // Tomorrow's assignment and shift live on the user's own document
+                DocumentSnapshot me = Tasks.await(FirestoreMeter.track("users",
+                        db.collection("users").document(user.getUid()).get(Source.SERVER)));
+                fetched++;
+                String employeeId = me.getString("employeeId");
+                if (employeeId != null) {
+                    String scope = "attendance/" + employeeId;
+                    fetched += Tasks.await(DeltaSync.sync(context, db, scope, "attendance",
+                            db.collection("attendance").whereEqualTo("employeeId", employeeId)));
+                }
+            }
+            return "fetched " + fetched + " documents";
+        }
+    }
+
+    private static String employeeIdOf(FirebaseFirestore db, FirebaseUser user) throws Exception {
+        DocumentSnapshot me = Tasks.await(FirestoreMeter.track("users", db.collection("users").document(user.getUid()).get()));
+        String employeeId = me.getString("employeeId");
+        if (employeeId == null) throw new Skip("no employee ID yet");
+        return employeeId;
+    }
+}
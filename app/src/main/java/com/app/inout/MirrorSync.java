@@ -0,0 +1,177 @@
+package com.inout.app.utils;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.inout.app.models.AttendanceRecord;
+import com.inout.app.models.CompanyConfig;
+import com.inout.app.models.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps LocalMirror current from snapshot listeners while a dashboard is open.
+ *
+ * Employee: own user document, own attendance, locations.
+ * Admin: users and locations (the month matrix keeps its own listener).
+ *
+ * Each mirrored scope has a watermark (newest updatedAt, see DeltaSync) in the mirror itself.
+ * Once a scope has been seeded, its listener only asks for documents with a newer updatedAt, plus
+ * tombstones of deletions, so reopening the app costs reads proportional to what changed.
+ * Listener callbacks run on a background thread; SQLite writes never touch the main thread.
+ * While QuotaGovernor is degraded the admin mirror does not start, and running listeners pause.
+ */
+public final class MirrorSync {
+
+    private static final String TAG = "MirrorSync";
+    private static final String METER_SOURCE = "mirror";
+
+    private static final Executor callbacks = Executors.newSingleThreadExecutor();
+    private static final List<ListenerRegistration> registrations = new ArrayList<>();
+    private static int generation;   // Bumped by stop(), so a scope still reading its watermark does not attach
+    private static Object owner;     // The dashboard that started the listeners
+
+    private MirrorSync() {}
+
+    public static synchronized void startEmployee(Context context, FirebaseFirestore db, String uid, String employeeId) {
+        stop();
+        owner = context;
+        LocalMirror mirror = LocalMirror.get(context);
+        registrations.add(db.collection("users").document(uid).addSnapshotListener(callbacks, (doc, error) -> {
+            FirestoreMeter.onListen(METER_SOURCE, "users", doc);
+            if (error != null || doc == null) return;
+            mirror.write(sql -> {
+                User user = doc.exists() ? doc.toObject(User.class) : null;
+                if (user != null) LocalMirror.putUser(sql, uid, user);
+                else LocalMirror.delete(sql, LocalMirror.T_USERS, uid);
+            });
+        }));
+        mirrorScope(context, db, "attendance/" + employeeId, LocalMirror.T_ATTENDANCE,
+                db.collection("attendance").whereEqualTo("employeeId", employeeId));
+        mirrorScope(context, db, "locations", LocalMirror.T_LOCATIONS, db.collection("locations"));
+    }
+
+    public static synchronized void startAdmin(Context context, FirebaseFirestore db) {
+        stop();
+        if (QuotaGovernor.isDegraded()) return; // Non-essential: the admin screens fall back to the Firestore cache
+        owner = context;
+        mirrorScope(context, db, "users", LocalMirror.T_USERS, db.collection("users"));
+        mirrorScope(context, db, "locations", LocalMirror.T_LOCATIONS, db.collection("locations"));
+    }
+
+    /**
+     * Stops the listeners if they were started by this dashboard (a newer one may already own them).
+     */
+    public static synchronized void release(Object dashboard) {
+        if (owner == dashboard) stop();
+    }
+
+    public static synchronized void stop() {
+        generation++;
+        owner = null;
+        for (ListenerRegistration registration : registrations) {
+            registration.remove();
+        }
+        registrations.clear();
+    }
+
+    /**
+     * Near the daily quota the mirror stops listening; the watermarks stay, so the next start catches up.
+     */
+    private static synchronized void pause(int started) {
+        if (started != generation) return;
+        Log.w(TAG, "Paused: " + QuotaGovernor.describe());
+        stop();
+    }
+
+    /**
+     * Reads the scope's watermark on the mirror thread, then attaches the (delta) listeners.
+     */
+    private static void mirrorScope(Context context, FirebaseFirestore db, String scope, String table, Query query) {
+        LocalMirror mirror = LocalMirror.get(context);
+        final int started = generation;
+        LocalMirror.read(() -> LocalMirror.watermark(mirror.getReadableDatabase(), scope), watermark -> {
+            long since = watermark != null ? watermark : -1;
+            synchronized (MirrorSync.class) {
+                if (started != generation) return;
+                Query changes = since >= 0
+                        ? query.whereGreaterThan(DeltaSync.UPDATED_AT, DeltaSync.since(since))
+                        : query;
+                registrations.add(changes.addSnapshotListener(callbacks, (value, error) -> {
+                    FirestoreMeter.onListen(METER_SOURCE, table, value);
+                    if (error != null) {
+                        Log.e(TAG, "Mirror listener failed for " + scope, error);
+                        return;
+                    }
+                    if (value != null) apply(mirror, scope, table, value);
+                    if (QuotaGovernor.isDegraded()) pause(started);
+                }));
+
+                if (since >= 0) {
+                    // Deletions made while this device was not listening
+                    registrations.add(db.collection(DeltaSync.TOMBSTONES)
+                            .whereEqualTo("collection", table)
+                            .whereGreaterThan("deletedAt", DeltaSync.since(since))
+                            .addSnapshotListener(callbacks, (value, error) -> {
+                                FirestoreMeter.onListen(METER_SOURCE, DeltaSync.TOMBSTONES, value);
+                                if (error != null || value == null) return;
+                                mirror.write(sql -> {
+                                    for (DocumentSnapshot tombstone : value.getDocuments()) {
+                                        String docId = tombstone.getString("docId");
+                                        if (docId != null) LocalMirror.delete(sql, table, docId);
+                                    }
+                                });
+                            }));
+                }
+            }
+        });
+    }
+
+    private static void apply(LocalMirror mirror, String scope, String table, QuerySnapshot value) {
+        mirror.write(sql -> {
+            long newest = LocalMirror.watermark(sql, scope);
+            for (DocumentChange change : value.getDocumentChanges()) {
+                DocumentSnapshot doc = change.getDocument();
+                if (change.getType() == DocumentChange.Type.REMOVED) {
+                    // Scopes only filter on fields that never change, so leaving the query means deleted
+                    LocalMirror.delete(sql, table, doc.getId());
+                    continue;
+                }
+                put(sql, table, doc);
+                Timestamp updatedAt = doc.getTimestamp(DeltaSync.UPDATED_AT);
+                if (updatedAt != null && !doc.getMetadata().hasPendingWrites()) {
+                    newest = Math.max(newest, updatedAt.toDate().getTime());
+                }
+            }
+            if (!value.getMetadata().isFromCache()) {
+                // Only a server snapshot proves the scope is complete up to the watermark
+                LocalMirror.setWatermark(sql, scope, Math.max(newest, 0));
+            }
+        });
+    }
+
+    private static void put(SQLiteDatabase sql, String table, DocumentSnapshot doc) {
+        if (LocalMirror.T_ATTENDANCE.equals(table)) {
+            AttendanceRecord record = doc.toObject(AttendanceRecord.class);
+            if (record != null) LocalMirror.putAttendance(sql, doc.getId(), record);
+        } else if (LocalMirror.T_USERS.equals(table)) {
+            User user = doc.toObject(User.class);
+            if (user != null) LocalMirror.putUser(sql, doc.getId(), user);
+        } else {
+            CompanyConfig location = doc.toObject(CompanyConfig.class);
+            if (location != null) LocalMirror.putLocation(sql, doc.getId(), location);
+        }
+    }
+
+}
@@ -0,0 +1,210 @@
+package com.inout.app.models;
+
+import com.google.firebase.firestore.Exclude;
+import com.google.firebase.firestore.IgnoreExtraProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One employee's closed month in the 'attendance_archives' collection.
+ * Holds one compact Day per attendance record, with only the fields the history table and
+ * CsvExportHelper need, so a month report is one document read instead of ~31.
+ * Written by MonthArchiver once the month is closed; written again by later runs while it has open days.
+ */
+@IgnoreExtraProperties
+public class MonthArchive {
+
+    public static final String COLLECTION = "attendance_archives";
+
+    private String employeeId;
+    private String employeeName;
+    private String month;               // yyyy-MM
+    private String assignedLocationId;  // Branch scope, as on the daily records
+    private List<Day> days;
+    private boolean purged;             // Daily documents were deleted after archiving
+    private long closedAt;
+
+    public MonthArchive() {
+        // Default constructor required for Firestore
+        this.days = new ArrayList<>();
+    }
+
+    public MonthArchive(String employeeId, String employeeName, String month) {
+        this();
+        this.employeeId = employeeId;
+        this.employeeName = employeeName;
+        this.month = month;
+    }
+
+    /**
+     * Rebuilds the records for reports; the day name is filled in by the report builder.
+     */
+    @Exclude
+    public List<AttendanceRecord> toRecords() {
+        List<AttendanceRecord> records = new ArrayList<>();
+        for (Day day : days) {
+            records.add(day.toRecord(employeeId, employeeName, assignedLocationId));
+        }
+        return records;
+    }
+
+    /**
+     * @return true if some day was checked in but never checked out when the archive was written.
+     */
+    @Exclude
+    public boolean hasOpenDays() {
+        for (Day day : days) {
+            if (day.getCheckInTime() != null && day.getCheckOutTime() == null) return true;
+        }
+        return false;
+    }
+
+    public String getEmployeeId() { return employeeId; }
+    public void setEmployeeId(String employeeId) { this.employeeId = employeeId; }
+
+    public String getEmployeeName() { return employeeName; }
+    public void setEmployeeName(String employeeName) { this.employeeName = employeeName; }
+
+    public String getMonth() { return month; }
+    public void setMonth(String month) { this.month = month; }
+
+    public String getAssignedLocationId() { return assignedLocationId; }
+    public void setAssignedLocationId(String assignedLocationId) { this.assignedLocationId = assignedLocationId; }
+
+    public List<Day> getDays() { return days; }
+    public void setDays(List<Day> days) { this.days = days; }
+
+    public boolean isPurged() { return purged; }
+    public void setPurged(boolean purged) { this.purged = purged; }
+
+    public long getClosedAt() { return closedAt; }
+    public void setClosedAt(long closedAt) { this.closedAt = closedAt; }
+
+    /**
+     * One archived day. Field names match AttendanceRecord.
+     */
+    @IgnoreExtraProperties
+    public static class Day {
+        private String recordId;
+        private String date;
+        private String checkInTime;
+        private String checkOutTime;
+        private List<String> movementLog;
+        private int movementCount;
+        private String startLocationName;
+        private String assignedShift;
+        private String totalHours;
+        private String overtimeHours;
+        private int workedMinutes;
+        private int overtimeMinutes;
+        private String locationName;
+        private float distanceMeters;
+        private boolean fingerprintVerified;
+        private boolean gpsVerified;
+        private long timestamp;
+        private boolean autoClosed;   // Checked out by the nightly job (reported as Partial)
+
+        public Day() {
+            // Default constructor required for Firestore
+        }
+
+        public static Day of(AttendanceRecord r) {
+            Day d = new Day();
+            d.recordId = r.getRecordId();
+            d.date = r.getDate();
+            d.checkInTime = r.getCheckInTime();
+            d.checkOutTime = r.getCheckOutTime();
+            d.movementLog = r.getMovementLog();
+            d.movementCount = r.getMovementCount();
+            d.startLocationName = r.getStartLocationName();
+            d.assignedShift = r.getAssignedShift();
+            d.totalHours = r.getTotalHours();
+            d.overtimeHours = r.getOvertimeHours();
+            d.workedMinutes = r.getWorkedMinutes();
+            d.overtimeMinutes = r.getOvertimeMinutes();
+            d.locationName = r.getLocationName();
+            d.distanceMeters = r.getDistanceMeters();
+            d.fingerprintVerified = r.isFingerprintVerified();
+            d.gpsVerified = r.isGpsVerified();
+            d.timestamp = r.getTimestamp();
+            d.autoClosed = r.isAutoClosed();
+            return d;
+        }
+
+        AttendanceRecord toRecord(String employeeId, String employeeName, String assignedLocationId) {
+            AttendanceRecord r = new AttendanceRecord(employeeId, employeeName, date, timestamp);
+            r.setRecordId(recordId);
+            r.setCheckInTime(checkInTime);
+            r.setCheckOutTime(checkOutTime);
+            r.setAutoClosed(autoClosed);
+            r.setMovementLog(movementLog != null ? new ArrayList<>(movementLog) : new ArrayList<>());
+            r.setMovementCount(movementCount);
+            r.setStartLocationName(startLocationName);
+            r.setAssignedShift(assignedShift);
+            r.setTotalHours(totalHours);
+            r.setOvertimeHours(overtimeHours);
+            r.setWorkedMinutes(workedMinutes);
+            r.setOvertimeMinutes(overtimeMinutes);
+            r.setLocationName(locationName);
+            r.setDistanceMeters(distanceMeters);
+            r.setFingerprintVerified(fingerprintVerified);
+            r.setGpsVerified(gpsVerified);
+            r.setAssignedLocationId(assignedLocationId);
+            return r;
+        }
+
+        public String getRecordId() { return recordId; }
+        public void setRecordId(String recordId) { this.recordId = recordId; }
+
+        public String getDate() { return date; }
+        public void setDate(String date) { this.date = date; }
+
+        public String getCheckInTime() { return checkInTime; }
+        public void setCheckInTime(String checkInTime) { this.checkInTime = checkInTime; }
+
+        public String getCheckOutTime() { return checkOutTime; }
+        public void setCheckOutTime(String checkOutTime) { this.checkOutTime = checkOutTime; }
+
+        public List<String> getMovementLog() { return movementLog; }
+        public void setMovementLog(List<String> movementLog) { this.movementLog = movementLog; }
+
+        public int getMovementCount() { return movementCount; }
+        public void setMovementCount(int movementCount) { this.movementCount = movementCount; }
+
+        public String getStartLocationName() { return startLocationName; }
+        public void setStartLocationName(String startLocationName) { this.startLocationName = startLocationName; }
+
+        public String getAssignedShift() { return assignedShift; }
+        public void setAssignedShift(String assignedShift) { this.assignedShift = assignedShift; }
+
+        public String getTotalHours() { return totalHours; }
+        public void setTotalHours(String totalHours) { this.totalHours = totalHours; }
+
+        public String getOvertimeHours() { return overtimeHours; }
+        public void setOvertimeHours(String overtimeHours) { this.overtimeHours = overtimeHours; }
+
+        public int getWorkedMinutes() { return workedMinutes; }
+        public void setWorkedMinutes(int workedMinutes) { this.workedMinutes = workedMinutes; }
+
+        public int getOvertimeMinutes() { return overtimeMinutes; }
+        public void setOvertimeMinutes(int overtimeMinutes) { this.overtimeMinutes = overtimeMinutes; }
+
+        public String getLocationName() { return locationName; }
+        public void setLocationName(String locationName) { this.locationName = locationName; }
+
+        public float getDistanceMeters() { return distanceMeters; }
+        public void setDistanceMeters(float distanceMeters) { this.distanceMeters = distanceMeters; }
+
+        public boolean isFingerprintVerified() { return fingerprintVerified; }
+        public void setFingerprintVerified(boolean fingerprintVerified) { this.fingerprintVerified = fingerprintVerified; }
+        public boolean isAutoClosed() { return autoClosed; }
+        public void setAutoClosed(boolean autoClosed) { this.autoClosed = autoClosed; }
+
+        public boolean isGpsVerified() { return gpsVerified; }
+        public void setGpsVerified(boolean gpsVerified) { this.gpsVerified = gpsVerified; }
+
+        public long getTimestamp() { return timestamp; }
+        public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
+    }
+}
@@ -0,0 +1,269 @@
+package com.inout.app.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
+import com.inout.app.models.AttendanceRecord;
+import com.inout.app.models.MonthArchive;
+import com.inout.app.models.TransitEvent;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Month close: folds a closed month's daily attendance records into one MonthArchive per employee.
+ *
+ * 1. For each employee, the month's daily records are read once and written as one archive document.
+ * 2. Optionally the daily documents (and their transits) are purged afterwards, with DeltaSync tombstones.
+ *    The archive is marked purged only when every delete has committed.
+ * 3. Re-running is safe: an existing archive is merged with whatever daily records are left,
+ *    so an interrupted purge never loses days.
+ * 4. UPDATED: A month only counts as closed CLOSE_GRACE_DAYS after it ends, so the nightly auto-close
+ *    and late offline syncs land first. An employee whose month still has open days (checked in,
+ *    never checked out) is archived but never purged, so the month can be archived again later.
+ *
+ * Reports read a month through loadMonth(): the archive if there is one and it has no open days (1 read),
+ * otherwise the daily records.
+ */
+public final class MonthArchiver {
+
+    private static final String TAG = "MonthArchiver";
+    private static final int MAX_BATCH_WRITES = 450;
+
+    /** Days after month end before the month counts as closed (auto-close and offline syncs first). */
+    public static final int CLOSE_GRACE_DAYS = 3;
+
+    public interface Listener {
+        void onProgress(int employees, int archived);
+        void onComplete(int employees, int archived, int purgedRecords);
+        void onError(Exception e);
+    }
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private MonthArchiver() {}
+
+    /**
+     * Archive IDs are spread like attendance IDs (see AttendanceIds) and computed, not queried.
+     */
+    public static String archiveId(String employeeId, String month) {
+        return AttendanceIds.withPrefix(employeeId + "_" + month);
+    }
+
+    /**
+     * @return "yyyy-MM" of the month before the current one.
+     */
+    public static String previousMonth() {
+        Calendar cal = Calendar.getInstance();
+        cal.set(Calendar.DAY_OF_MONTH, 1);
+        cal.add(Calendar.MONTH, -1);
+        return new SimpleDateFormat("yyyy-MM", Locale.US).format(cal.getTime());
+    }
+
+    /**
+     * @return true if the month ended more than CLOSE_GRACE_DAYS ago, so its records should no longer change.
+     */
+    public static boolean isClosed(String month) {
+        Calendar closesAt = closesAt(month);
+        return closesAt != null && !Calendar.getInstance().before(closesAt);
+    }
+
+    /**
+     * @return Start of the day the month counts as closed, e.g. "2024-05" closes on 2024-06-04 00:00;
+     * null if month is not "yyyy-MM".
+     */
+    public static Calendar closesAt(String month) {
+        try {
+            Calendar cal = Calendar.getInstance();
+            cal.setTime(new SimpleDateFormat("yyyy-MM", Locale.US).parse(month));
+            cal.add(Calendar.MONTH, 1);
+            cal.add(Calendar.DAY_OF_MONTH, CLOSE_GRACE_DAYS);
+            return cal;
+        } catch (ParseException e) {
+            Log.e(TAG, "Bad month " + month, e);
+            return null;
+        }
+    }
+
+    /**
+     * Runs on a background thread; the listener is called on the main thread.
+     */
+    public static void closeMonth(FirebaseFirestore db, String month, boolean purge, Listener listener) {
+        final Handler main = new Handler(Looper.getMainLooper());
+        executor.execute(() -> {
+            try {
+                int[] result = closeMonthBlocking(db, month, purge, (employees, archived) ->
+                        main.post(() -> listener.onProgress(employees, archived)));
+                main.post(() -> listener.onComplete(result[0], result[1], result[2]));
+            } catch (Exception e) {
+                Log.e(TAG, "Month close stopped for " + month, e);
+                main.post(() -> listener.onError(e));
+            }
+        });
+    }
+
+    interface Progress {
+        void onProgress(int employees, int archived);
+    }
+
+    /**
+     * Blocking variant for background callers (must not run on the main thread).
+     * @return {employees seen, archives written, daily records purged, open days left}
+     */
+    static int[] closeMonthBlocking(FirebaseFirestore db, String month, boolean purge, Progress progress) throws Exception {
+        if (!isClosed(month)) {
+            throw new IllegalArgumentException(month + " is not closed yet");
+        }
+
+        QuerySnapshot employees = Tasks.await(FirestoreMeter.track("users", db.collection("users")
+                .whereEqualTo("role", "employee")
+                .get(Source.SERVER)));
+
+        int seen = 0;
+        int archived = 0;
+        int purgedRecords = 0;
+        int openDays = 0;
+        for (DocumentSnapshot userDoc : employees.getDocuments()) {
+            String employeeId = userDoc.getString("employeeId");
+            if (employeeId == null) continue;
+            seen++;
+
+            DocumentReference archiveRef = db.collection(MonthArchive.COLLECTION).document(archiveId(employeeId, month));
+            DocumentSnapshot existingDoc = Tasks.await(FirestoreMeter.track(MonthArchive.COLLECTION, archiveRef.get(Source.SERVER)));
+            MonthArchive existing = existingDoc.exists() ? existingDoc.toObject(MonthArchive.class) : null;
+            if (existing != null && existing.isPurged()) continue; // Already closed and purged
+
+            QuerySnapshot daily = Tasks.await(FirestoreMeter.track("attendance", monthQuery(db, employeeId, month).get(Source.SERVER)));
+            if (daily.isEmpty()) continue; // No attendance that month, or archived and purged before
+
+            // Existing days first, then the daily records on top (they are the source of truth)
+            TreeMap<String, MonthArchive.Day> days = new TreeMap<>();
+            if (existing != null) {
+                for (MonthArchive.Day day : existing.getDays()) days.put(day.getDate(), day);
+            }
+            int open = 0;
+            for (DocumentSnapshot doc : daily.getDocuments()) {
+                AttendanceRecord record = doc.toObject(AttendanceRecord.class);
+                if (record == null || record.getDate() == null) continue;
+                if (record.getRecordId() == null) record.setRecordId(doc.getId());
+                if (record.getCheckInTime() != null && record.getCheckOutTime() == null) open++;
+                days.put(record.getDate(), MonthArchive.Day.of(record));
+            }
+            openDays += open;
+
+            MonthArchive archive = new MonthArchive(employeeId, userDoc.getString("name"), month);
+            archive.setAssignedLocationId(userDoc.getString("assignedLocationId"));
+            archive.setDays(new ArrayList<>(days.values()));
+            archive.setClosedAt(System.currentTimeMillis());
+            Tasks.await(archiveRef.set(archive));
+            FirestoreMeter.onWrite(MonthArchive.COLLECTION, 1);
+            archived++;
+
+            // Open days can still be closed by a late sync: keep the daily records for the next run
+            if (purge && open == 0) {
+                purgedRecords += purgeDaily(db, daily.getDocuments());
+                Tasks.await(archiveRef.set(Collections.singletonMap("purged", true), SetOptions.merge()));
+                FirestoreMeter.onWrite(MonthArchive.COLLECTION, 1);
+            }
+            progress.onProgress(seen, archived);
+        }
+        return new int[]{seen, archived, purgedRecords, openDays};
+    }
+
+    private static int purgeDaily(FirebaseFirestore db, List<DocumentSnapshot> records) throws Exception {
+        WriteBatch batch = db.batch();
+        int writes = 0;
+        for (DocumentSnapshot record : records) {
+            QuerySnapshot transits = Tasks.await(FirestoreMeter.track(TransitEvent.SUBCOLLECTION, record.getReference()
+                    .collection(TransitEvent.SUBCOLLECTION).get(Source.SERVER)));
+            int needed = 2 + transits.size();
+            if (writes + needed > MAX_BATCH_WRITES && writes > 0) {
+                Tasks.await(batch.commit());
+                FirestoreMeter.onWrite("attendance", writes);
+                batch = db.batch();
+                writes = 0;
+            }
+            for (DocumentSnapshot transit : transits.getDocuments()) {
+                batch.delete(transit.getReference());
+            }
+            batch.delete(record.getReference());
+            DeltaSync.tombstone(batch, db, "attendance", record.getId());
+            writes += needed;
+        }
+        if (writes > 0) {
+            Tasks.await(batch.commit());
+            FirestoreMeter.onWrite("attendance", writes);
+        }
+        return records.size();
+    }
+
+    private static Query monthQuery(FirebaseFirestore db, String employeeId, String month) {
+        return db.collection("attendance")
+                .whereEqualTo("employeeId", employeeId)
+                .whereGreaterThanOrEqualTo("date", month + "-01")
+                .whereLessThanOrEqualTo("date", month + "-31");
+    }
+
+    /**
+     * @return true if the employee's month was archived and its daily records deleted.
+     */
+    public static Task<Boolean> isPurged(FirebaseFirestore db, String employeeId, String month) {
+        return FirestoreMeter.track(MonthArchive.COLLECTION,
+                db.collection(MonthArchive.COLLECTION).document(archiveId(employeeId, month)).get())
+                .continueWith(task -> {
+                    if (!task.isSuccessful()) throw task.getException();
+                    return task.getResult().exists() && Boolean.TRUE.equals(task.getResult().getBoolean("purged"));
+                });
+    }
+
+    /**
+     * One employee's month for reports: the archive if the month has been closed, otherwise the daily records.
+     * An archive with open days is not trusted unless purged: the daily records may have been closed since.
+     */
+    public static Task<List<AttendanceRecord>> loadMonth(FirebaseFirestore db, String employeeId, String month) {
+        if (!isClosed(month)) {
+            return loadDaily(db, employeeId, month); // The running month has no archive yet
+        }
+        return FirestoreMeter.track(MonthArchive.COLLECTION,
+                db.collection(MonthArchive.COLLECTION).document(archiveId(employeeId, month)).get())
+                .continueWithTask(task -> {
+                    if (task.isSuccessful() && task.getResult().exists()) {
+                        MonthArchive archive = task.getResult().toObject(MonthArchive.class);
+                        if (archive != null && (archive.isPurged() || !archive.hasOpenDays())) {
+                            return Tasks.forResult(archive.toRecords());
+                        }
+                    }
+                    return loadDaily(db, employeeId, month);
+                });
+    }
+
+    private static Task<List<AttendanceRecord>> loadDaily(FirebaseFirestore db, String employeeId, String month) {
+        return FirestoreMeter.track("attendance", monthQuery(db, employeeId, month).get()).continueWith(daily -> {
+            List<AttendanceRecord> records = new ArrayList<>();
+            for (DocumentSnapshot doc : daily.getResult()) {
+                AttendanceRecord record = doc.toObject(AttendanceRecord.class);
+                if (record != null) records.add(record);
+            }
+            return records;
+        });
+    }
+}
@@ -0,0 +1,161 @@
+package com.inout.app.utils;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Sharded live presence counters, one set per day.
+ *
+ * A single company/day document sustains about one write per second; 800 employees checking in
+ * at 09:00 would hit contention errors. Each check-in/out instead increments one of SHARDS
+ * documents picked at random, and readers add the shards up.
+ *
+ * Layout: presence_counters/{yyyy-MM-dd}/shards/{0..SHARDS-1}
+ *   checkedIn  - employees checked in right now (+1 on check-in, -1 on check-out)
+ *   arrivals   - check-ins today
+ *   late       - check-ins after the shift start
+ *   locations  - { locationId: employees checked in there right now } (moved by transits)
+ *
+ * Increments are written by AttendanceStateMachine in the same transaction as the record,
+ * so a rejected or retried action never counts twice.
+ */
+public final class PresenceCounter {
+
+    public static final String COLLECTION = "presence_counters";
+    public static final String SHARDS_SUBCOLLECTION = "shards";
+    public static final int SHARDS = 10;
+
+    public static final String CHECKED_IN = "checkedIn";
+    public static final String ARRIVALS = "arrivals";
+    public static final String LATE = "late";
+    public static final String LOCATIONS = "locations";
+
+    // Totals are re-read at most this often per day (SHARDS reads each time), less often when degraded
+    private static final long CACHE_MS = 30_000;
+
+    private static final Random random = new Random();
+    private static final Map<String, Totals> cache = new HashMap<>();
+
+    /**
+     * Summed shards of one day.
+     */
+    public static final class Totals {
+        public final long checkedIn;
+        public final long arrivals;
+        public final long late;
+        public final Map<String, Long> byLocation;
+        final long readAt;
+
+        Totals(long checkedIn, long arrivals, long late, Map<String, Long> byLocation, long readAt) {
+            this.checkedIn = checkedIn;
+            this.arrivals = arrivals;
+            this.late = late;
+            this.byLocation = Collections.unmodifiableMap(byLocation);
+            this.readAt = readAt;
+        }
+    }
+
+    private PresenceCounter() {}
+
+    public static DocumentReference randomShard(FirebaseFirestore db, String dateId) {
+        return db.collection(COLLECTION).document(dateId)
+                .collection(SHARDS_SUBCOLLECTION).document(String.valueOf(random.nextInt(SHARDS)));
+    }
+
+    // --- Increments (merged into a random shard) ---
+
+    public static Map<String, Object> onCheckIn(String locationId, boolean late) {
+        Map<String, Object> data = new HashMap<>();
+        data.put(CHECKED_IN, FieldValue.increment(1));
+        data.put(ARRIVALS, FieldValue.increment(1));
+        if (late) data.put(LATE, FieldValue.increment(1));
+        if (locationId != null) data.put(LOCATIONS, locationDelta(locationId, 1));
+        return data;
+    }
+
+    public static Map<String, Object> onTransit(String fromLocationId, String toLocationId) {
+        Map<String, Object> data = new HashMap<>();
+        Map<String, Object> locations = new HashMap<>();
+        if (fromLocationId != null) locations.put(fromLocationId, FieldValue.increment(-1));
+        if (toLocationId != null) locations.put(toLocationId, FieldValue.increment(1));
+        data.put(LOCATIONS, locations);
+        return data;
+    }
+
+    public static Map<String, Object> onCheckOut(String locationId) {
+        Map<String, Object> data = new HashMap<>();
+        data.put(CHECKED_IN, FieldValue.increment(-1));
+        if (locationId != null) data.put(LOCATIONS, locationDelta(locationId, -1));
+        return data;
+    }
+
+    private static Map<String, Object> locationDelta(String locationId, long delta) {
+        Map<String, Object> locations = new HashMap<>();
+        locations.put(locationId, FieldValue.increment(delta));
+        return locations;
+    }
+
+    // --- Reads ---
+
+    /**
+     * Sums the day's shards, or returns the cached totals if they are recent enough.
+     * Shards count up and down independently, so only the sum is meaningful.
+     */
+    public static Task<Totals> read(FirebaseFirestore db, String dateId) {
+        synchronized (cache) {
+            Totals cached = cache.get(dateId);
+            if (cached != null && System.currentTimeMillis() - cached.readAt < QuotaGovernor.refreshInterval(CACHE_MS)) {
+                return Tasks.forResult(cached);
+            }
+        }
+
+        return FirestoreMeter.track(COLLECTION, db.collection(COLLECTION).document(dateId).collection(SHARDS_SUBCOLLECTION).get())
+                .continueWith(task -> {
+                    long checkedIn = 0, arrivals = 0, late = 0;
+                    Map<String, Long> byLocation = new HashMap<>();
+                    for (DocumentSnapshot shard : task.getResult()) {
+                        checkedIn += longOf(shard.get(CHECKED_IN));
+                        arrivals += longOf(shard.get(ARRIVALS));
+                        late += longOf(shard.get(LATE));
+
+                        Object locations = shard.get(LOCATIONS);
+                        if (locations instanceof Map) {
+                            for (Map.Entry<?, ?> e : ((Map<?, ?>) locations).entrySet()) {
+                                String locationId = String.valueOf(e.getKey());
+                                Long sum = byLocation.get(locationId);
+                                byLocation.put(locationId, (sum != null ? sum : 0) + longOf(e.getValue()));
+                            }
+                        }
+                    }
+
+                    Totals totals = new Totals(checkedIn, arrivals, late, byLocation, System.currentTimeMillis());
+                    synchronized (cache) {
+                        cache.clear(); // Only today's totals are ever needed
+                        cache.put(dateId, totals);
+                    }
+                    return totals;
+                });
+    }
+
+    /**
+     * Drops the cached totals (e.g. on an explicit refresh).
+     */
+    public static void invalidate() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    private static long longOf(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+}
@@ -0,0 +1,316 @@
+package com.inout.app.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Daily Firestore budget for the whole company, with a cache-first degraded mode as it runs out.
+ *
+ * The project quota is shared by every device, so the decision uses the company's usage today
+ * (QuotaUsage: sharded counters every device reports into) plus what this device has used since its
+ * last report (FirestoreMeter). Once reads or writes reach thresholdPercent of their budget the app is
+ * degraded until the quota day (Pacific, see QuotaUsage.currentDayId) rolls over:
+ *
+ * 1. Locations and rosters render from the local cache; DeltaSync skips its server delta and
+ *    cacheFirst() only goes to the server for what was never cached.
+ * 2. Non-essential listeners pause: the admin roster (directory index) and the local mirror.
+ * 3. Refresh intervals stretch by DEGRADED_INTERVAL_FACTOR (presence totals); prefetch and month-end
+ *    jobs are skipped.
+ *
+ * Check-in, transit and check-out (AttendanceStateMachine) and the nightly auto-close are never gated:
+ * the governor only trims what can be served stale.
+ *
+ * Budgets are the company's (quota_usage/budget), set by admins from the dashboard menu ("Quota Budgets")
+ * and picked up by every device. Defaults are the Spark free tier: 50,000 reads and 20,000 writes per day.
+ * Each company keeps its own budgets on the device (prefs keyed by projectId, like the DeltaSync watermarks);
+ * after a tenant switch the new company's are loaded and refreshed from the server on the next sync.
+ *
+ * Syncing is lazy: isDegraded() starts one in the background when the shared figure is older than
+ * SYNC_INTERVAL_MS (SYNC_INTERVAL_NEAR_MS once past half the threshold). A sync is at most one write and
+ * one aggregation read. Until the first sync of the quota day, only this device's usage is known.
+ *
+ * FirestoreMeter counts per local day, so the reported-so-far marks (reportedDay/reportedReads/reportedWrites)
+ * follow the meter's day, while reports and totals go to the Pacific day current at sync time. Usage made just
+ * before Pacific midnight and reported after it is counted in the new day (at most one sync interval).
+ */
+public final class QuotaGovernor {
+
+    private static final String TAG = "QuotaGovernor";
+    private static final String PREFS = "quota_governor";
+
+    public static final long DEFAULT_READ_BUDGET = 50_000;
+    public static final long DEFAULT_WRITE_BUDGET = 20_000;
+    public static final int DEFAULT_THRESHOLD_PERCENT = 80;
+    public static final int DEGRADED_INTERVAL_FACTOR = 10;
+
+    private static final long SYNC_INTERVAL_MS = 30 * 60_000L;
+    private static final long SYNC_INTERVAL_NEAR_MS = 5 * 60_000L;
+    private static final long BUDGET_REFRESH_MS = 6 * 60 * 60_000L;
+
+    private static volatile long readBudget = DEFAULT_READ_BUDGET;
+    private static volatile long writeBudget = DEFAULT_WRITE_BUDGET;
+    private static volatile int thresholdPercent = DEFAULT_THRESHOLD_PERCENT;
+    private static volatile String budgetProject;  // Company the budgets above belong to
+    private static volatile boolean degraded;   // Last evaluation, only used to log the transition
+
+    private static Context appContext;
+    private static volatile QuotaUsage.Totals shared;    // Company totals at the last sync
+    private static volatile String sharedProject;        // Company the totals belong to
+    private static volatile long syncedAt;
+    private static volatile long budgetReadAt;
+    private static final AtomicBoolean syncing = new AtomicBoolean();
+
+    private QuotaGovernor() {}
+
+    /**
+     * Loads the last known budgets of the active company. Called once from InOutApplication.
+     */
+    public static void init(Context context) {
+        appContext = context.getApplicationContext();
+        loadBudgets();
+    }
+
+    /**
+     * Admins only: saves the company's budgets; every device picks them up on its next budget refresh.
+     */
+    public static Task<Void> setBudgets(Context context, long reads, long writes, int percent) {
+        QuotaUsage.Budget budget = new QuotaUsage.Budget(reads, writes, percent);
+        final String projectId = FirebaseManager.getActiveProjectId();
+        return QuotaUsage.writeBudget(FirebaseManager.getFirestore(), budget)
+                .addOnSuccessListener(v -> applyBudget(context, projectId, budget));
+    }
+
+    public static long getReadBudget() {
+        loadBudgets();
+        return readBudget;
+    }
+
+    public static long getWriteBudget() {
+        loadBudgets();
+        return writeBudget;
+    }
+
+    public static int getThresholdPercent() {
+        loadBudgets();
+        return thresholdPercent;
+    }
+
+    /**
+     * Cheap (in-memory counters and the last shared totals); call it wherever a read could be skipped.
+     * Starts a background sync when the shared totals are stale.
+     */
+    public static boolean isDegraded() {
+        loadBudgets();
+        long reads = companyReads();
+        long writes = companyWrites();
+        boolean now = reads * 100 >= readBudget * thresholdPercent
+                || writes * 100 >= writeBudget * thresholdPercent;
+        if (now != degraded) {
+            degraded = now;
+            Log.w(TAG, (now ? "Degraded: " : "Back to normal: ") + describe());
+        }
+        maybeSync(reads, writes);
+        return now;
+    }
+
+    /**
+     * @return The interval to use for a periodic refresh: stretched while degraded.
+     */
+    public static long refreshInterval(long normalMillis) {
+        return isDegraded() ? normalMillis * DEGRADED_INTERVAL_FACTOR : normalMillis;
+    }
+
+    /**
+     * A one-shot document read: normal get() or, while degraded, the cached copy if there is one.
+     */
+    public static Task<DocumentSnapshot> cacheFirst(DocumentReference ref) {
+        if (!isDegraded()) return ref.get();
+        return ref.get(Source.CACHE).continueWithTask(task ->
+                task.isSuccessful() && task.getResult().exists() ? task : ref.get());
+    }
+
+    /**
+     * A one-shot query: normal get() or, while degraded, the cached result unless nothing is cached.
+     */
+    public static Task<QuerySnapshot> cacheFirst(Query query) {
+        if (!isDegraded()) return query.get();
+        return query.get(Source.CACHE).continueWithTask(task ->
+                task.isSuccessful() && !task.getResult().isEmpty() ? task : query.get());
+    }
+
+    /**
+     * @return e.g. "Company reads 38,120 of 50,000 (76%) · Writes 2,312 of 20,000 (11%) · degraded at 80%
+     * · this device 1,204 reads, 87 writes"
+     */
+    public static String describe() {
+        loadBudgets();
+        long reads = companyReads();
+        long writes = companyWrites();
+        return String.format(Locale.US, "%s reads %,d of %,d (%d%%) · Writes %,d of %,d (%d%%) · degraded at %d%%"
+                        + " · this device %,d reads, %,d writes",
+                currentShared() != null ? "Company" : "Company (not synced yet)",
+                reads, readBudget, reads * 100 / readBudget,
+                writes, writeBudget, writes * 100 / writeBudget,
+                thresholdPercent, deviceReads(), deviceWrites());
+    }
+
+    // --- Company usage ---
+
+    private static long companyReads() {
+        QuotaUsage.Totals totals = currentShared();
+        long device = deviceReads();
+        return totals != null ? totals.reads + Math.max(0, device - reported("reportedReads")) : device;
+    }
+
+    private static long companyWrites() {
+        QuotaUsage.Totals totals = currentShared();
+        long device = deviceWrites();
+        return totals != null ? totals.writes + Math.max(0, device - reported("reportedWrites")) : device;
+    }
+
+    /**
+     * @return The last synced totals if they are of the current quota day and the active company, else null.
+     */
+    private static QuotaUsage.Totals currentShared() {
+        QuotaUsage.Totals totals = shared;
+        if (totals == null || !totals.dateId.equals(QuotaUsage.currentDayId())) return null;
+        return sharedProject != null && sharedProject.equals(FirebaseManager.getActiveProjectId()) ? totals : null;
+    }
+
+    private static void maybeSync(long reads, long writes) {
+        if (appContext == null) return;
+        boolean near = reads * 200 >= readBudget * thresholdPercent || writes * 200 >= writeBudget * thresholdPercent;
+        long interval = near ? SYNC_INTERVAL_NEAR_MS : SYNC_INTERVAL_MS;
+        if (currentShared() != null && System.currentTimeMillis() - syncedAt < interval) return;
+        if (!StartupPipeline.getInstance(appContext).isFirebaseReady()) return;
+        if (FirebaseManager.getAuth().getCurrentUser() == null) return;
+        if (!syncing.compareAndSet(false, true)) return;
+
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            syncing.set(false);
+            Log.e(TAG, "Quota sync failed", e);
+        }
+    }
+
+    /**
+     * 1. Reports this device's usage since the last report (if any).
+     * 2. Sums the company's shards for the quota day.
+     * 3. Every BUDGET_REFRESH_MS, reloads the company's budgets.
+     */
+    private static void sync() {
+        final FirebaseFirestore db = FirebaseManager.getFirestore();
+        final String projectId = FirebaseManager.getActiveProjectId();
+        final String quotaDay = QuotaUsage.currentDayId();
+        final String meterDay = projectId + "|" + TimeUtils.getCurrentDateId();   // The meter's (local) day
+        SharedPreferences prefs = prefs(appContext);
+        if (!meterDay.equals(prefs.getString("reportedDay", null))) {
+            prefs.edit().putString("reportedDay", meterDay)
+                    .putLong("reportedReads", 0).putLong("reportedWrites", 0).apply();
+        }
+
+        final long reads = deviceReads();
+        final long writes = deviceWrites();
+        long readDelta = reads - prefs.getLong("reportedReads", 0);
+        long writeDelta = writes - prefs.getLong("reportedWrites", 0);
+
+        Task<Void> report;
+        if (readDelta > 0 || writeDelta > 0) {
+            report = QuotaUsage.report(db, quotaDay, Math.max(0, readDelta), Math.max(0, writeDelta));
+            // Counted once queued: an offline report is sent, not lost, when the connection is back
+            prefs.edit().putLong("reportedReads", reads).putLong("reportedWrites", writes).apply();
+        } else {
+            report = Tasks.forResult(null);
+        }
+
+        Task<Void> budget = Tasks.forResult(null);
+        if (System.currentTimeMillis() - budgetReadAt >= BUDGET_REFRESH_MS) {
+            budget = QuotaUsage.readBudget(db).continueWith(task -> {
+                if (!task.isSuccessful()) throw task.getException();
+                if (projectId != null && projectId.equals(budgetProject)) budgetReadAt = System.currentTimeMillis();
+                if (task.getResult() != null) applyBudget(appContext, projectId, task.getResult());
+                return null;
+            });
+        }
+
+        // Totals after the report, so they include this device's usage up to now
+        Tasks.whenAll(report, budget)
+                .continueWithTask(done -> QuotaUsage.read(db, quotaDay))
+                .addOnSuccessListener(totals -> {
+                    shared = totals;
+                    sharedProject = projectId;
+                    syncedAt = System.currentTimeMillis();
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Quota sync failed", e))
+                .addOnCompleteListener(task -> syncing.set(false));
+    }
+
+    /**
+     * Loads the active company's budgets from prefs when it changed since the last load (tenant switch),
+     * and schedules a server refresh of them with the next sync.
+     */
+    private static void loadBudgets() {
+        String projectId = FirebaseManager.getActiveProjectId();
+        if (appContext == null || projectId == null || projectId.equals(budgetProject)) return;
+        synchronized (QuotaGovernor.class) {
+            if (projectId.equals(budgetProject)) return;
+            SharedPreferences prefs = prefs(appContext);
+            readBudget = prefs.getLong(projectId + "/readBudget", DEFAULT_READ_BUDGET);
+            writeBudget = prefs.getLong(projectId + "/writeBudget", DEFAULT_WRITE_BUDGET);
+            thresholdPercent = prefs.getInt(projectId + "/thresholdPercent", DEFAULT_THRESHOLD_PERCENT);
+            budgetReadAt = 0;
+            budgetProject = projectId;
+        }
+    }
+
+    /**
+     * Stores a company's budgets; they only take effect now if it is still the active one.
+     */
+    private static void applyBudget(Context context, String projectId, QuotaUsage.Budget budget) {
+        if (projectId == null) return;
+        prefs(context).edit()
+                .putLong(projectId + "/readBudget", budget.reads)
+                .putLong(projectId + "/writeBudget", budget.writes)
+                .putInt(projectId + "/thresholdPercent", budget.thresholdPercent)
+                .apply();
+        synchronized (QuotaGovernor.class) {
+            if (!projectId.equals(budgetProject)) return;
+            readBudget = budget.reads;
+            writeBudget = budget.writes;
+            thresholdPercent = budget.thresholdPercent;
+        }
+    }
+
+    private static long reported(String key) {
+        if (appContext == null) return 0;
+        SharedPreferences prefs = prefs(appContext);
+        String day = FirebaseManager.getActiveProjectId() + "|" + TimeUtils.getCurrentDateId();   // The meter's day
+        return day.equals(prefs.getString("reportedDay", null)) ? prefs.getLong(key, 0) : 0;
+    }
+
+    private static long deviceReads() {
+        return FirestoreMeter.todayCount(FirestoreMeter.READ) + FirestoreMeter.todayCount(FirestoreMeter.LISTEN);
+    }
+
+    private static long deviceWrites() {
+        return FirestoreMeter.todayCount(FirestoreMeter.WRITE);
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+}
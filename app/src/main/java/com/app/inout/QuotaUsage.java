@@ -0,0 +1,148 @@
+package com.inout.app.utils;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.AggregateField;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Company-wide Firestore usage per day, shared by every device, and the budgets admins set for it.
+ *
+ * FirestoreMeter only sees the device it runs on, while the project quota is shared by all of them.
+ * Each device adds what it used since its last report to one of SHARDS documents picked at random;
+ * the day's total is one sum aggregation over the shards (1 read, however many shards).
+ *
+ * Layout: quota_usage/{yyyy-MM-dd}/shards/{0..SHARDS-1}, keyed by the Pacific date (currentDayId):
+ * the Firestore daily quota resets at midnight America/Los_Angeles, not at the device's midnight.
+ *   reads   - server reads + listener deliveries reported by devices today
+ *   writes  - writes reported by devices today
+ * and quota_usage/budget (readBudget, writeBudget, thresholdPercent), written by admins.
+ *
+ * Reports are deltas, not per action: QuotaGovernor syncs lazily, so a device costs a few
+ * writes and reads per day, however busy it is.
+ */
+public final class QuotaUsage {
+
+    public static final String COLLECTION = "quota_usage";
+    public static final String SHARDS_SUBCOLLECTION = "shards";
+    public static final String BUDGET_DOC = "budget";   // Not a date, so never mistaken for a day
+    public static final int SHARDS = 5;                 // Reports are rare; 5 absorbs the 09:00 app opens
+
+    public static final String READS = "reads";
+    public static final String WRITES = "writes";
+
+    private static final Random random = new Random();
+    private static final TimeZone QUOTA_ZONE = TimeZone.getTimeZone("America/Los_Angeles");
+
+    /**
+     * Summed shards of one day.
+     */
+    public static final class Totals {
+        public final String dateId;
+        public final long reads;
+        public final long writes;
+
+        Totals(String dateId, long reads, long writes) {
+            this.dateId = dateId;
+            this.reads = reads;
+            this.writes = writes;
+        }
+    }
+
+    /**
+     * The company's daily budgets (quota_usage/budget).
+     */
+    public static final class Budget {
+        public final long reads;
+        public final long writes;
+        public final int thresholdPercent;
+
+        public Budget(long reads, long writes, int thresholdPercent) {
+            this.reads = Math.max(1, reads);
+            this.writes = Math.max(1, writes);
+            this.thresholdPercent = Math.max(1, Math.min(100, thresholdPercent));
+        }
+    }
+
+    private QuotaUsage() {}
+
+    /**
+     * @return The quota day in progress, e.g. "2026-10-18" (Pacific date, whatever the device's zone).
+     */
+    public static String currentDayId() {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd", Locale.US);   // Not thread-safe; cheap enough per sync
+        format.setTimeZone(QUOTA_ZONE);
+        return format.format(new Date());
+    }
+
+    /**
+     * Adds this device's usage since its last report to a random shard of the day.
+     */
+    public static Task<Void> report(FirebaseFirestore db, String dateId, long reads, long writes) {
+        DocumentReference shard = db.collection(COLLECTION).document(dateId)
+                .collection(SHARDS_SUBCOLLECTION).document(String.valueOf(random.nextInt(SHARDS)));
+        Map<String, Object> data = new HashMap<>();
+        data.put(READS, FieldValue.increment(reads));
+        data.put(WRITES, FieldValue.increment(writes));
+        Task<Void> write = shard.set(data, SetOptions.merge());
+        write.addOnSuccessListener(v -> FirestoreMeter.onWrite(COLLECTION, 1));
+        return write;
+    }
+
+    /**
+     * Sums the day's shards on the server (one aggregation read).
+     */
+    public static Task<Totals> read(FirebaseFirestore db, String dateId) {
+        AggregateField reads = AggregateField.sum(READS);
+        AggregateField writes = AggregateField.sum(WRITES);
+        return FirestoreMeter.track(COLLECTION, db.collection(COLLECTION).document(dateId)
+                .collection(SHARDS_SUBCOLLECTION)
+                .aggregate(reads, writes)
+                .get(AggregateSource.SERVER))
+                .continueWith(task -> {
+                    if (!task.isSuccessful()) throw task.getException();
+                    Long r = task.getResult().getLong(reads);
+                    Long w = task.getResult().getLong(writes);
+                    return new Totals(dateId, r != null ? r : 0, w != null ? w : 0);
+                });
+    }
+
+    /**
+     * @return The company's budgets, or null if no admin has set them yet.
+     */
+    public static Task<Budget> readBudget(FirebaseFirestore db) {
+        return FirestoreMeter.track(COLLECTION, db.collection(COLLECTION).document(BUDGET_DOC).get())
+                .continueWith(task -> {
+                    if (!task.isSuccessful()) throw task.getException();
+                    DocumentSnapshot doc = task.getResult();
+                    Long reads = doc.getLong("readBudget");
+                    Long writes = doc.getLong("writeBudget");
+                    Long percent = doc.getLong("thresholdPercent");
+                    if (!doc.exists() || reads == null || writes == null || percent == null) return null;
+                    return new Budget(reads, writes, percent.intValue());
+                });
+    }
+
+    public static Task<Void> writeBudget(FirebaseFirestore db, Budget budget) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("readBudget", budget.reads);
+        data.put("writeBudget", budget.writes);
+        data.put("thresholdPercent", budget.thresholdPercent);
+        data.put("updatedAt", FieldValue.serverTimestamp());
+        Task<Void> write = db.collection(COLLECTION).document(BUDGET_DOC).set(data);
+        write.addOnSuccessListener(v -> FirestoreMeter.onWrite(COLLECTION, 1));
+        return write;
+    }
+}
@@ -0,0 +1,176 @@
+package com.inout.app.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Size-bounded cache for files handed to the share sheet (cacheDir/reports, cacheDir/images).
+ *
+ * 1. Files are content-addressed: cacheDir/<area>/<key>/<fileName>, where the key is a hash of what
+ *    the file is generated from. Sharing the same export again reuses the file instead of rewriting it.
+ * 2. Every hit or write touches the file (lastModified = last access).
+ * 3. After a write the area is trimmed to its byte budget, least recently used first.
+ *    The file just written is never evicted, so a share in progress always has its file.
+ *
+ * FileProvider paths ("reports/", "images/") already cover the key subdirectories.
+ */
+public final class ShareCache {
+
+    private static final String TAG = "ShareCache";
+
+    public static final String REPORTS = "reports";
+    public static final String IMAGES = "images";
+    public static final String[] AREAS = {REPORTS, IMAGES};
+
+    private static final long REPORTS_BUDGET_BYTES = 8L * 1024 * 1024;
+    private static final long IMAGES_BUDGET_BYTES = 2L * 1024 * 1024;
+
+    public interface Writer {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private ShareCache() {}
+
+    /**
+     * @param key      Content key from key(), e.g. of the CSV text or the QR payload.
+     * @param fileName Name the recipient sees, e.g. "Josy_Vine_Jan_2026.csv".
+     * @return The cached file, written by the writer only if it was not there yet.
+     */
+    public static synchronized File obtain(Context context, String area, String key, String fileName, Writer writer)
+            throws IOException {
+        File dir = new File(areaDir(context, area), key);
+        File file = new File(dir, fileName);
+        if (file.isFile() && file.length() > 0) {
+            file.setLastModified(System.currentTimeMillis());
+            return file;
+        }
+
+        if (!dir.exists() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        File tmp = new File(dir, fileName + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            writer.writeTo(out);
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Cannot write " + file);
+        }
+        trim(context, area, file);
+        return file;
+    }
+
+    /**
+     * @return A short content hash (SHA-256, first 16 hex chars) to use as key.
+     */
+    public static String key(String content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(16);
+            for (int i = 0; i < 8; i++) {
+                sb.append(String.format(Locale.US, "%02x", digest[i]));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Android runtime has SHA-256; fall back to something stable anyway
+            return Integer.toHexString(content.hashCode());
+        }
+    }
+
+    /**
+     * Evicts least recently used files until the area fits its budget.
+     */
+    public static synchronized int trim(Context context, String area, File keep) {
+        List<File> files = new ArrayList<>();
+        collect(areaDir(context, area), files);
+        long total = 0;
+        for (File f : files) total += f.length();
+
+        Collections.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        long budget = budgetOf(area);
+        int evicted = 0;
+        for (File f : files) {
+            if (total <= budget) break;
+            if (f.equals(keep)) continue;
+            long size = f.length();
+            if (f.delete()) {
+                total -= size;
+                evicted++;
+                File parent = f.getParentFile();
+                if (parent != null && !parent.equals(areaDir(context, area))) parent.delete(); // Empty key dir
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Deletes files not accessed for maxAgeMillis, then trims every area to its budget.
+     * @return The number of files deleted.
+     */
+    public static synchronized int prune(Context context, long maxAgeMillis) {
+        long cutoff = System.currentTimeMillis() - maxAgeMillis;
+        int deleted = 0;
+        for (String area : AREAS) {
+            List<File> files = new ArrayList<>();
+            collect(areaDir(context, area), files);
+            for (File f : files) {
+                if (f.lastModified() < cutoff && f.delete()) {
+                    deleted++;
+                    File parent = f.getParentFile();
+                    if (parent != null && !parent.equals(areaDir(context, area))) parent.delete();
+                }
+            }
+            deleted += trim(context, area, null);
+        }
+        return deleted;
+    }
+
+    /**
+     * @return One line per area, e.g. "reports: 1.2 MB of 8.0 MB, 5 files".
+     */
+    public static synchronized String usageReport(Context context) {
+        StringBuilder sb = new StringBuilder();
+        for (String area : AREAS) {
+            List<File> files = new ArrayList<>();
+            collect(areaDir(context, area), files);
+            long total = 0;
+            for (File f : files) total += f.length();
+            sb.append(String.format(Locale.US, "%s: %.1f MB of %.1f MB, %d files\n",
+                    area, total / 1048576.0, budgetOf(area) / 1048576.0, files.size()));
+        }
+        return sb.toString();
+    }
+
+    private static long budgetOf(String area) {
+        return IMAGES.equals(area) ? IMAGES_BUDGET_BYTES : REPORTS_BUDGET_BYTES;
+    }
+
+    private static File areaDir(Context context, String area) {
+        return new File(context.getCacheDir(), area);
+    }
+
+    private static void collect(File dir, List<File> out) {
+        File[] children = dir.listFiles();
+        if (children == null) return;
+        for (File child : children) {
+            if (child.isDirectory()) {
+                collect(child, out);
+            } else if (child.getName().endsWith(".tmp")) {
+                // Left over from a write that was interrupted
+                if (!child.delete()) Log.w(TAG, "Cannot delete " + child);
+            } else {
+                out.add(child);
+            }
+        }
+    }
+}
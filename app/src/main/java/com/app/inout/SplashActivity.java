@@ -3,35 +3,33 @@ package com.inout.app;
 import android.annotation.SuppressLint;
 import android.content.Intent;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
 
 import androidx.appcompat.app.AppCompatActivity;
 
-import com.inout.app.utils.EncryptionHelper;
+import com.inout.app.utils.StartupPipeline;
 
 @SuppressLint("CustomSplashScreen")
 public class SplashActivity extends AppCompatActivity {
 
-    private static final int SPLASH_DELAY_MS = 2000; // 2 seconds
-
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_splash);
 
-        new Handler(Looper.getMainLooper()).postDelayed(new Runnable() {
+        // Route as soon as the startup pipeline knows the role and session (no fixed delay)
+        StartupPipeline.getInstance(this).whenSessionReady(new StartupPipeline.SessionCallback() {
             @Override
-            public void run() {
-                checkUserSession();
+            public void onSessionReady(StartupPipeline.SessionState state) {
+                if (!isFinishing() && !isDestroyed()) {
+                    checkUserSession(state);
+                }
             }
-        }, SPLASH_DELAY_MS);
+        });
     }
 
-    private void checkUserSession() {
-        EncryptionHelper encryptionHelper = EncryptionHelper.getInstance(this);
-        String userRole = encryptionHelper.getUserRole();
-        boolean isSetupDone = encryptionHelper.isSetupDone();
+    private void checkUserSession(StartupPipeline.SessionState state) {
+        String userRole = state.getRole();
+        boolean isSetupDone = state.isSetupDone();
 
         if (userRole == null) {
             // No role selected yet -> First time launch
@@ -39,15 +37,20 @@ public class SplashActivity extends AppCompatActivity {
         } else {
             // Role exists, check which dashboard to load
             if ("admin".equals(userRole)) {
-                if (isSetupDone) {
+                if (isSetupDone && state.isSignedIn()) {
                     startActivity(new Intent(SplashActivity.this, AdminDashboardActivity.class));
+                } else if (isSetupDone) {
+                    // Config exists but the session is gone -> sign in again
+                    startActivity(new Intent(SplashActivity.this, LoginActivity.class));
                 } else {
                     // Admin selected but hasn't uploaded JSON yet
                     startActivity(new Intent(SplashActivity.this, AdminSetupActivity.class));
                 }
             } else if ("employee".equals(userRole)) {
-                if (isSetupDone) {
+                if (isSetupDone && state.isSignedIn()) {
                     startActivity(new Intent(SplashActivity.this, EmployeeDashboardActivity.class));
+                } else if (isSetupDone) {
+                    startActivity(new Intent(SplashActivity.this, LoginActivity.class));
                 } else {
                     // Employee selected but hasn't scanned QR yet
                     startActivity(new Intent(SplashActivity.this, EmployeeQrScanActivity.class));
@@ -0,0 +1,191 @@
+package com.inout.app.utils;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Runs the cold-start work off the main thread so the Splash can route as soon as possible.
+ *
+ * Stage order:
+ * 1. Secure storage (EncryptedSharedPreferences / Tink keyset load).
+ * 2. In parallel: Role + setup flag read, and Firebase options parse -> FirebaseApp init -> auth state.
+ * 3. Session is ready once both branches of step 2 are done.
+ *
+ * Each stage's duration (ms) is recorded and logged for time-to-check-in tuning.
+ */
+public class StartupPipeline {
+
+    private static final String TAG = "StartupPipeline";
+
+    public static final String STAGE_SECURE_STORAGE = "secure_storage";
+    public static final String STAGE_ROLE = "role_and_setup";
+    public static final String STAGE_FIREBASE_OPTIONS = "firebase_options";
+    public static final String STAGE_FIREBASE_INIT = "firebase_init";
+    public static final String STAGE_AUTH_STATE = "auth_state";
+    public static final String STAGE_SESSION_READY = "session_ready_since_process_start";
+
+    public interface SessionCallback {
+        void onSessionReady(SessionState state);
+    }
+
+    /**
+     * What the Splash needs to decide where to go.
+     */
+    public static class SessionState {
+        private final String role;
+        private final boolean setupDone;
+        private final boolean signedIn;
+
+        SessionState(String role, boolean setupDone, boolean signedIn) {
+            this.role = role;
+            this.setupDone = setupDone;
+            this.signedIn = signedIn;
+        }
+
+        public String getRole() { return role; }
+        public boolean isSetupDone() { return setupDone; }
+        public boolean isSignedIn() { return signedIn; }
+    }
+
+    private static StartupPipeline instance;
+
+    private final Context appContext;
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, Long> stageDurations = Collections.synchronizedMap(new LinkedHashMap<String, Long>());
+
+    private CompletableFuture<Boolean> firebaseReady;
+    private CompletableFuture<SessionState> sessionReady;
+
+    private StartupPipeline(Context context) {
+        this.appContext = context.getApplicationContext();
+    }
+
+    /**
+     * Starts the pipeline. Called once from InOutApplication.onCreate; returns immediately.
+     */
+    public static synchronized StartupPipeline start(Context context) {
+        if (instance == null) {
+            instance = new StartupPipeline(context);
+            instance.run();
+        }
+        return instance;
+    }
+
+    public static synchronized StartupPipeline getInstance(Context context) {
+        return start(context);
+    }
+
+    private void run() {
+        CompletableFuture<EncryptionHelper> storage = CompletableFuture.supplyAsync(
+                timed(STAGE_SECURE_STORAGE, () -> EncryptionHelper.getInstance(appContext)), executor);
+
+        CompletableFuture<SessionState> roleBranch = storage.thenApplyAsync(helper -> timed(STAGE_ROLE,
+                () -> new SessionState(helper.getUserRole(), helper.isSetupDone(), false)).get(), executor);
+
+        firebaseReady = storage
+                .thenApplyAsync(helper -> timed(STAGE_FIREBASE_OPTIONS, () -> {
+                    TenantConfig tenant = helper.getConfig().getActiveTenant();
+                    FirebaseManager.getOptions(tenant); // parse + cache
+                    return tenant;
+                }).get(), executor)
+                .thenApplyAsync(tenant -> timed(STAGE_FIREBASE_INIT,
+                        () -> FirebaseManager.activate(appContext, tenant)).get(), executor);
+
+        CompletableFuture<Boolean> authBranch = firebaseReady.thenApplyAsync(ready -> timed(STAGE_AUTH_STATE,
+                () -> ready && FirebaseManager.getAuth().getCurrentUser() != null).get(), executor);
+
+        sessionReady = roleBranch
+                .thenCombine(authBranch, (role, signedIn) ->
+                        new SessionState(role.getRole(), role.isSetupDone(), signedIn))
+                .exceptionally(e -> {
+                    Log.e(TAG, "Startup failed, falling back to role selection", e);
+                    return new SessionState(null, false, false);
+                });
+
+        sessionReady.thenRun(() -> {
+            stageDurations.put(STAGE_SESSION_READY,
+                    SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime());
+            Log.d(TAG, "Startup stages (ms): " + getStageDurations());
+        });
+    }
+
+    /**
+     * Delivers the session state on the main thread as soon as it is known.
+     */
+    public void whenSessionReady(final SessionCallback callback) {
+        sessionReady.thenAccept(state -> mainHandler.post(() -> callback.onSessionReady(state)));
+    }
+
+    public boolean isFirebaseReady() {
+        return firebaseReady.isDone();
+    }
+
+    /**
+     * Runs the callback on the main thread once the FirebaseApp init stage has finished.
+     * Needed by screens that can be recreated directly (process restore) without passing the Splash:
+     * they continue their setup from here instead of blocking the main thread.
+     * On a normal launch the stage is already done and the callback runs right away, inside onCreate.
+     */
+    public void whenFirebaseReady(final Activity activity, final Runnable callback) {
+        if (isFirebaseReady()) {
+            callback.run();
+            return;
+        }
+        firebaseReady
+                .handle((ready, e) -> {
+                    if (e != null) Log.e(TAG, "Firebase init stage failed", e);
+                    return ready;
+                })
+                .thenAcceptAsync(ready -> {
+                    if (!activity.isFinishing() && !activity.isDestroyed()) callback.run();
+                }, ContextCompat.getMainExecutor(appContext));
+    }
+
+    /**
+     * Blocks until the FirebaseApp init stage has finished. Background work only (MaintenanceJobs);
+     * screens use whenFirebaseReady.
+     */
+    public void awaitFirebase() {
+        try {
+            firebaseReady.join();
+        } catch (Exception e) {
+            Log.e(TAG, "Firebase init stage failed", e);
+        }
+    }
+
+    /**
+     * @return A snapshot of recorded stage durations in milliseconds, in completion order.
+     */
+    public Map<String, Long> getStageDurations() {
+        synchronized (stageDurations) {
+            return new LinkedHashMap<>(stageDurations);
+        }
+    }
+
+    private <T> Supplier<T> timed(String stage, Supplier<T> work) {
+        return () -> {
+            long start = SystemClock.elapsedRealtime();
+            try {
+                return work.get();
+            } finally {
+                stageDurations.put(stage, SystemClock.elapsedRealtime() - start);
+            }
+        };
+    }
+}
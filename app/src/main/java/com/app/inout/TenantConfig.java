@@ -0,0 +1,87 @@
+package com.inout.app.utils;
+
+import android.util.Log;
+
+import com.google.firebase.FirebaseApp;
+
+import org.json.JSONObject;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One company (Firebase project) known to this device.
+ * Each tenant runs in its own named FirebaseApp, so it keeps its own auth session and Firestore cache.
+ */
+public final class TenantConfig {
+
+    private static final String TAG = "TenantConfig";
+
+    private final String projectId;
+    private final String companyName;
+    private final String firebaseConfig;
+    private final String appName;   // FirebaseApp name; [DEFAULT] for the first company ever set up
+
+    public TenantConfig(String projectId, String companyName, String firebaseConfig, String appName) {
+        this.projectId = projectId;
+        this.companyName = companyName;
+        this.firebaseConfig = firebaseConfig;
+        this.appName = appName;
+    }
+
+    public String getProjectId() { return projectId; }
+    public String getCompanyName() { return companyName; }
+    public String getFirebaseConfig() { return firebaseConfig; }
+    public String getAppName() { return appName; }
+
+    /**
+     * The first tenant keeps the default FirebaseApp so sessions from before multi-company support survive.
+     */
+    static String appNameFor(String projectId, Map<String, TenantConfig> existing) {
+        TenantConfig known = existing.get(projectId);
+        if (known != null) return known.getAppName();
+        return existing.isEmpty() ? FirebaseApp.DEFAULT_APP_NAME : projectId;
+    }
+
+    static String toJson(Map<String, TenantConfig> tenants) {
+        JSONObject root = new JSONObject();
+        try {
+            for (TenantConfig t : tenants.values()) {
+                JSONObject obj = new JSONObject();
+                obj.put("companyName", t.companyName);
+                obj.put("firebaseConfig", t.firebaseConfig);
+                obj.put("appName", t.appName);
+                root.put(t.projectId, obj);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to serialize tenants", e);
+        }
+        return root.toString();
+    }
+
+    static Map<String, TenantConfig> fromJson(String json) {
+        Map<String, TenantConfig> tenants = new LinkedHashMap<>();
+        if (json == null || json.isEmpty()) return tenants;
+        try {
+            JSONObject root = new JSONObject(json);
+            Iterator<String> keys = root.keys();
+            while (keys.hasNext()) {
+                String projectId = keys.next();
+                JSONObject obj = root.getJSONObject(projectId);
+                tenants.put(projectId, new TenantConfig(projectId,
+                        obj.optString("companyName", AppConfigSnapshot.DEFAULT_COMPANY_NAME),
+                        obj.optString("firebaseConfig", null),
+                        obj.optString("appName", projectId)));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to parse tenants", e);
+        }
+        return tenants;
+    }
+
+    static Map<String, TenantConfig> unmodifiable(Map<String, TenantConfig> tenants) {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(tenants));
+    }
+}
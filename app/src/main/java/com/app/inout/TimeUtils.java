@@ -4,6 +4,7 @@ import android.util.Log;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Calendar;
 import java.util.Date;
 import java.util.Locale;
 import java.util.concurrent.TimeUnit;
@@ -55,6 +56,19 @@ public class TimeUtils {
     public static String calculateDuration(String checkInTimeStr, String checkOutTimeStr) {
         if (checkInTimeStr == null || checkOutTimeStr == null) return "0h 00m";
 
+        int minutes = calculateDurationMinutes(checkInTimeStr, checkOutTimeStr);
+        return minutes >= 0 ? formatMinutes(minutes) : "Error";
+    }
+
+    /**
+     * NEW: Same as calculateDuration(), in minutes, for the numeric fields that
+     * server-side sums run on.
+     *
+     * @return Minutes between the two times, 0 if either is missing, -1 if parsing fails.
+     */
+    public static int calculateDurationMinutes(String checkInTimeStr, String checkOutTimeStr) {
+        if (checkInTimeStr == null || checkOutTimeStr == null) return 0;
+
         try {
             // We need to parse relative to the same day to get the difference
             // Since the input is just time (HH:mm a), we use a dummy date.
@@ -69,17 +83,45 @@ public class TimeUtils {
                     diffMillis += TimeUnit.DAYS.toMillis(1);
                 }
 
-                long hours = TimeUnit.MILLISECONDS.toHours(diffMillis);
-                long minutes = TimeUnit.MILLISECONDS.toMinutes(diffMillis) % 60;
-
-                return String.format(Locale.US, "%dh %02dm", hours, minutes);
+                return (int) TimeUnit.MILLISECONDS.toMinutes(diffMillis);
             }
         } catch (ParseException e) {
             Log.e(TAG, "Error calculating duration", e);
         }
-        return "Error";
+        return -1;
+    }
+
+    /**
+     * @return Minutes since midnight of a time string such as "09:30 AM", or -1 if it cannot be parsed.
+     */
+    public static int minutesOfDay(String timeStr) {
+        if (timeStr == null) return -1;
+        try {
+            Date time = TIME_DISPLAY_FORMAT.parse(timeStr);
+            if (time == null) return -1;
+            Calendar cal = Calendar.getInstance();
+            cal.setTime(time);
+            return cal.get(Calendar.HOUR_OF_DAY) * 60 + cal.get(Calendar.MINUTE);
+        } catch (ParseException e) {
+            Log.e(TAG, "Error parsing time", e);
+            return -1;
+        }
+    }
+
+    /**
+     * @return Minutes as "8h 00m".
+     */
+    public static String formatMinutes(long totalMinutes) {
+        return String.format(Locale.US, "%dh %02dm", totalMinutes / 60, totalMinutes % 60);
     }
     
+    /**
+     * @return Display time of an epoch timestamp (e.g., "06:00 PM").
+     */
+    public static String formatTime(long timestamp) {
+        return TIME_DISPLAY_FORMAT.format(new Date(timestamp));
+    }
+
     public static String formatTimestampToDate(long timestamp) {
         return DATE_ID_FORMAT.format(new Date(timestamp));
     }
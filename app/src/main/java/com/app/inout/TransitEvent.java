@@ -0,0 +1,44 @@
+package com.inout.app.models;
+
+import com.google.firebase.firestore.IgnoreExtraProperties;
+
+/**
+ * One verified transit hop.
+ * Stored under attendance/{recordId}/transits so the daily record does not grow with every hop
+ * and repeat visits (A -> B -> A) are kept instead of being merged by arrayUnion.
+ * UPDATED: No longer written. TRANSIT AttendanceEvents are the hop history; existing documents are
+ * still moved by AttendanceIdMigration and deleted by MonthArchiver's purge.
+ */
+@IgnoreExtraProperties
+public class TransitEvent {
+
+    public static final String SUBCOLLECTION = "transits";
+
+    private String locationId;
+    private String locationName;
+    private long timestamp;         // When the hop was verified (epoch millis)
+    private float distanceMeters;   // Distance from the location at verification
+
+    public TransitEvent() {
+        // Default constructor required for Firestore
+    }
+
+    public TransitEvent(String locationId, String locationName, long timestamp, float distanceMeters) {
+        this.locationId = locationId;
+        this.locationName = locationName;
+        this.timestamp = timestamp;
+        this.distanceMeters = distanceMeters;
+    }
+
+    public String getLocationId() { return locationId; }
+    public void setLocationId(String locationId) { this.locationId = locationId; }
+
+    public String getLocationName() { return locationName; }
+    public void setLocationName(String locationName) { this.locationName = locationName; }
+
+    public long getTimestamp() { return timestamp; }
+    public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
+
+    public float getDistanceMeters() { return distanceMeters; }
+    public void setDistanceMeters(float distanceMeters) { this.distanceMeters = distanceMeters; }
+}
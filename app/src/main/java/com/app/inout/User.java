@@ -2,6 +2,9 @@ package com.inout.app.models;
 
 import com.google.firebase.firestore.IgnoreExtraProperties;
 import com.google.firebase.firestore.PropertyName;
+import com.google.firebase.firestore.ServerTimestamp;
+
+import java.util.Date;
 
 /**
  * Model class representing a user in the 'users' Firestore collection.
@@ -28,6 +31,10 @@ public class User {
     private String shiftStartTime; 
     private String shiftEndTime;   
 
+    // Set by the server on every write (delta sync watermark, see DeltaSync)
+    @ServerTimestamp
+    private Date updatedAt;
+
     public User() {
         // Default constructor required for calls to DataSnapshot.getValue(User.class)
     }
@@ -162,4 +169,14 @@ public class User {
     public void setShiftEndTime(String shiftEndTime) {
         this.shiftEndTime = shiftEndTime;
     }
+
+    @PropertyName("updatedAt")
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    @PropertyName("updatedAt")
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
 }
\ No newline at end of file
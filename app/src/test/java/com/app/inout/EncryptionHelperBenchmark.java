@@ -0,0 +1,111 @@
+package com.inout.app.utils;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Locale;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * Throughput of the QR envelope (EncryptionHelper.sealQr / openQr) for the two hot paths: a kiosk
+ * decrypting the same QR over and over, and bulk onboarding encrypting one distinct payload per employee.
+ *
+ * Both sides run the same v1 transform (AES/GCM, same envelope), so the ratio is only the caching:
+ * the uncached side derives the key and calls Cipher.getInstance on every call.
+ *
+ * Ignored in the normal suite: timings are printed, not asserted, and depend on the machine.
+ * Remove @Ignore locally to run it.
+ */
+@Ignore("Benchmark, run on demand")
+public class EncryptionHelperBenchmark {
+
+    private static final String KIOSK_PAYLOAD =
+            "{\"locationId\":\"loc_7f3a\",\"name\":\"Main Gate\",\"lat\":12.971599,\"lng\":77.594566,\"radius\":150}";
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 20_000;
+
+    // v1 envelope layout, as in EncryptionHelper: version byte, 12-byte nonce, ciphertext + 128-bit tag
+    private static final byte VERSION = 0x01;
+    private static final int NONCE_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+
+    private static final SecureRandom random = new SecureRandom();
+
+    @Test
+    public void kioskDecryptThroughput() throws Exception {
+        final byte[] envelope = EncryptionHelper.sealQr(KIOSK_PAYLOAD.getBytes(StandardCharsets.UTF_8));
+
+        double cached = opsPerSecond(() -> EncryptionHelper.openQr(envelope));
+        double uncached = opsPerSecond(() -> uncachedOpen(envelope));
+        report("kiosk decrypt", cached, uncached);
+        assertTrue(cached > 0);
+    }
+
+    @Test
+    public void bulkOnboardingEncryptThroughput() throws Exception {
+        final byte[][] payloads = new byte[1_000][];
+        for (int i = 0; i < payloads.length; i++) {
+            payloads[i] = String.format(Locale.US,
+                    "{\"employeeId\":\"EMP%05d\",\"locationId\":\"loc_7f3a\",\"shift\":\"09:00 AM - 06:00 PM\"}", i)
+                    .getBytes(StandardCharsets.UTF_8);
+        }
+        final int[] next = {0};
+
+        double cached = opsPerSecond(() -> EncryptionHelper.sealQr(payloads[next[0]++ % payloads.length]));
+        double uncached = opsPerSecond(() -> uncachedSeal(payloads[next[0]++ % payloads.length]));
+        report("bulk encrypt", cached, uncached);
+        assertTrue(cached > 0);
+    }
+
+    // ---- Helpers ----
+
+    private interface Op {
+        Object run() throws Exception;
+    }
+
+    private static double opsPerSecond(Op op) throws Exception {
+        Object sink = null;
+        for (int i = 0; i < WARMUP; i++) sink = op.run();
+        long t0 = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) sink = op.run();
+        long elapsed = System.nanoTime() - t0;
+        if (sink == null) fail("Operation returned null");
+        return ITERATIONS * 1e9 / elapsed;
+    }
+
+    private static void report(String name, double cached, double uncached) {
+        System.out.println(String.format(Locale.US, "%-14s %,10.0f ops/s (cached)  %,10.0f ops/s (uncached)  x%.1f",
+                name, cached, uncached, cached / uncached));
+    }
+
+    /** sealQr without the caches: derive the key and create the cipher on every call. */
+    private static byte[] uncachedSeal(byte[] plain) throws Exception {
+        byte[] nonce = new byte[NONCE_LENGTH];
+        random.nextBytes(nonce);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, EncryptionHelper.deriveQrKey(), new GCMParameterSpec(TAG_BITS, nonce));
+        byte[] sealed = cipher.doFinal(plain);
+
+        byte[] envelope = new byte[1 + NONCE_LENGTH + sealed.length];
+        envelope[0] = VERSION;
+        System.arraycopy(nonce, 0, envelope, 1, NONCE_LENGTH);
+        System.arraycopy(sealed, 0, envelope, 1 + NONCE_LENGTH, sealed.length);
+        return envelope;
+    }
+
+    /** openQr's v1 path without the caches. */
+    private static byte[] uncachedOpen(byte[] envelope) throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, EncryptionHelper.deriveQrKey(),
+                new GCMParameterSpec(TAG_BITS, envelope, 1, NONCE_LENGTH));
+        int offset = 1 + NONCE_LENGTH;
+        return cipher.doFinal(envelope, offset, envelope.length - offset);
+    }
+}
@@ -0,0 +1,86 @@
+package com.inout.app.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+
+/**
+ * JVM checks of the QR envelope (EncryptionHelper.sealQr / openQr).
+ *
+ * 1. v1 round trip, fresh nonce per QR, tamper detection.
+ * 2. Legacy (header-less AES) payloads still open, including one that starts with the v1 byte.
+ *
+ * Throughput lives in EncryptionHelperBenchmark, outside the normal suite.
+ */
+public class EncryptionHelperTest {
+
+    private static final String KIOSK_PAYLOAD =
+            "{\"locationId\":\"loc_7f3a\",\"name\":\"Main Gate\",\"lat\":12.971599,\"lng\":77.594566,\"radius\":150}";
+
+    @Test
+    public void v1RoundTrip() throws Exception {
+        byte[] plain = KIOSK_PAYLOAD.getBytes(StandardCharsets.UTF_8);
+        byte[] envelope = EncryptionHelper.sealQr(plain);
+
+        assertEquals(0x01, envelope[0]);
+        assertEquals(1 + 12 + plain.length + 16, envelope.length);
+        assertArrayEquals(plain, EncryptionHelper.openQr(envelope));
+    }
+
+    @Test
+    public void v1UsesFreshNonce() throws Exception {
+        byte[] plain = KIOSK_PAYLOAD.getBytes(StandardCharsets.UTF_8);
+        assertFalse(Arrays.equals(EncryptionHelper.sealQr(plain), EncryptionHelper.sealQr(plain)));
+    }
+
+    @Test
+    public void v1RejectsTamperedEnvelope() throws Exception {
+        byte[] plain = KIOSK_PAYLOAD.getBytes(StandardCharsets.UTF_8);
+        byte[] envelope = EncryptionHelper.sealQr(plain);
+        envelope[envelope.length - 1] ^= 0x01;
+        try {
+            // The GCM tag check fails; whatever the legacy fallback makes of it is not the payload
+            assertFalse(Arrays.equals(plain, EncryptionHelper.openQr(envelope)));
+        } catch (GeneralSecurityException expected) {
+            // Rejected outright
+        }
+    }
+
+    @Test
+    public void legacyPayloadFallsBack() throws Exception {
+        byte[] plain = KIOSK_PAYLOAD.getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(plain, EncryptionHelper.openQr(legacySeal(plain)));
+    }
+
+    @Test
+    public void legacyPayloadStartingWithVersionByteFallsBack() throws Exception {
+        // Find a legacy ciphertext whose first byte collides with the v1 marker (ECB: vary the first block)
+        for (int i = 0; i < 10_000; i++) {
+            byte[] plain = (i + KIOSK_PAYLOAD).getBytes(StandardCharsets.UTF_8);
+            byte[] legacy = legacySeal(plain);
+            if (legacy[0] == 0x01 && legacy.length >= 1 + 12 + 16) {
+                assertArrayEquals(plain, EncryptionHelper.openQr(legacy));
+                return;
+            }
+        }
+        fail("No legacy ciphertext starting with 0x01 found");
+    }
+
+    // ---- Helpers ----
+
+    /** What printed QRs contain: AES with the provider defaults (ECB/PKCS5), no header. */
+    private static byte[] legacySeal(byte[] plain) throws Exception {
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.ENCRYPT_MODE, EncryptionHelper.getQrKey());
+        return cipher.doFinal(plain);
+    }
+}